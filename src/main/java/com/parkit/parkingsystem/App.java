@@ -1,12 +1,36 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.config.ApplicationProperties;
+import com.parkit.parkingsystem.http.GateHttpServer;
+import com.parkit.parkingsystem.service.CommandShell;
+import com.parkit.parkingsystem.service.GateEventReplayer;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.RebillingJob;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Arrays;
+
 public class App {
     private static final Logger logger = LogManager.getLogger("App");
     public static void main(String args[]){
+        if (args.length > 0 && RebillingJob.COMMAND.equals(args[0])) {
+            System.exit(RebillingJob.runCommand(Arrays.copyOfRange(args, 1, args.length),
+                    ApplicationProperties.load(ApplicationProperties.DEFAULT_RESOURCE)));
+        }
+        if (args.length > 0 && GateEventReplayer.COMMAND.equals(args[0])) {
+            System.exit(GateEventReplayer.runCommand(Arrays.copyOfRange(args, 1, args.length),
+                    ApplicationProperties.load(ApplicationProperties.DEFAULT_RESOURCE)));
+        }
+        if (args.length > 0 && CommandShell.COMMAND.equals(args[0])) {
+            System.exit(CommandShell.runCommand(Arrays.copyOfRange(args, 1, args.length),
+                    ApplicationProperties.load(ApplicationProperties.DEFAULT_RESOURCE)));
+        }
+        // before the gate API, served by the console or alone, creates the JVM's first HttpServer
+        GateHttpServer.enableNoDelay();
+        if (args.length > 0 && "serve".equals(args[0])) {
+            System.exit(GateHttpServer.serve(ApplicationProperties.load(ApplicationProperties.DEFAULT_RESOURCE)));
+        }
         logger.info("Initializing Parking System");
         InteractiveShell.loadInterface();
     }
@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.util.PlateNormalizer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Absorbs repeated reads of the same plate, such as a camera triggering two or
+ * three times as a vehicle stops at the barrier. A read is a repeat when the same
+ * normalized plate was accepted less than {@code windowMillis} before; the window
+ * runs from the accepted read, so a vehicle that comes back later is let through.
+ * <p>
+ * Lock-free: the time of the last accepted read per plate is swapped with
+ * compare-and-set, and plates older than the window are swept by whichever caller
+ * first finds a sweep due, so only the plates read in the last two windows are
+ * held, however many distinct plates the gates are sent.
+ */
+public class DuplicateReadFilter {
+
+    private final long windowMillis;
+    private final Map<String, Long> acceptedReads = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepMillis = new AtomicLong(Long.MIN_VALUE);
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public DuplicateReadFilter(long windowMillis) {
+        if (windowMillis < 1) {
+            throw new IllegalArgumentException("windowMillis must be at least 1");
+        }
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Returns true if the read repeats one accepted within the window, otherwise
+     * records it as the plate's accepted read and returns false.
+     */
+    public boolean isRepeat(String vehicleRegNumber, long readMillis) {
+        String plate = PlateNormalizer.normalize(vehicleRegNumber);
+        Long previous = acceptedReads.putIfAbsent(plate, readMillis);
+        while (previous != null) {
+            if (Math.abs(readMillis - previous) < windowMillis) {
+                rejected.increment();
+                return true;
+            }
+            if (acceptedReads.replace(plate, previous, readMillis)) {
+                break;
+            }
+            previous = acceptedReads.putIfAbsent(plate, readMillis);
+        }
+        accepted.increment();
+        sweepIfDue(readMillis);
+        return false;
+    }
+
+    /**
+     * Drops an accepted read whose processing failed, so that the next read of the
+     * plate is a retry and not a repeat. Does nothing if a later read was accepted.
+     */
+    public void forget(String vehicleRegNumber, long readMillis) {
+        acceptedReads.remove(PlateNormalizer.normalize(vehicleRegNumber), readMillis);
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    /**
+     * Reads absorbed as repeats.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Plates with an accepted read still held, at most the plates read in the last
+     * two windows.
+     */
+    public int getTrackedPlates() {
+        return acceptedReads.size();
+    }
+
+    private void sweepIfDue(long nowMillis) {
+        long due = nextSweepMillis.get();
+        if (nowMillis < due || !nextSweepMillis.compareAndSet(due, nowMillis + windowMillis)) {
+            return;
+        }
+        long expired = nowMillis - windowMillis;
+        acceptedReads.values().removeIf(readMillis -> readMillis <= expired);
+    }
+
+    @Override
+    public String toString() {
+        return "DuplicateReadFilter[window=" + windowMillis + "ms, accepted=" + getAcceptedCount()
+                + ", rejected=" + getRejectedCount() + ", tracked=" + getTrackedPlates() + "]";
+    }
+}
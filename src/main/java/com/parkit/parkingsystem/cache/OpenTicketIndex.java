@@ -0,0 +1,82 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.PlateNormalizer;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of the tickets that have no {@code OUT_TIME} yet, keyed by
+ * normalized plate. Like {@link SpotAvailabilityIndex} it is loaded once at
+ * startup and kept up to date by the DAO after each committed write. Tickets are
+ * copied on the way in and out so callers can never change the cached state.
+ */
+public class OpenTicketIndex {
+
+    private final Map<String, Ticket> ticketsByPlate = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Replaces the content with the given open tickets. When a plate has several,
+     * the first one wins, which matches the {@code order by IN_TIME} of the DB lookup.
+     */
+    public synchronized void load(Collection<Ticket> openTickets) {
+        ticketsByPlate.clear();
+        for (Ticket ticket : openTickets) {
+            ticketsByPlate.putIfAbsent(PlateNormalizer.normalize(ticket.getVehicleRegNumber()), copy(ticket));
+        }
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void put(Ticket ticket) {
+        if (loaded && !ticket.hasOutTime()) {
+            ticketsByPlate.put(PlateNormalizer.normalize(ticket.getVehicleRegNumber()), copy(ticket));
+        }
+    }
+
+    /**
+     * Drops the open ticket of the plate, only if it is still the ticket with the
+     * given id, so a late removal never evicts a newer entry for the same car.
+     */
+    public void remove(String vehicleRegNumber, int ticketId) {
+        String plate = PlateNormalizer.normalize(vehicleRegNumber);
+        if (plate != null) {
+            ticketsByPlate.computeIfPresent(plate, (key, ticket) -> ticket.getId() == ticketId ? null : ticket);
+        }
+    }
+
+    public Ticket get(String vehicleRegNumber) {
+        String plate = PlateNormalizer.normalize(vehicleRegNumber);
+        Ticket ticket = plate == null ? null : ticketsByPlate.get(plate);
+        return ticket == null ? null : copy(ticket);
+    }
+
+    public boolean contains(String vehicleRegNumber) {
+        String plate = PlateNormalizer.normalize(vehicleRegNumber);
+        return plate != null && ticketsByPlate.containsKey(plate);
+    }
+
+    public int size() {
+        return ticketsByPlate.size();
+    }
+
+    private static Ticket copy(Ticket ticket) {
+        Ticket copy = new Ticket();
+        copy.setId(ticket.getId());
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        copy.setParkingSpot(parkingSpot == null ? null
+                : new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable()));
+        copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        copy.setPriceCents(ticket.getPriceCents());
+        copy.setInTimeMillis(ticket.getInTimeMillis());
+        copy.setOutTimeMillis(ticket.getOutTimeMillis());
+        return copy;
+    }
+}
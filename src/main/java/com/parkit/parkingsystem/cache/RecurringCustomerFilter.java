@@ -0,0 +1,101 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.util.PlateNormalizer;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Set of plates that have at least one closed ticket, answering the recurring
+ * customer check without touching the DB. A {@link BloomFilter} answers most
+ * negatives from a few bit probes and the exact set behind it removes the false
+ * positives. Loaded from history at startup, then grown by the DAO each time a
+ * ticket is closed, so it assumes this process is the only writer.
+ */
+public class RecurringCustomerFilter {
+
+    static final int MIN_CAPACITY = 1024;
+    static final double FALSE_POSITIVE_RATE = 0.01;
+
+    // ConcurrentHashMap node + table slot + String header + byte[] header
+    private static final int ENTRY_OVERHEAD_BYTES = 32 + 8 + 24 + 16;
+
+    private final Set<String> plates = ConcurrentHashMap.newKeySet();
+    private volatile BloomFilter bloomFilter = new BloomFilter(MIN_CAPACITY, FALSE_POSITIVE_RATE);
+    private volatile boolean loaded;
+
+    private final LongAdder bloomRejections = new LongAdder();
+    private final LongAdder exactHits = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public synchronized void load(Collection<String> vehicleRegNumbers) {
+        plates.clear();
+        for (String vehicleRegNumber : vehicleRegNumbers) {
+            String plate = PlateNormalizer.normalize(vehicleRegNumber);
+            if (plate != null) {
+                plates.add(plate);
+            }
+        }
+        bloomFilter = buildBloomFilter(plates.size());
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Records a plate whose ticket was just closed. The Bloom filter is rebuilt
+     * twice as large once it holds more plates than it was sized for, so the false
+     * positive rate stays close to {@link #FALSE_POSITIVE_RATE}.
+     */
+    public synchronized void add(String vehicleRegNumber) {
+        String plate = PlateNormalizer.normalize(vehicleRegNumber);
+        if (!loaded || plate == null || !plates.add(plate)) {
+            return;
+        }
+        if (plates.size() > bloomFilter.getExpectedInsertions()) {
+            bloomFilter = buildBloomFilter(plates.size());
+        } else {
+            bloomFilter.add(plate);
+        }
+    }
+
+    public boolean contains(String vehicleRegNumber) {
+        String plate = PlateNormalizer.normalize(vehicleRegNumber);
+        if (plate == null || !bloomFilter.mightContain(plate)) {
+            bloomRejections.increment();
+            return false;
+        }
+        if (plates.contains(plate)) {
+            exactHits.increment();
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    public int size() {
+        return plates.size();
+    }
+
+    public RecurringCustomerStats getStats() {
+        long exactSetBytes = 0;
+        for (String plate : plates) {
+            exactSetBytes += ENTRY_OVERHEAD_BYTES + ((plate.length() + 7) & ~7);
+        }
+        BloomFilter current = bloomFilter;
+        return new RecurringCustomerStats(plates.size(), current.getSizeInBytes(), exactSetBytes,
+                current.getHashCount(), bloomRejections.sum(), exactHits.sum(), falsePositives.sum());
+    }
+
+    private BloomFilter buildBloomFilter(int plateCount) {
+        BloomFilter filter = new BloomFilter(Math.max(MIN_CAPACITY, plateCount * 2), FALSE_POSITIVE_RATE);
+        for (String plate : plates) {
+            filter.add(plate);
+        }
+        return filter;
+    }
+}
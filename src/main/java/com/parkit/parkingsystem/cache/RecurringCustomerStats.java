@@ -0,0 +1,71 @@
+package com.parkit.parkingsystem.cache;
+
+/**
+ * Point-in-time snapshot of a {@link RecurringCustomerFilter}. Memory figures are
+ * estimates for a 64-bit JVM with compressed oops and compact strings.
+ */
+public class RecurringCustomerStats {
+
+    private final int plates;
+    private final long bloomFilterBytes;
+    private final long exactSetBytes;
+    private final int hashCount;
+    private final long bloomRejections;
+    private final long exactHits;
+    private final long falsePositives;
+
+    public RecurringCustomerStats(int plates, long bloomFilterBytes, long exactSetBytes, int hashCount,
+                                  long bloomRejections, long exactHits, long falsePositives) {
+        this.plates = plates;
+        this.bloomFilterBytes = bloomFilterBytes;
+        this.exactSetBytes = exactSetBytes;
+        this.hashCount = hashCount;
+        this.bloomRejections = bloomRejections;
+        this.exactHits = exactHits;
+        this.falsePositives = falsePositives;
+    }
+
+    public int getPlates() {
+        return plates;
+    }
+
+    public long getBloomFilterBytes() {
+        return bloomFilterBytes;
+    }
+
+    public long getExactSetBytes() {
+        return exactSetBytes;
+    }
+
+    public long getTotalBytes() {
+        return bloomFilterBytes + exactSetBytes;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getBloomRejections() {
+        return bloomRejections;
+    }
+
+    public long getExactHits() {
+        return exactHits;
+    }
+
+    public long getFalsePositives() {
+        return falsePositives;
+    }
+
+    @Override
+    public String toString() {
+        return "RecurringCustomerStats{plates=" + plates
+                + ", bloomFilterBytes=" + bloomFilterBytes
+                + ", exactSetBytes=" + exactSetBytes
+                + ", totalBytes=" + getTotalBytes()
+                + ", hashCount=" + hashCount
+                + ", bloomRejections=" + bloomRejections
+                + ", exactHits=" + exactHits
+                + ", falsePositives=" + falsePositives + '}';
+    }
+}
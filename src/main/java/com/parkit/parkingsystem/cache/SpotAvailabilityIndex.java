@@ -0,0 +1,82 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * In-memory copy of the {@code parking} table availability, one {@link SpotBitSet}
+ * per parking type. It is loaded once at startup and kept up to date by the DAO
+ * after each successful write, so it assumes this process is the only writer.
+ */
+public class SpotAvailabilityIndex {
+
+    private final Map<ParkingType, SpotBitSet> spotsByType = new EnumMap<>(ParkingType.class);
+    private volatile boolean loaded;
+
+    public synchronized void load(Collection<ParkingSpot> parkingSpots) {
+        spotsByType.clear();
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            SpotBitSet spots = spotsByType.computeIfAbsent(parkingSpot.getParkingType(), type -> new SpotBitSet());
+            spots.register(parkingSpot.getId());
+            spots.set(parkingSpot.getId(), parkingSpot.isAvailable());
+        }
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Returns the lowest available spot number for the type, or 0 when the type is
+     * full, matching what {@code min(PARKING_NUMBER)} yields through JDBC.
+     */
+    public synchronized int getLowestAvailable(ParkingType parkingType) {
+        SpotBitSet spots = spotsByType.get(parkingType);
+        int spotNumber = spots == null ? -1 : spots.lowestFree();
+        return spotNumber < 0 ? 0 : spotNumber;
+    }
+
+    /**
+     * Marks the lowest available spot of the type as taken and returns it, or 0 when
+     * the type is full. Concurrent callers never receive the same spot.
+     */
+    public synchronized int claimLowestAvailable(ParkingType parkingType) {
+        SpotBitSet spots = spotsByType.get(parkingType);
+        int spotNumber = spots == null ? -1 : spots.lowestFree();
+        if (spotNumber < 0) {
+            return 0;
+        }
+        spots.set(spotNumber, false);
+        return spotNumber;
+    }
+
+    public synchronized void setAvailable(ParkingSpot parkingSpot) {
+        if (!loaded) {
+            return;
+        }
+        SpotBitSet spots = spotsByType.get(parkingSpot.getParkingType());
+        if (spots != null) {
+            spots.set(parkingSpot.getId(), parkingSpot.isAvailable());
+        }
+    }
+
+    public synchronized boolean isAvailable(int spotNumber, ParkingType parkingType) {
+        SpotBitSet spots = spotsByType.get(parkingType);
+        return spots != null && spots.isFree(spotNumber);
+    }
+
+    public synchronized int getAvailableCount(ParkingType parkingType) {
+        SpotBitSet spots = spotsByType.get(parkingType);
+        return spots == null ? 0 : spots.getAvailable();
+    }
+
+    public synchronized int getCapacity(ParkingType parkingType) {
+        SpotBitSet spots = spotsByType.get(parkingType);
+        return spots == null ? 0 : spots.getCapacity();
+    }
+}
@@ -0,0 +1,76 @@
+package com.parkit.parkingsystem.cache;
+
+import java.util.Arrays;
+
+/**
+ * Two-level bit set of free spot numbers. Each bit of {@code summary} records whether
+ * the matching word of {@code words} has any free spot, so the lowest free spot is
+ * found by scanning one summary word per 4096 spots. Not thread-safe on its own.
+ */
+class SpotBitSet {
+
+    private long[] words = new long[1];
+    private long[] summary = new long[1];
+    private int capacity;
+    private int available;
+
+    void set(int spotNumber, boolean free) {
+        ensureCapacity(spotNumber);
+        int word = spotNumber >>> 6;
+        long mask = 1L << spotNumber;
+        boolean wasFree = (words[word] & mask) != 0;
+        if (free == wasFree) {
+            return;
+        }
+        if (free) {
+            words[word] |= mask;
+            summary[word >>> 6] |= 1L << word;
+            available++;
+        } else {
+            words[word] &= ~mask;
+            if (words[word] == 0) {
+                summary[word >>> 6] &= ~(1L << word);
+            }
+            available--;
+        }
+    }
+
+    boolean isFree(int spotNumber) {
+        int word = spotNumber >>> 6;
+        return word < words.length && (words[word] & (1L << spotNumber)) != 0;
+    }
+
+    /**
+     * Returns the lowest free spot number, or -1 when none is free.
+     */
+    int lowestFree() {
+        for (int s = 0; s < summary.length; s++) {
+            if (summary[s] != 0) {
+                int word = (s << 6) + Long.numberOfTrailingZeros(summary[s]);
+                return (word << 6) + Long.numberOfTrailingZeros(words[word]);
+            }
+        }
+        return -1;
+    }
+
+    void register(int spotNumber) {
+        ensureCapacity(spotNumber);
+        capacity++;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    int getAvailable() {
+        return available;
+    }
+
+    private void ensureCapacity(int spotNumber) {
+        int word = spotNumber >>> 6;
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+            summary = Arrays.copyOf(summary, (words.length + 63) >>> 6);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Key/value settings loaded from a classpath properties file. A file given with
+ * {@code -Dparkit.config=<path>} is layered on top, and any key can be overridden
+ * with a system property of the same name.
+ */
+public class ApplicationProperties {
+
+    private static final Logger logger = LogManager.getLogger("ApplicationProperties");
+
+    public static final String DEFAULT_RESOURCE = "application.properties";
+    public static final String EXTERNAL_CONFIG_PROPERTY = "parkit.config";
+
+    private final Properties properties;
+
+    public ApplicationProperties(Properties properties) {
+        this.properties = properties;
+    }
+
+    public static ApplicationProperties load(String resource) {
+        Properties properties = new Properties();
+        try (InputStream in = ApplicationProperties.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in != null) {
+                properties.load(in);
+            } else {
+                logger.warn("Configuration resource {} not found on classpath, using defaults", resource);
+            }
+        } catch (IOException e) {
+            logger.error("Error while reading configuration resource " + resource, e);
+        }
+        String externalFile = System.getProperty(EXTERNAL_CONFIG_PROPERTY);
+        if (externalFile != null) {
+            try (InputStream in = new FileInputStream(externalFile)) {
+                properties.load(in);
+            } catch (IOException e) {
+                logger.error("Error while reading configuration file " + externalFile, e);
+            }
+        }
+        return new ApplicationProperties(properties);
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = System.getProperty(key, properties.getProperty(key));
+        return value == null ? defaultValue : value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.error("Invalid integer for {}: {}", key, value);
+            return defaultValue;
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            logger.error("Invalid number for {}: {}", key, value);
+            return defaultValue;
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,112 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cuts calls to the database off for a while once it keeps failing, so callers fail
+ * fast instead of each waiting for its own timeout.
+ * <p>
+ * {@code failureThreshold} consecutive failures open the breaker, and every call is
+ * refused for {@code openMillis}. Calls are then let through again (half-open):
+ * the first success closes the breaker, the first failure opens it for another
+ * {@code openMillis}.
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LogManager.getLogger("CircuitBreaker");
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /**
+     * Tells whether a call may go ahead. Counts the call as refused when not.
+     */
+    public boolean allowRequest() {
+        if (state.get() != State.OPEN) {
+            return true;
+        }
+        if (System.nanoTime() - openedAt >= openNanos) {
+            if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                logger.info("{} circuit half-open, letting calls through again", name);
+            }
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void recordSuccess() {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+        if (state.get() != State.CLOSED && state.getAndSet(State.CLOSED) != State.CLOSED) {
+            logger.info("{} circuit closed", name);
+        }
+    }
+
+    public void recordFailure() {
+        int failures = consecutiveFailures.incrementAndGet();
+        if (state.compareAndSet(State.HALF_OPEN, State.OPEN)
+                || (failures >= failureThreshold && state.compareAndSet(State.CLOSED, State.OPEN))) {
+            openedAt = System.nanoTime();
+            opened.increment();
+            logger.warn("{} circuit opened after {} consecutive failures, refusing calls for {} ms",
+                    name, failures, TimeUnit.NANOSECONDS.toMillis(openNanos));
+        }
+    }
+
+    /**
+     * The current state. An open breaker whose delay has run out still reports
+     * {@link State#OPEN} until a call is let through.
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * Calls refused while the breaker was open.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Times the breaker opened.
+     */
+    public long getOpenedCount() {
+        return opened.sum();
+    }
+
+    @Override
+    public String toString() {
+        return name + " circuit " + getState() + " (opened " + getOpenedCount() + " times, "
+                + getRejectedCount() + " calls refused)";
+    }
+}
@@ -0,0 +1,12 @@
+package com.parkit.parkingsystem.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Opens a new physical connection for a {@link ConnectionPool}.
+ */
+public interface ConnectionFactory {
+
+    Connection create() throws SQLException;
+}
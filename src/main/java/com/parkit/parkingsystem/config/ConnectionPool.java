@@ -0,0 +1,239 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool. Idle connections are reused most-recently-used first,
+ * validated when they have been idle longer than the validation interval, and evicted
+ * by a background housekeeper once idle longer than the idle timeout. Connections held
+ * longer than the leak detection threshold are reported with the stack that borrowed them.
+ * Each physical connection keeps its own {@link StatementCache}.
+ * <p>
+ * Statements get the configured query timeout. With a {@link CircuitBreaker}, waits
+ * for a connection that time out, connections that cannot be opened, lost
+ * connections and query timeouts count as failures, a lease without any counts as
+ * a success, and an open breaker refuses connections at once.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("ConnectionPool");
+
+    private final PoolSettings settings;
+    private final ConnectionFactory connectionFactory;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> leased = ConcurrentHashMap.newKeySet();
+    private final WaitTimeHistogram waitTimes = new WaitTimeHistogram();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final AtomicLong statementCacheEvictions = new AtomicLong();
+    private final ScheduledExecutorService housekeeper;
+    private final CircuitBreaker circuitBreaker;
+    private volatile boolean closed;
+
+    public ConnectionPool(PoolSettings settings, ConnectionFactory connectionFactory) {
+        this.settings = settings;
+        this.connectionFactory = connectionFactory;
+        this.permits = new Semaphore(settings.getMaxSize(), true);
+        this.circuitBreaker = settings.getBreakerFailureThreshold() > 0
+                ? new CircuitBreaker("DB", settings.getBreakerFailureThreshold(), settings.getBreakerOpenMillis()) : null;
+        if (settings.getHousekeepingIntervalMillis() > 0) {
+            housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "connection-pool-housekeeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            housekeeper.scheduleWithFixedDelay(this::housekeep, settings.getHousekeepingIntervalMillis(),
+                    settings.getHousekeepingIntervalMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            housekeeper = null;
+        }
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+            throw new SQLTransientConnectionException("Database calls are suspended: " + circuitBreaker);
+        }
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(settings.getMaxWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            recordDatabaseFailure();
+            throw new SQLTransientConnectionException("Timed out after " + settings.getMaxWaitMillis()
+                    + "ms waiting for a connection (" + getStats() + ")");
+        }
+        try {
+            PooledConnection pooled = takeIdleOrCreate();
+            waitTimes.record(System.nanoTime() - start);
+            borrows.incrementAndGet();
+            pooled.lease(settings.getLeakDetectionThresholdMillis() > 0);
+            leased.add(pooled);
+            return pooled.newHandle(this);
+        } catch (SQLException e) {
+            recordDatabaseFailure();
+            permits.release();
+            throw e;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            destroy(pooled);
+        }
+        Connection connection = connectionFactory.create();
+        created.incrementAndGet();
+        logger.debug("Opened new physical DB connection");
+        StatementCache statementCache = settings.getStatementCacheSize() > 0
+                ? new StatementCache(settings.getStatementCacheSize(), this) : null;
+        return new PooledConnection(connection, statementCache, settings.getQueryTimeoutSeconds());
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.getLastValidatedAt() < settings.getValidationIntervalMillis()) {
+            return true;
+        }
+        try {
+            if (pooled.getConnection().isValid(settings.getValidationTimeoutSeconds())) {
+                pooled.markValidated();
+                return true;
+            }
+        } catch (SQLException e) {
+            logger.debug("Idle connection failed validation", e);
+        }
+        return false;
+    }
+
+    void release(PooledConnection pooled) {
+        leased.remove(pooled);
+        if (circuitBreaker != null && !pooled.hasFailedDuringLease()) {
+            circuitBreaker.recordSuccess();
+        }
+        try {
+            if (!closed && pooled.reset()) {
+                idle.offerFirst(pooled);
+            } else {
+                destroy(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        destroyed.incrementAndGet();
+        try {
+            pooled.getConnection().close();
+        } catch (SQLException e) {
+            logger.debug("Error while closing physical connection", e);
+        }
+    }
+
+    /**
+     * Evicts connections idle longer than the idle timeout, keeping at least the
+     * configured minimum, and reports connections held past the leak threshold.
+     */
+    public void housekeep() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+        while (oldestFirst.hasNext() && idle.size() > settings.getMinIdle()) {
+            PooledConnection pooled = oldestFirst.next();
+            if (now - pooled.getLastUsedAt() > settings.getIdleTimeoutMillis() && idle.removeLastOccurrence(pooled)) {
+                destroy(pooled);
+            }
+        }
+        long threshold = settings.getLeakDetectionThresholdMillis();
+        if (threshold > 0) {
+            for (PooledConnection pooled : leased) {
+                long heldFor = now - pooled.getBorrowedAt();
+                if (heldFor > threshold && !pooled.isLeakReported()) {
+                    pooled.markLeakReported();
+                    leaksDetected.incrementAndGet();
+                    logger.warn("Possible connection leak: connection held for " + heldFor + "ms", pooled.getBorrowSite());
+                }
+            }
+        }
+    }
+
+    void recordStatementCacheHit() {
+        statementCacheHits.incrementAndGet();
+    }
+
+    void recordStatementCacheMiss() {
+        statementCacheMisses.incrementAndGet();
+    }
+
+    void recordStatementCacheEviction() {
+        statementCacheEvictions.incrementAndGet();
+    }
+
+    /**
+     * The breaker that suspends DB calls while the database keeps failing, or null
+     * when none is configured.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Counts a timeout or lost connection towards opening the circuit breaker.
+     */
+    void recordDatabaseFailure() {
+        if (circuitBreaker != null) {
+            circuitBreaker.recordFailure();
+        }
+    }
+
+    public PoolStats getStats() {
+        return new PoolStats(leased.size(), idle.size(), settings.getMaxSize(), permits.getQueueLength(),
+                borrows.get(), timeouts.get(), created.get(), destroyed.get(), leaksDetected.get(), waitTimes.getCounts(),
+                statementCacheHits.get(), statementCacheMisses.get(), statementCacheEvictions.get());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (housekeeper != null) {
+            housekeeper.shutdownNow();
+        }
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+        logger.info("Connection pool closed ({})", getStats());
+    }
+}
@@ -4,23 +4,84 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+    private final String propertiesResource;
+
+    public DataBaseConfig() {
+        this(ApplicationProperties.DEFAULT_RESOURCE);
+    }
+
+    protected DataBaseConfig(String propertiesResource) {
+        this.propertiesResource = propertiesResource;
+    }
+
     public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod", "rootroot", "parking1!");
+        logger.debug("Create DB connection");
+        ConnectionPool pool = getPool();
+        Connection transactional = UnitOfWork.currentConnection(pool);
+        return transactional != null ? transactional : pool.getConnection();
+    }
+
+    public ConnectionPool getPool() throws ClassNotFoundException {
+        ConnectionPool pool = POOLS.get(propertiesResource);
+        if (pool != null) {
+            return pool;
+        }
+        synchronized (POOLS) {
+            pool = POOLS.get(propertiesResource);
+            if (pool == null) {
+                PoolSettings settings = PoolSettings.from(ApplicationProperties.load(propertiesResource));
+                Class.forName(settings.getDriverClassName());
+                Properties info = connectionProperties(settings);
+                pool = new ConnectionPool(settings, () -> DriverManager.getConnection(settings.getUrl(), info));
+                POOLS.put(propertiesResource, pool);
+            }
+            return pool;
+        }
+    }
+
+    private static Properties connectionProperties(PoolSettings settings) {
+        Properties info = new Properties();
+        if (settings.getUser() != null) {
+            info.setProperty("user", settings.getUser());
+        }
+        if (settings.getPassword() != null) {
+            info.setProperty("password", settings.getPassword());
+        }
+        // passed to the driver only: DriverManager.setLoginTimeout would change every driver in the JVM
+        if (settings.getConnectTimeoutSeconds() > 0 && settings.getUrl() != null && settings.getUrl().startsWith("jdbc:mysql:")) {
+            info.setProperty("connectTimeout", String.valueOf(settings.getConnectTimeoutSeconds() * 1000L));
+        }
+        return info;
+    }
+
+    public PoolStats getPoolStats() throws ClassNotFoundException {
+        return getPool().getStats();
+    }
+
+    public static void shutdown() {
+        synchronized (POOLS) {
+            for (ConnectionPool pool : POOLS.values()) {
+                pool.close();
+            }
+            POOLS.clear();
+        }
     }
 
     public void closeConnection(Connection con) {
-        if (con != null) {
+        if (con != null && !UnitOfWork.isBound(con)) {
             try {
                 con.close();
-                logger.info("Closing DB connection");
+                logger.debug("Closing DB connection");
             } catch (SQLException e) {
                 logger.error("Error while closing connection", e);
             }
@@ -31,7 +92,7 @@ public class DataBaseConfig {
         if (ps != null) {
             try {
                 ps.close();
-                logger.info("Closing Prepared Statement");
+                logger.debug("Closing Prepared Statement");
             } catch (SQLException e) {
                 logger.error("Error while closing prepared statement", e);
             }
@@ -42,7 +103,7 @@ public class DataBaseConfig {
         if (rs != null) {
             try {
                 rs.close();
-                logger.info("Closing Result Set");
+                logger.debug("Closing Result Set");
             } catch (SQLException e) {
                 logger.error("Error while closing result set", e);
             }
@@ -0,0 +1,194 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * Connection and pool sizing settings, read from the {@code db.*} keys.
+ */
+public class PoolSettings {
+
+    private String driverClassName = "com.mysql.cj.jdbc.Driver";
+    private String url;
+    private String user;
+    private String password;
+    private int maxSize = 10;
+    private int minIdle = 2;
+    private long maxWaitMillis = 5000;
+    private long idleTimeoutMillis = 600000;
+    private int validationTimeoutSeconds = 2;
+    private long validationIntervalMillis = 5000;
+    private long leakDetectionThresholdMillis = 30000;
+    private long housekeepingIntervalMillis = 30000;
+    private int statementCacheSize = 32;
+    private int connectTimeoutSeconds;
+    private int queryTimeoutSeconds;
+    private int breakerFailureThreshold;
+    private long breakerOpenMillis = 10000;
+
+    public static PoolSettings from(ApplicationProperties properties) {
+        PoolSettings settings = new PoolSettings();
+        settings.setDriverClassName(properties.getString("db.driver", settings.getDriverClassName()));
+        settings.setUrl(properties.getString("db.url", null));
+        settings.setUser(properties.getString("db.user", null));
+        settings.setPassword(properties.getString("db.password", null));
+        settings.setMaxSize(properties.getInt("db.pool.maxSize", settings.getMaxSize()));
+        settings.setMinIdle(properties.getInt("db.pool.minIdle", settings.getMinIdle()));
+        settings.setMaxWaitMillis(properties.getLong("db.pool.maxWaitMillis", settings.getMaxWaitMillis()));
+        settings.setIdleTimeoutMillis(properties.getLong("db.pool.idleTimeoutMillis", settings.getIdleTimeoutMillis()));
+        settings.setValidationTimeoutSeconds(properties.getInt("db.pool.validationTimeoutSeconds", settings.getValidationTimeoutSeconds()));
+        settings.setValidationIntervalMillis(properties.getLong("db.pool.validationIntervalMillis", settings.getValidationIntervalMillis()));
+        settings.setLeakDetectionThresholdMillis(properties.getLong("db.pool.leakDetectionThresholdMillis", settings.getLeakDetectionThresholdMillis()));
+        settings.setHousekeepingIntervalMillis(properties.getLong("db.pool.housekeepingIntervalMillis", settings.getHousekeepingIntervalMillis()));
+        settings.setStatementCacheSize(properties.getInt("db.pool.statementCacheSize", settings.getStatementCacheSize()));
+        settings.setConnectTimeoutSeconds(properties.getInt("db.connectTimeoutSeconds", settings.getConnectTimeoutSeconds()));
+        settings.setQueryTimeoutSeconds(properties.getInt("db.queryTimeoutSeconds", settings.getQueryTimeoutSeconds()));
+        settings.setBreakerFailureThreshold(properties.getInt("db.breaker.failureThreshold", settings.getBreakerFailureThreshold()));
+        settings.setBreakerOpenMillis(properties.getLong("db.breaker.openMillis", settings.getBreakerOpenMillis()));
+        return settings;
+    }
+
+    public String getDriverClassName() {
+        return driverClassName;
+    }
+
+    public void setDriverClassName(String driverClassName) {
+        this.driverClassName = driverClassName;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    public long getValidationIntervalMillis() {
+        return validationIntervalMillis;
+    }
+
+    public void setValidationIntervalMillis(long validationIntervalMillis) {
+        this.validationIntervalMillis = validationIntervalMillis;
+    }
+
+    public long getLeakDetectionThresholdMillis() {
+        return leakDetectionThresholdMillis;
+    }
+
+    public void setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis) {
+        this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+    }
+
+    public long getHousekeepingIntervalMillis() {
+        return housekeepingIntervalMillis;
+    }
+
+    public void setHousekeepingIntervalMillis(long housekeepingIntervalMillis) {
+        this.housekeepingIntervalMillis = housekeepingIntervalMillis;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Time allowed to open a physical connection, 0 for the driver's default.
+     * Passed to MySQL Connector/J as its {@code connectTimeout}; other drivers keep
+     * their default.
+     */
+    public int getConnectTimeoutSeconds() {
+        return connectTimeoutSeconds;
+    }
+
+    public void setConnectTimeoutSeconds(int connectTimeoutSeconds) {
+        this.connectTimeoutSeconds = connectTimeoutSeconds;
+    }
+
+    /**
+     * Query timeout set on every statement, 0 for none.
+     */
+    public int getQueryTimeoutSeconds() {
+        return queryTimeoutSeconds;
+    }
+
+    public void setQueryTimeoutSeconds(int queryTimeoutSeconds) {
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+    }
+
+    /**
+     * Consecutive DB failures that open the circuit breaker, 0 for no breaker.
+     */
+    public int getBreakerFailureThreshold() {
+        return breakerFailureThreshold;
+    }
+
+    public void setBreakerFailureThreshold(int breakerFailureThreshold) {
+        this.breakerFailureThreshold = breakerFailureThreshold;
+    }
+
+    public long getBreakerOpenMillis() {
+        return breakerOpenMillis;
+    }
+
+    public void setBreakerOpenMillis(long breakerOpenMillis) {
+        this.breakerOpenMillis = breakerOpenMillis;
+    }
+}
@@ -0,0 +1,120 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * Point-in-time view of a {@link ConnectionPool}, used to size the pool under load.
+ */
+public class PoolStats {
+
+    private final int active;
+    private final int idle;
+    private final int maxSize;
+    private final int waitingThreads;
+    private final long borrows;
+    private final long timeouts;
+    private final long created;
+    private final long destroyed;
+    private final long leaksDetected;
+    private final long[] waitTimeHistogram;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final long statementCacheEvictions;
+
+    public PoolStats(int active, int idle, int maxSize, int waitingThreads, long borrows, long timeouts,
+                     long created, long destroyed, long leaksDetected, long[] waitTimeHistogram,
+                     long statementCacheHits, long statementCacheMisses, long statementCacheEvictions) {
+        this.active = active;
+        this.idle = idle;
+        this.maxSize = maxSize;
+        this.waitingThreads = waitingThreads;
+        this.borrows = borrows;
+        this.timeouts = timeouts;
+        this.created = created;
+        this.destroyed = destroyed;
+        this.leaksDetected = leaksDetected;
+        this.waitTimeHistogram = waitTimeHistogram;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.statementCacheEvictions = statementCacheEvictions;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getTotal() {
+        return active + idle;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getWaitingThreads() {
+        return waitingThreads;
+    }
+
+    public long getBorrows() {
+        return borrows;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getDestroyed() {
+        return destroyed;
+    }
+
+    public long getLeaksDetected() {
+        return leaksDetected;
+    }
+
+    public long[] getWaitTimeHistogram() {
+        return waitTimeHistogram.clone();
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    public long getStatementCacheEvictions() {
+        return statementCacheEvictions;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("active=").append(active)
+                .append(", idle=").append(idle)
+                .append(", max=").append(maxSize)
+                .append(", waiting=").append(waitingThreads)
+                .append(", borrows=").append(borrows)
+                .append(", timeouts=").append(timeouts)
+                .append(", created=").append(created)
+                .append(", destroyed=").append(destroyed)
+                .append(", leaks=").append(leaksDetected)
+                .append(", waitTime={");
+        for (int i = 0; i < waitTimeHistogram.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(WaitTimeHistogram.bucketLabel(i)).append('=').append(waitTimeHistogram[i]);
+        }
+        sb.append("}, statementCache={hits=").append(statementCacheHits)
+                .append(", misses=").append(statementCacheMisses)
+                .append(", evictions=").append(statementCacheEvictions);
+        return sb.append('}').toString();
+    }
+}
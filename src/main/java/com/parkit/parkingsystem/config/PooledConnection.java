@@ -0,0 +1,217 @@
+package com.parkit.parkingsystem.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+/**
+ * A physical connection owned by a {@link ConnectionPool}, with the bookkeeping
+ * needed for validation, idle eviction and leak detection.
+ */
+class PooledConnection {
+
+    private static final String CONNECTION_EXCEPTION_SQL_STATE = "08";
+
+    private final Connection connection;
+    private final StatementCache statementCache;
+    private final int queryTimeoutSeconds;
+    private volatile long lastUsedAt;
+    private volatile long lastValidatedAt;
+    private volatile long borrowedAt;
+    private volatile Throwable borrowSite;
+    private volatile boolean leakReported;
+    private volatile boolean broken;
+    private volatile boolean failedDuringLease;
+
+    PooledConnection(Connection connection, StatementCache statementCache, int queryTimeoutSeconds) {
+        this.connection = connection;
+        this.statementCache = statementCache;
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+        this.lastUsedAt = System.currentTimeMillis();
+        this.lastValidatedAt = lastUsedAt;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    long getLastValidatedAt() {
+        return lastValidatedAt;
+    }
+
+    void markValidated() {
+        lastValidatedAt = System.currentTimeMillis();
+    }
+
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    Throwable getBorrowSite() {
+        return borrowSite;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void markLeakReported() {
+        leakReported = true;
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    /**
+     * Tells whether a statement on this lease lost the connection or timed out.
+     */
+    boolean hasFailedDuringLease() {
+        return failedDuringLease;
+    }
+
+    void lease(boolean captureBorrowSite) {
+        borrowedAt = System.currentTimeMillis();
+        borrowSite = captureBorrowSite ? new Throwable("Connection borrowed here") : null;
+        leakReported = false;
+        failedDuringLease = false;
+    }
+
+    /**
+     * Puts the connection back into a clean auto-commit state. Returns false when
+     * it cannot be reused and must be discarded.
+     */
+    boolean reset() {
+        if (broken) {
+            return false;
+        }
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            lastUsedAt = System.currentTimeMillis();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    Connection newHandle(ConnectionPool pool) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Handle(pool));
+    }
+
+    /**
+     * Marks the connection broken when the failure lost it, and tells the pool about
+     * failures that mean the database is unwell rather than a bad statement.
+     */
+    private void inspect(Throwable failure, ConnectionPool pool) {
+        if (failure instanceof SQLException) {
+            String sqlState = ((SQLException) failure).getSQLState();
+            boolean connectionLost = sqlState != null && sqlState.startsWith(CONNECTION_EXCEPTION_SQL_STATE);
+            if (connectionLost) {
+                broken = true;
+            }
+            if (connectionLost || failure instanceof SQLTimeoutException) {
+                failedDuringLease = true;
+                pool.recordDatabaseFailure();
+            }
+        }
+    }
+
+    /**
+     * Applies the query timeout to a statement just created, and when the pool has a
+     * circuit breaker, wraps it so that its failures are inspected too.
+     */
+    private Object watch(Method method, Object result, ConnectionPool pool) throws SQLException {
+        if (!(result instanceof Statement)) {
+            return result;
+        }
+        Statement statement = (Statement) result;
+        if (queryTimeoutSeconds > 0) {
+            statement.setQueryTimeout(queryTimeoutSeconds);
+        }
+        if (pool.getCircuitBreaker() == null) {
+            return statement;
+        }
+        return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{method.getReturnType()},
+                (proxy, statementMethod, args) -> {
+                    try {
+                        return statementMethod.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        inspect(e.getCause(), pool);
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Connection handed to callers for one lease; closing it returns the physical
+     * connection to the pool instead of closing it.
+     */
+    private class Handle implements InvocationHandler {
+
+        private final ConnectionPool pool;
+        private boolean released;
+
+        Handle(ConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + connection + "]";
+                default:
+                    break;
+            }
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                if (statementCache != null && "prepareStatement".equals(method.getName())) {
+                    Class<?>[] parameterTypes = method.getParameterTypes();
+                    if (parameterTypes.length == 1) {
+                        return watch(method, statementCache.prepare(connection, (String) args[0], Statement.NO_GENERATED_KEYS), pool);
+                    }
+                    if (parameterTypes.length == 2 && parameterTypes[1] == int.class) {
+                        return watch(method, statementCache.prepare(connection, (String) args[0], (Integer) args[1]), pool);
+                    }
+                }
+                return watch(method, method.invoke(connection, args), pool);
+            } catch (InvocationTargetException e) {
+                inspect(e.getCause(), pool);
+                throw e.getCause();
+            } catch (SQLException e) {
+                inspect(e, pool);
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Applies the ordered SQL scripts of {@code db/migration} at startup and records
+ * each one in {@code schema_version}. Script names follow {@code V<version>__<description>.sql}
+ * and a script that was already applied must never change: its CRC32 is checked on
+ * every run. Each script runs in its own transaction, but note that MySQL commits
+ * DDL statements implicitly, so a script that fails half-way must be fixed by hand.
+ */
+public class SchemaMigrator {
+
+    private static final Logger logger = LogManager.getLogger("SchemaMigrator");
+
+    public static final String LOCATION = "db/migration/";
+
+    // new scripts are appended here, in version order
+    static final List<String> SCRIPTS = Collections.unmodifiableList(Arrays.asList(
+            "V1__baseline_schema.sql",
+            "V2__query_indexes.sql",
+            "V3__ticket_history.sql",
+            "V4__normalize_plates.sql"));
+
+    private static final String CREATE_VERSION_TABLE = "create table if not exists schema_version("
+            + "VERSION int PRIMARY KEY, DESCRIPTION varchar(200) NOT NULL, CHECKSUM bigint NOT NULL, APPLIED_ON DATETIME NOT NULL)";
+    private static final String GET_APPLIED_VERSIONS = "select VERSION, CHECKSUM from schema_version";
+    private static final String SAVE_VERSION = "insert into schema_version(VERSION, DESCRIPTION, CHECKSUM, APPLIED_ON) values(?,?,?,?)";
+
+    private final DataBaseConfig dataBaseConfig;
+
+    public SchemaMigrator(DataBaseConfig dataBaseConfig) {
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    /**
+     * Applies every pending script and returns how many were applied.
+     *
+     * @throws SQLException when a script fails or an applied script was modified
+     */
+    public int migrate() throws SQLException, IOException, ClassNotFoundException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (Statement statement = con.createStatement()) {
+                statement.execute(CREATE_VERSION_TABLE);
+            }
+            Map<Integer, Long> applied = getAppliedVersions(con);
+            int count = 0;
+            for (String script : SCRIPTS) {
+                Migration migration = Migration.load(script);
+                Long checksum = applied.get(migration.version);
+                if (checksum == null) {
+                    apply(con, migration);
+                    count++;
+                } else if (checksum != migration.checksum) {
+                    throw new SQLException("Migration " + script + " was modified after it was applied");
+                }
+            }
+            logger.info("Schema is up to date, applied {} migration(s)", count);
+            return count;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private static Map<Integer, Long> getAppliedVersions(Connection con) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (PreparedStatement ps = con.prepareStatement(GET_APPLIED_VERSIONS);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+        return applied;
+    }
+
+    private static void apply(Connection con, Migration migration) throws SQLException {
+        logger.info("Applying migration V{} {}", migration.version, migration.description);
+        con.setAutoCommit(false);
+        try {
+            try (Statement statement = con.createStatement()) {
+                for (String sql : migration.statements) {
+                    statement.execute(sql);
+                }
+            }
+            try (PreparedStatement ps = con.prepareStatement(SAVE_VERSION)) {
+                ps.setInt(1, migration.version);
+                ps.setString(2, migration.description);
+                ps.setLong(3, migration.checksum);
+                ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                ps.execute();
+            }
+            con.commit();
+        } catch (SQLException e) {
+            con.rollback();
+            throw new SQLException("Migration V" + migration.version + " failed", e);
+        } finally {
+            con.setAutoCommit(true);
+        }
+    }
+
+    static final class Migration {
+        final int version;
+        final String description;
+        final long checksum;
+        final List<String> statements;
+
+        private Migration(int version, String description, long checksum, List<String> statements) {
+            this.version = version;
+            this.description = description;
+            this.checksum = checksum;
+            this.statements = statements;
+        }
+
+        static Migration load(String script) throws IOException {
+            int separator = script.indexOf("__");
+            if (!script.startsWith("V") || separator < 0 || !script.endsWith(".sql")) {
+                throw new IllegalArgumentException("Invalid migration name: " + script);
+            }
+            int version = Integer.parseInt(script.substring(1, separator));
+            String description = script.substring(separator + 2, script.length() - 4).replace('_', ' ');
+
+            CRC32 crc = new CRC32();
+            List<String> statements = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(LOCATION + script);
+            if (in == null) {
+                throw new IOException("Migration not found on classpath: " + LOCATION + script);
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    crc.update(line.getBytes(StandardCharsets.UTF_8));
+                    String trimmed = line.trim();
+                    if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                        continue;
+                    }
+                    current.append(line).append('\n');
+                    // statements end with a semicolon at the end of a line
+                    if (trimmed.endsWith(";")) {
+                        current.setLength(current.lastIndexOf(";"));
+                        statements.add(current.toString().trim());
+                        current.setLength(0);
+                    }
+                }
+            }
+            if (current.toString().trim().length() > 0) {
+                statements.add(current.toString().trim());
+            }
+            return new Migration(version, description, crc.getValue(), statements);
+        }
+    }
+}
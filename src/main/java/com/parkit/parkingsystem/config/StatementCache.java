@@ -0,0 +1,137 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by SQL text.
+ * Closing a cached statement clears its parameters and keeps it open for the next
+ * caller; it is only really closed when evicted or when its connection is destroyed.
+ */
+class StatementCache {
+
+    private static final Logger logger = LogManager.getLogger("StatementCache");
+
+    private final int maxSize;
+    private final ConnectionPool pool;
+    private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(int maxSize, ConnectionPool pool) {
+        this.maxSize = maxSize;
+        this.pool = pool;
+    }
+
+    synchronized PreparedStatement prepare(Connection connection, String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "keys:" + sql : sql;
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            pool.recordStatementCacheHit();
+            cached.inUse = true;
+            return cached.proxy;
+        }
+        pool.recordStatementCacheMiss();
+        PreparedStatement statement = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS
+                ? connection.prepareStatement(sql, autoGeneratedKeys)
+                : connection.prepareStatement(sql);
+        if (cached != null) {
+            // the cached copy is still open on this connection, hand out a plain one
+            return statement;
+        }
+        cached = new CachedStatement(statement);
+        statements.put(key, cached);
+        evictEldest();
+        return cached.proxy;
+    }
+
+    private void evictEldest() {
+        Iterator<Map.Entry<String, CachedStatement>> eldestFirst = statements.entrySet().iterator();
+        while (statements.size() > maxSize && eldestFirst.hasNext()) {
+            CachedStatement eldest = eldestFirst.next().getValue();
+            eldestFirst.remove();
+            pool.recordStatementCacheEviction();
+            eldest.evicted = true;
+            if (!eldest.inUse) {
+                eldest.closeQuietly();
+            }
+        }
+    }
+
+    private synchronized void giveBack(CachedStatement cached) {
+        cached.inUse = false;
+        if (cached.evicted) {
+            cached.closeQuietly();
+            return;
+        }
+        try {
+            cached.statement.clearParameters();
+            // a failed executeBatch can leave rows behind for the next borrower
+            cached.statement.clearBatch();
+        } catch (SQLException e) {
+            statements.values().remove(cached);
+            cached.closeQuietly();
+        }
+    }
+
+    private class CachedStatement implements InvocationHandler {
+
+        private final PreparedStatement statement;
+        private final PreparedStatement proxy;
+        private boolean inUse = true;
+        private boolean evicted;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (inUse) {
+                        giveBack(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return !inUse || statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached[" + statement + "]";
+                default:
+                    break;
+            }
+            if (!inUse) {
+                throw new SQLException("Statement has already been closed");
+            }
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.debug("Error while closing cached statement", e);
+            }
+        }
+    }
+}
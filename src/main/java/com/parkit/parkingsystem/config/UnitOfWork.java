@@ -0,0 +1,197 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a block of DAO calls on one connection and one transaction per pool.
+ * While a unit of work is active on the current thread, {@link DataBaseConfig}
+ * hands every DAO the same connection (opened lazily with auto-commit off) and
+ * {@link DataBaseConfig#closeConnection} leaves it open. The transaction is
+ * committed once at the end, or rolled back when the block throws or a DAO
+ * called {@link #markRollbackOnly()}. Nested calls join the outer unit of work.
+ */
+public final class UnitOfWork {
+
+    private static final Logger logger = LogManager.getLogger("UnitOfWork");
+
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final Map<ConnectionPool, Connection> connections = new IdentityHashMap<>();
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private final List<Runnable> afterRollback = new ArrayList<>();
+    private boolean rollbackOnly;
+
+    public interface Work<T> {
+        T execute() throws Exception;
+    }
+
+    private UnitOfWork() {
+    }
+
+    public static <T> T execute(Work<T> work) throws Exception {
+        return run(work, true);
+    }
+
+    /**
+     * Like {@link #execute}, except that a block which marked the unit of work
+     * rollback-only, having already reported the failure in its result, gets that
+     * result back once the transaction is rolled back instead of an exception.
+     */
+    public static <T> T executeOrRollback(Work<T> work) throws Exception {
+        return run(work, false);
+    }
+
+    private static <T> T run(Work<T> work, boolean throwWhenRollbackOnly) throws Exception {
+        UnitOfWork current = CURRENT.get();
+        if (current != null) {
+            try {
+                return work.execute();
+            } catch (Exception e) {
+                current.rollbackOnly = true;
+                throw e;
+            }
+        }
+        UnitOfWork unitOfWork = new UnitOfWork();
+        CURRENT.set(unitOfWork);
+        try {
+            T result;
+            try {
+                result = work.execute();
+            } catch (Exception e) {
+                unitOfWork.rollback();
+                throw e;
+            }
+            if (unitOfWork.rollbackOnly) {
+                unitOfWork.rollback();
+                if (throwWhenRollbackOnly) {
+                    throw new SQLException("Unit of work was marked rollback-only and has been rolled back");
+                }
+                return result;
+            }
+            try {
+                unitOfWork.commit();
+            } catch (SQLException e) {
+                unitOfWork.rollback();
+                throw e;
+            }
+            unitOfWork.runAfterCommit();
+            return result;
+        } finally {
+            CURRENT.remove();
+            unitOfWork.release();
+        }
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Makes the active unit of work roll back instead of committing. Does nothing
+     * outside a unit of work, where each statement is already auto-committed.
+     */
+    public static void markRollbackOnly() {
+        UnitOfWork current = CURRENT.get();
+        if (current != null) {
+            current.rollbackOnly = true;
+        }
+    }
+
+    /**
+     * Runs the action once the active unit of work commits, or right away when
+     * there is none. Used to keep in-memory caches in step with the database.
+     */
+    public static void afterCommit(Runnable action) {
+        UnitOfWork current = CURRENT.get();
+        if (current == null) {
+            action.run();
+        } else {
+            current.afterCommit.add(action);
+        }
+    }
+
+    /**
+     * Runs the action if the active unit of work rolls back. Outside a unit of
+     * work there is nothing to undo and the action is dropped.
+     */
+    public static void afterRollback(Runnable action) {
+        UnitOfWork current = CURRENT.get();
+        if (current != null) {
+            current.afterRollback.add(action);
+        }
+    }
+
+    static Connection currentConnection(ConnectionPool pool) throws SQLException {
+        UnitOfWork current = CURRENT.get();
+        if (current == null) {
+            return null;
+        }
+        Connection connection = current.connections.get(pool);
+        if (connection == null) {
+            connection = pool.getConnection();
+            try {
+                connection.setAutoCommit(false);
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+            current.connections.put(pool, connection);
+        }
+        return connection;
+    }
+
+    static boolean isBound(Connection connection) {
+        UnitOfWork current = CURRENT.get();
+        return current != null && current.connections.containsValue(connection);
+    }
+
+    private void commit() throws SQLException {
+        for (Connection connection : connections.values()) {
+            connection.commit();
+        }
+    }
+
+    private void runAfterCommit() {
+        for (Runnable action : afterCommit) {
+            action.run();
+        }
+    }
+
+    private void rollback() {
+        for (Connection connection : connections.values()) {
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back transaction", e);
+            }
+        }
+        for (Runnable action : afterRollback) {
+            action.run();
+        }
+    }
+
+    private void release() {
+        for (Connection connection : connections.values()) {
+            try {
+                // the transaction is already over, so this only switches the mode back before pooling
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.error("Error while resetting auto-commit", e);
+            }
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.error("Error while closing connection", e);
+            }
+        }
+        connections.clear();
+    }
+}
@@ -0,0 +1,43 @@
+package com.parkit.parkingsystem.config;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket histogram of the time callers spent waiting for a pooled connection.
+ */
+public class WaitTimeHistogram {
+
+    private static final long[] UPPER_BOUNDS_MICROS = {100, 1000, 5000, 10000, 50000, 100000, 500000, 1000000, Long.MAX_VALUE};
+
+    private final AtomicLongArray counts = new AtomicLongArray(UPPER_BOUNDS_MICROS.length);
+
+    public void record(long waitNanos) {
+        long micros = waitNanos / 1000;
+        for (int i = 0; i < UPPER_BOUNDS_MICROS.length; i++) {
+            if (micros < UPPER_BOUNDS_MICROS[i]) {
+                counts.incrementAndGet(i);
+                return;
+            }
+        }
+    }
+
+    public long[] getCounts() {
+        long[] snapshot = new long[counts.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    public static String bucketLabel(int bucket) {
+        long bound = UPPER_BOUNDS_MICROS[bucket];
+        if (bound == Long.MAX_VALUE) {
+            return ">=" + formatMicros(UPPER_BOUNDS_MICROS[bucket - 1]);
+        }
+        return "<" + formatMicros(bound);
+    }
+
+    private static String formatMicros(long micros) {
+        return micros < 1000 ? micros + "us" : (micros / 1000) + "ms";
+    }
+}
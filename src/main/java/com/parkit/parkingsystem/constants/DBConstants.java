@@ -3,12 +3,30 @@ package com.parkit.parkingsystem.constants;
 public class DBConstants {
 
     public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
+    public static final String GET_PARKING_SPOTS = "select PARKING_NUMBER, AVAILABLE, TYPE from parking";
+    public static final String COUNT_PARKING_SPOTS = "select count(*), sum(case when AVAILABLE then 1 else 0 end) from parking where TYPE = ?";
+    public static final String CLAIM_NEXT_PARKING_SPOT = "update parking set AVAILABLE = false, PARKING_NUMBER = LAST_INSERT_ID(PARKING_NUMBER) where AVAILABLE = true and TYPE = ? order by PARKING_NUMBER limit 1";
+    public static final String CLAIM_PARKING_SPOT = "update parking set AVAILABLE = false where PARKING_NUMBER = ? and AVAILABLE = true";
     public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
     public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
     public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
     public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? and t.OUT_TIME IS NULL order by t.IN_TIME  limit 1";
+    public static final String GET_OPEN_TICKETS = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, t.VEHICLE_REG_NUMBER from ticket t,parking p where p.parking_number = t.parking_number and t.OUT_TIME IS NULL order by t.IN_TIME";
     public static final String GET_UPDATED_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.OUT_TIME desc limit 1";
     public static final String GET_RECURRENT = "select ID from ticket where VEHICLE_REG_NUMBER = ? and OUT_TIME is not null ";
+    public static final String GET_RECURRENT_PLATES = "select VEHICLE_REG_NUMBER from ticket where OUT_TIME is not null union select VEHICLE_REG_NUMBER from ticket_history";
+    public static final String GET_RECURRENT_HISTORY = "select ID from ticket_history where VEHICLE_REG_NUMBER = ? limit 1";
+    public static final String GET_UPDATED_TICKET_HISTORY = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket_history t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.OUT_TIME desc limit 1";
+    public static final String ARCHIVE_TICKETS = "insert into ticket_history(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket where OUT_TIME is not null and OUT_TIME < ? order by OUT_TIME, ID limit ?";
+    public static final String GET_TICKET_BY_IN_TIME = "select ID, OUT_TIME from ticket where VEHICLE_REG_NUMBER = ? and IN_TIME = ? union all select ID, OUT_TIME from ticket_history where VEHICLE_REG_NUMBER = ? and IN_TIME = ?";
+    public static final String GET_CLOSED_TICKET_BY_ID = "select ID from ticket where ID = ? and OUT_TIME is not null union all select ID from ticket_history where ID = ?";
+    public static final String CLOSE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=? and OUT_TIME is null";
+    public static final String CLOSE_TICKET_BY_IN_TIME = "update ticket set PRICE=?, OUT_TIME=? where VEHICLE_REG_NUMBER=? and IN_TIME=? and OUT_TIME is null";
+    public static final String DELETE_ARCHIVED_TICKETS = "delete from ticket where OUT_TIME < ? and exists (select 1 from ticket_history h where h.ID = ticket.ID)";
+    public static final String GET_CLOSED_TICKETS_TO_REBILL = "select t.ID, t.PARKING_NUMBER, p.TYPE, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME, (exists (select 1 from ticket r where r.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and r.OUT_TIME < t.OUT_TIME) or exists (select 1 from ticket_history h where h.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and h.OUT_TIME < t.OUT_TIME)) from ticket t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.OUT_TIME >= ? and t.OUT_TIME < ? order by t.OUT_TIME, t.ID";
+    public static final String GET_HISTORY_TICKETS_TO_REBILL = "select t.ID, t.PARKING_NUMBER, p.TYPE, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME, (exists (select 1 from ticket r where r.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and r.OUT_TIME < t.OUT_TIME) or exists (select 1 from ticket_history h where h.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and h.OUT_TIME < t.OUT_TIME)) from ticket_history t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.OUT_TIME >= ? and t.OUT_TIME < ? order by t.OUT_TIME, t.ID";
+    public static final String REBILL_TICKET = "update ticket set PRICE=? where ID=? and OUT_TIME is not null";
+    public static final String REBILL_HISTORY_TICKET = "update ticket_history set PRICE=? where ID=?";
 
 
 }
@@ -0,0 +1,38 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs {@link ParkingSpotRepository} calls on an executor and returns futures.
+ * Like {@link AsyncTicketRepository}, calls run outside the caller's unit of work.
+ */
+public class AsyncParkingSpotRepository {
+
+    private final ParkingSpotRepository parkingSpotRepository;
+    private final Executor executor;
+
+    public AsyncParkingSpotRepository(ParkingSpotRepository parkingSpotRepository, Executor executor) {
+        this.parkingSpotRepository = parkingSpotRepository;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Integer> getNextAvailableSlot(ParkingType parkingType) {
+        return CompletableFuture.supplyAsync(() -> parkingSpotRepository.getNextAvailableSlot(parkingType), executor);
+    }
+
+    public CompletableFuture<Integer> claimNextAvailableSlot(ParkingType parkingType) {
+        return CompletableFuture.supplyAsync(() -> parkingSpotRepository.claimNextAvailableSlot(parkingType), executor);
+    }
+
+    public CompletableFuture<Boolean> updateParking(ParkingSpot parkingSpot) {
+        return CompletableFuture.supplyAsync(() -> parkingSpotRepository.updateParking(parkingSpot), executor);
+    }
+
+    public ParkingSpotRepository getParkingSpotRepository() {
+        return parkingSpotRepository;
+    }
+}
@@ -0,0 +1,51 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs {@link TicketRepository} calls on an executor and returns futures, so that
+ * independent lookups can overlap. A call runs on another thread, hence outside
+ * any {@link com.parkit.parkingsystem.config.UnitOfWork} of the caller: use it for
+ * reads, or for writes that may commit on their own.
+ */
+public class AsyncTicketRepository {
+
+    private final TicketRepository ticketRepository;
+    private final Executor executor;
+
+    public AsyncTicketRepository(TicketRepository ticketRepository, Executor executor) {
+        this.ticketRepository = ticketRepository;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Boolean> saveTicket(Ticket ticket) {
+        return CompletableFuture.supplyAsync(() -> ticketRepository.saveTicket(ticket), executor);
+    }
+
+    public CompletableFuture<Ticket> getTicket(String vehicleRegNumber) {
+        return CompletableFuture.supplyAsync(() -> ticketRepository.getTicket(vehicleRegNumber), executor);
+    }
+
+    public CompletableFuture<Ticket> getTicketById(String vehicleRegNumber) {
+        return CompletableFuture.supplyAsync(() -> ticketRepository.getTicketById(vehicleRegNumber), executor);
+    }
+
+    public CompletableFuture<Boolean> isReccurent(String vehicleRegNumber) {
+        return CompletableFuture.supplyAsync(() -> ticketRepository.isReccurent(vehicleRegNumber), executor);
+    }
+
+    public CompletableFuture<Boolean> updateTicket(Ticket ticket) {
+        return CompletableFuture.supplyAsync(() -> ticketRepository.updateTicket(ticket), executor);
+    }
+
+    public CompletableFuture<Boolean> isVehicleInside(String vehicleRegNumber) {
+        return CompletableFuture.supplyAsync(() -> ticketRepository.isVehicleInside(vehicleRegNumber), executor);
+    }
+
+    public TicketRepository getTicketRepository() {
+        return ticketRepository;
+    }
+}
@@ -0,0 +1,74 @@
+package com.parkit.parkingsystem.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the async DAO facades. A DAO call spends nearly all its time
+ * waiting on JDBC, so one virtual thread per call is the cheapest option. The
+ * code is compiled for Java 8, so virtual threads are looked up by reflection;
+ * on older runtimes a bounded pool of daemon platform threads is used instead.
+ */
+public final class DaoExecutors {
+
+    private static final Logger logger = LogManager.getLogger("DaoExecutors");
+
+    private DaoExecutors() {
+    }
+
+    /**
+     * Returns a virtual-thread-per-task executor when the runtime has one, otherwise
+     * a pool of at most {@code maxPlatformThreads} threads with an unbounded queue.
+     */
+    public static ExecutorService create(int maxPlatformThreads) {
+        return create(maxPlatformThreads, "dao-async");
+    }
+
+    /**
+     * Same as {@link #create(int)}, with platform threads named
+     * {@code <threadNamePrefix>-N}. Also used for other tasks that mostly wait, such
+     * as HTTP requests.
+     */
+    public static ExecutorService create(int maxPlatformThreads, String threadNamePrefix) {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        if (executor != null) {
+            logger.debug("{} tasks run on virtual threads", threadNamePrefix);
+            return executor;
+        }
+        logger.debug("Virtual threads are not available, {} tasks run on {} platform threads", threadNamePrefix, maxPlatformThreads);
+        return newPlatformPool(maxPlatformThreads, threadNamePrefix);
+    }
+
+    static ExecutorService newPlatformPool(int maxThreads, String threadNamePrefix) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("maxThreads must be at least 1");
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // missing before Java 21, or present as a preview feature that is not enabled
+            return null;
+        }
+    }
+}
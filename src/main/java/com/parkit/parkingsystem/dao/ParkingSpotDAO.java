@@ -1,6 +1,8 @@
 package com.parkit.parkingsystem.dao;
 
+import com.parkit.parkingsystem.cache.SpotAvailabilityIndex;
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.ParkingSpot;
@@ -10,13 +12,62 @@ import org.apache.logging.log4j.Logger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
-public class ParkingSpotDAO {
+public class ParkingSpotDAO implements ParkingSpotRepository {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
 
     public  DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    private final SpotAvailabilityIndex availabilityIndex = new SpotAvailabilityIndex();
+
+    public boolean loadAvailabilityIndex(){
+        try {
+            List<ParkingSpot> parkingSpots = getParkingSpots();
+            availabilityIndex.load(parkingSpots);
+            logger.info("Loaded availability of {} parking spots", parkingSpots.size());
+            return true;
+        }catch (Exception ex){
+            logger.error("Error loading parking spot availability",ex);
+        }
+        return false;
+    }
+
+    /**
+     * Reads every spot of the lot with its current availability.
+     */
+    public List<ParkingSpot> getParkingSpots() throws SQLException, ClassNotFoundException {
+        Connection con = null;
+        ResultSet rs  = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.GET_PARKING_SPOTS);
+            rs = ps.executeQuery();
+            List<ParkingSpot> parkingSpots = new ArrayList<>();
+            while(rs.next()){
+                parkingSpots.add(new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(3)), rs.getBoolean(2)));
+            }
+            return parkingSpots;
+        }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    public SpotAvailabilityIndex getAvailabilityIndex() {
+        return availabilityIndex;
+    }
+
+    @Override
     public int getNextAvailableSlot(ParkingType parkingType){
+        if(availabilityIndex.isLoaded()){
+            return availabilityIndex.getLowestAvailable(parkingType);
+        }
         Connection con = null;
         ResultSet rs  = null;
         PreparedStatement ps = null;
@@ -40,6 +91,66 @@ public class ParkingSpotDAO {
         return result;
     }
 
+    @Override
+    public int claimNextAvailableSlot(ParkingType parkingType){
+        if(availabilityIndex.isLoaded()){
+            return claimIndexedSlot(parkingType);
+        }
+        Connection con = null;
+        ResultSet rs  = null;
+        PreparedStatement ps = null;
+        int result=-1;
+        try {
+            con = dataBaseConfig.getConnection();
+            // LAST_INSERT_ID(expr) makes MySQL return the claimed number with the update count
+            ps = con.prepareStatement(DBConstants.CLAIM_NEXT_PARKING_SPOT, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, parkingType.toString());
+            if(ps.executeUpdate() == 1){
+                rs = ps.getGeneratedKeys();
+                result = rs.next() ? rs.getInt(1) : -1;
+            }else{
+                result = 0;
+            }
+        }catch (Exception ex){
+            logger.error("Error claiming next available slot",ex);
+            UnitOfWork.markRollbackOnly();
+        }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+        return result;
+    }
+
+    private int claimIndexedSlot(ParkingType parkingType){
+        int parkingNumber;
+        while((parkingNumber = availabilityIndex.claimLowestAvailable(parkingType)) > 0){
+            Connection con = null;
+            PreparedStatement ps = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.CLAIM_PARKING_SPOT);
+                ps.setInt(1, parkingNumber);
+                if(ps.executeUpdate() == 1){
+                    ParkingSpot released = new ParkingSpot(parkingNumber, parkingType, true);
+                    UnitOfWork.afterRollback(() -> availabilityIndex.setAvailable(released));
+                    return parkingNumber;
+                }
+                // taken by another writer, the index now agrees with the DB so try the next one
+            }catch (Exception ex){
+                logger.error("Error claiming next available slot",ex);
+                UnitOfWork.markRollbackOnly();
+                availabilityIndex.setAvailable(new ParkingSpot(parkingNumber, parkingType, true));
+                return -1;
+            }finally {
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+        }
+        return 0;
+    }
+
+    @Override
     public boolean updateParking(ParkingSpot parkingSpot){
         //update the availability fo that parking slot
         Connection con = null;
@@ -52,8 +163,13 @@ public class ParkingSpotDAO {
             ps.setInt(2, parkingSpot.getId());
             int updateRowCount = ps.executeUpdate();
             result = updateRowCount == 1;
+            if(result){
+                ParkingSpot updated = new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable());
+                UnitOfWork.afterCommit(() -> availabilityIndex.setAvailable(updated));
+            }
         }catch (Exception ex){
             logger.error("Error updating parking info",ex);
+            UnitOfWork.markRollbackOnly();
         }finally {
             dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
@@ -61,4 +177,43 @@ public class ParkingSpotDAO {
         return result;
     }
 
+    @Override
+    public int getAvailableCount(ParkingType parkingType){
+        if(availabilityIndex.isLoaded()){
+            return availabilityIndex.getAvailableCount(parkingType);
+        }
+        return countSpots(parkingType, 2);
+    }
+
+    @Override
+    public int getCapacity(ParkingType parkingType){
+        if(availabilityIndex.isLoaded()){
+            return availabilityIndex.getCapacity(parkingType);
+        }
+        return countSpots(parkingType, 1);
+    }
+
+    private int countSpots(ParkingType parkingType, int column){
+        Connection con = null;
+        ResultSet rs  = null;
+        PreparedStatement ps = null;
+        int result=-1;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.COUNT_PARKING_SPOTS);
+            ps.setString(1, parkingType.toString());
+            rs = ps.executeQuery();
+            if(rs.next()){
+                result = rs.getInt(column);
+            }
+        }catch (Exception ex){
+            logger.error("Error counting parking spots",ex);
+        }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+        return result;
+    }
+
 }
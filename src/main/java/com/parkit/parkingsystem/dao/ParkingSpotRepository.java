@@ -0,0 +1,36 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Storage of parking spots used by {@link com.parkit.parkingsystem.service.ParkingService}.
+ * Implemented over JDBC by {@link ParkingSpotDAO} and in memory by
+ * {@link com.parkit.parkingsystem.dao.memory.InMemoryParkingSpotRepository}.
+ */
+public interface ParkingSpotRepository {
+
+    /**
+     * Returns the lowest available spot number of the type, 0 when the type is
+     * full, or -1 on error. Nothing is reserved.
+     */
+    int getNextAvailableSlot(ParkingType parkingType);
+
+    /**
+     * Atomically marks the lowest free spot of the type as taken. Returns the spot
+     * number, 0 when the type is full, or -1 on error.
+     */
+    int claimNextAvailableSlot(ParkingType parkingType);
+
+    boolean updateParking(ParkingSpot parkingSpot);
+
+    /**
+     * Returns the number of free spots of the type, or -1 on error.
+     */
+    int getAvailableCount(ParkingType parkingType);
+
+    /**
+     * Returns the number of spots of the type, free or not, or -1 on error.
+     */
+    int getCapacity(ParkingType parkingType);
+}
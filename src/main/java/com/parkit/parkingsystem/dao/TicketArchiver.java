@@ -0,0 +1,118 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves closed tickets older than {@code maxAgeMillis} from {@code ticket} to
+ * {@code ticket_history}, so the hot table only holds open and recent tickets.
+ * Each batch of at most {@code batchSize} rows is copied and deleted in one unit
+ * of work, which keeps lock times short and never loses or duplicates a ticket.
+ */
+public class TicketArchiver implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("TicketArchiver");
+
+    private final DataBaseConfig dataBaseConfig;
+    private final long maxAgeMillis;
+    private final int batchSize;
+    private ScheduledExecutorService scheduler;
+
+    public TicketArchiver(DataBaseConfig dataBaseConfig, long maxAgeMillis, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.dataBaseConfig = dataBaseConfig;
+        this.maxAgeMillis = maxAgeMillis;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Archives in the background every {@code intervalMillis}, starting right away.
+     */
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ticket-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::archiveOldTickets, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Archives every ticket closed more than {@code maxAgeMillis} ago and returns how
+     * many were moved. Errors are logged and end the run; the next run resumes.
+     */
+    public int archiveOldTickets() {
+        return archive(new Date(System.currentTimeMillis() - maxAgeMillis));
+    }
+
+    public int archive(Date closedBefore) {
+        int total = 0;
+        try {
+            int moved;
+            do {
+                moved = archiveBatch(closedBefore);
+                total += moved;
+            } while (moved == batchSize);
+            if (total > 0) {
+                logger.info("Archived {} tickets closed before {}", total, closedBefore);
+            }
+        } catch (Exception ex) {
+            logger.error("Error archiving tickets", ex);
+        }
+        return total;
+    }
+
+    private int archiveBatch(Date closedBefore) throws Exception {
+        Timestamp cutoff = new Timestamp(closedBefore.getTime());
+        return UnitOfWork.execute(() -> {
+            Connection con = null;
+            PreparedStatement copy = null;
+            PreparedStatement delete = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                copy = con.prepareStatement(DBConstants.ARCHIVE_TICKETS);
+                copy.setTimestamp(1, cutoff);
+                copy.setInt(2, batchSize);
+                int copied = copy.executeUpdate();
+                if (copied == 0) {
+                    return 0;
+                }
+                delete = con.prepareStatement(DBConstants.DELETE_ARCHIVED_TICKETS);
+                delete.setTimestamp(1, cutoff);
+                int deleted = delete.executeUpdate();
+                if (deleted != copied) {
+                    throw new IllegalStateException("Copied " + copied + " tickets to history but deleted " + deleted);
+                }
+                return copied;
+            } finally {
+                dataBaseConfig.closePreparedStatement(copy);
+                dataBaseConfig.closePreparedStatement(delete);
+                dataBaseConfig.closeConnection(con);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
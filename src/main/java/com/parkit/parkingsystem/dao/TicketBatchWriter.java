@@ -0,0 +1,234 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Group-commit writer for tickets. Inserts and updates submitted by any number of
+ * threads are queued, and a single writer thread sends them as JDBC batches in one
+ * transaction, once {@code maxBatchSize} writes are waiting or {@code maxDelayMillis}
+ * after the first one arrived. Each caller gets a future that completes with true
+ * after the commit, or exceptionally when the batch could not be written.
+ * Inserts of a batch run before its updates, and new tickets get their generated ID.
+ */
+public class TicketBatchWriter implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("TicketBatchWriter");
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final DataBaseConfig dataBaseConfig;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    private volatile boolean closed;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+
+    public TicketBatchWriter(DataBaseConfig dataBaseConfig, int maxBatchSize, long maxDelayMillis) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.dataBaseConfig = dataBaseConfig;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMillis));
+        this.writerThread = new Thread(this::run, "ticket-batch-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    public CompletableFuture<Boolean> submitSave(Ticket ticket) {
+        return submit(new PendingWrite(ticket, true));
+    }
+
+    public CompletableFuture<Boolean> submitUpdate(Ticket ticket) {
+        return submit(new PendingWrite(ticket, false));
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    /**
+     * Stops accepting writes, flushes what is already queued and waits for the
+     * writer thread to finish.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Boolean> submit(PendingWrite write) {
+        if (closed) {
+            write.future.completeExceptionally(new IllegalStateException("Ticket batch writer is closed"));
+            return write.future;
+        }
+        queue.add(write);
+        return write.future;
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                closed = true;
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error in ticket batch writer", e);
+                fail(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+        List<PendingWrite> rejected = new ArrayList<>();
+        queue.drainTo(rejected);
+        fail(rejected, new IllegalStateException("Ticket batch writer is closed"));
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        Connection con = null;
+        PreparedStatement insert = null;
+        PreparedStatement update = null;
+        ResultSet keys = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            insert = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
+            update = con.prepareStatement(DBConstants.UPDATE_TICKET);
+            List<PendingWrite> inserts = new ArrayList<>();
+            List<PendingWrite> updates = new ArrayList<>();
+            for (PendingWrite write : batch) {
+                try {
+                    if (write.insert) {
+                        TicketDAO.bindSaveTicket(insert, write.ticket);
+                        insert.addBatch();
+                        inserts.add(write);
+                    } else {
+                        TicketDAO.bindUpdateTicket(update, write.ticket);
+                        update.addBatch();
+                        updates.add(write);
+                    }
+                } catch (RuntimeException e) {
+                    // an incomplete ticket only fails its own caller, not the whole batch
+                    write.future.completeExceptionally(e);
+                }
+            }
+            if (!inserts.isEmpty()) {
+                insert.executeBatch();
+                keys = insert.getGeneratedKeys();
+                for (PendingWrite write : inserts) {
+                    if (keys.next()) {
+                        write.ticket.setId(keys.getInt(1));
+                    }
+                }
+            }
+            if (!updates.isEmpty()) {
+                update.executeBatch();
+            }
+            con.commit();
+            batches.increment();
+            writes.add(inserts.size() + updates.size());
+            complete(inserts);
+            complete(updates);
+        } catch (Exception ex) {
+            logger.error("Error writing ticket batch", ex);
+            rollback(con);
+            fail(batch, ex);
+        } finally {
+            dataBaseConfig.closeResultSet(keys);
+            dataBaseConfig.closePreparedStatement(insert);
+            dataBaseConfig.closePreparedStatement(update);
+            resetAutoCommit(con);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private static void complete(List<PendingWrite> writes) {
+        for (PendingWrite write : writes) {
+            write.future.complete(Boolean.TRUE);
+        }
+    }
+
+    private static void fail(List<PendingWrite> writes, Exception cause) {
+        for (PendingWrite write : writes) {
+            write.future.completeExceptionally(cause);
+        }
+    }
+
+    private static void rollback(Connection con) {
+        if (con != null) {
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back ticket batch", e);
+            }
+        }
+    }
+
+    private static void resetAutoCommit(Connection con) {
+        if (con != null) {
+            try {
+                con.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.error("Error while resetting auto-commit", e);
+            }
+        }
+    }
+
+    private static final class PendingWrite {
+        private final Ticket ticket;
+        private final boolean insert;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        private PendingWrite(Ticket ticket, boolean insert) {
+            this.ticket = ticket;
+            this.insert = insert;
+        }
+    }
+}
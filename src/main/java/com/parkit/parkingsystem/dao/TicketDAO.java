@@ -1,6 +1,9 @@
 package com.parkit.parkingsystem.dao;
 
+import com.parkit.parkingsystem.cache.OpenTicketIndex;
+import com.parkit.parkingsystem.cache.RecurringCustomerFilter;
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.ParkingSpot;
@@ -11,31 +14,167 @@ import org.apache.logging.log4j.Logger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
-public class TicketDAO {
+public class TicketDAO implements TicketRepository {
 
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
     private static final String ERROR_FETCHING = "Error fetching next available slot";
 
+    private final OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+    private final RecurringCustomerFilter recurringCustomerFilter = new RecurringCustomerFilter();
+    private volatile TicketBatchWriter batchWriter;
+
+    public boolean loadOpenTicketIndex(){
+        Connection con = null;
+        ResultSet rs  = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.GET_OPEN_TICKETS);
+            rs = ps.executeQuery();
+            List<Ticket> openTickets = new ArrayList<>();
+            while(rs.next()){
+                Ticket ticket = new Ticket();
+                ticket.setParkingSpot(new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false));
+                ticket.setId(rs.getInt(2));
+                ticket.setVehicleRegNumber(rs.getString(7));
+                ticket.setPrice(rs.getDouble(3));
+                ticket.setInTime(rs.getTimestamp(4));
+                ticket.setOutTime(rs.getTimestamp(5));
+                openTickets.add(ticket);
+            }
+            openTicketIndex.load(openTickets);
+            logger.info("Loaded {} open tickets", openTickets.size());
+            return true;
+        }catch (Exception ex){
+            logger.error("Error loading open tickets",ex);
+        }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+        return false;
+    }
+
+    public OpenTicketIndex getOpenTicketIndex() {
+        return openTicketIndex;
+    }
+
+    /**
+     * Rebuilds the recurring customer filter from every plate with a closed ticket.
+     * Can be called again at any time to resynchronize with the DB.
+     */
+    public boolean loadRecurringCustomers(){
+        Connection con = null;
+        ResultSet rs  = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.GET_RECURRENT_PLATES);
+            rs = ps.executeQuery();
+            List<String> plates = new ArrayList<>();
+            while(rs.next()){
+                plates.add(rs.getString(1));
+            }
+            recurringCustomerFilter.load(plates);
+            logger.info("Loaded recurring customers: {}", recurringCustomerFilter.getStats());
+            return true;
+        }catch (Exception ex){
+            logger.error("Error loading recurring customers",ex);
+        }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+        return false;
+    }
+
+    public RecurringCustomerFilter getRecurringCustomerFilter() {
+        return recurringCustomerFilter;
+    }
+
+    /**
+     * Switches ticket writes made outside a unit of work to write-behind mode, where
+     * they are group-committed by the given writer. Pass null to go back to direct writes.
+     */
+    public void setBatchWriter(TicketBatchWriter batchWriter) {
+        this.batchWriter = batchWriter;
+    }
+
+    @Override
+    public boolean isWriteBehind() {
+        return batchWriter != null;
+    }
+
+    /**
+     * Queues the insert on the batch writer in write-behind mode, otherwise writes it
+     * right away. The future completes with true once the ticket is committed.
+     */
+    public CompletableFuture<Boolean> saveTicketAsync(Ticket ticket) {
+        TicketBatchWriter writer = batchWriter;
+        if (writer == null || UnitOfWork.isActive()) {
+            return CompletableFuture.completedFuture(saveTicket(ticket));
+        }
+        return writer.submitSave(ticket).thenApply(saved -> {
+            openTicketIndex.put(ticket);
+            return saved;
+        });
+    }
+
+    public CompletableFuture<Boolean> updateTicketAsync(Ticket ticket) {
+        TicketBatchWriter writer = batchWriter;
+        if (writer == null || UnitOfWork.isActive()) {
+            return CompletableFuture.completedFuture(updateTicket(ticket));
+        }
+        String vehicleRegNumber = ticket.getVehicleRegNumber();
+        int ticketId = ticket.getId();
+        return writer.submitUpdate(ticket).thenApply(updated -> {
+            openTicketIndex.remove(vehicleRegNumber, ticketId);
+            recurringCustomerFilter.add(vehicleRegNumber);
+            return updated;
+        });
+    }
+
+    @Override
     public boolean saveTicket(Ticket ticket){
+        if(batchWriter != null && !UnitOfWork.isActive()){
+            return awaitWriteBehind(saveTicketAsync(ticket), ERROR_FETCHING);
+        }
         Connection con = null;
         PreparedStatement ps = null;
+        ResultSet rs = null;
         try {
             con = dataBaseConfig.getConnection();
-             ps = con.prepareStatement(DBConstants.SAVE_TICKET);
-
-            ps.setInt(1,ticket.getParkingSpot().getId());
-            ps.setString(2, ticket.getVehicleRegNumber());
-            ps.setDouble(3, ticket.getPrice());
-            ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
-            ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
-            return ps.execute();
+            boolean indexed = openTicketIndex.isLoaded() && !ticket.hasOutTime();
+            // the index needs the generated ID so the exit path can update the row without a lookup
+            ps = indexed ? con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)
+                    : con.prepareStatement(DBConstants.SAVE_TICKET);
+
+            bindSaveTicket(ps, ticket);
+            boolean result = ps.executeUpdate() == 1;
+            if(indexed){
+                rs = ps.getGeneratedKeys();
+                if(rs.next()){
+                    ticket.setId(rs.getInt(1));
+                    Ticket saved = ticket;
+                    UnitOfWork.afterCommit(() -> openTicketIndex.put(saved));
+                }
+            }
+            return result;
         }catch (Exception ex){
             logger.error(ERROR_FETCHING,ex);
+            UnitOfWork.markRollbackOnly();
         }finally {
+            dataBaseConfig.closeResultSet(rs);
             dataBaseConfig.closePreparedStatement(ps);
 
             dataBaseConfig.closeConnection(con);
@@ -44,7 +183,11 @@ public class TicketDAO {
 
     }
 
+    @Override
     public Ticket getTicket(String vehicleRegNumber) {
+        if(openTicketIndex.isLoaded()){
+            return openTicketIndex.get(vehicleRegNumber);
+        }
         Connection con = null;
         Ticket ticket = null;
         ResultSet rs  = null;
@@ -76,14 +219,35 @@ public class TicketDAO {
         return ticket;
 
     }
+    /**
+     * Returns the latest ticket of the plate, open or closed. The hot {@code ticket}
+     * table is checked first and {@code ticket_history} only when it has nothing.
+     */
+    @Override
     public Ticket getTicketById(String vehicleRegNumber) {
         Connection con = null;
+        Ticket ticket = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ticket = findLatestTicket(con, DBConstants.GET_UPDATED_TICKET, vehicleRegNumber);
+            if(ticket == null){
+                ticket = findLatestTicket(con, DBConstants.GET_UPDATED_TICKET_HISTORY, vehicleRegNumber);
+            }
+        }catch (Exception ex){
+            logger.error(ERROR_FETCHING,ex);
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return ticket;
+
+    }
+
+    private Ticket findLatestTicket(Connection con, String query, String vehicleRegNumber) throws SQLException {
         Ticket ticket = null;
         ResultSet rs  = null;
         PreparedStatement ps = null;
         try {
-            con = dataBaseConfig.getConnection();
-             ps = con.prepareStatement(DBConstants.GET_UPDATED_TICKET);
+             ps = con.prepareStatement(query);
             //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
             ps.setString(1,vehicleRegNumber);
              rs = ps.executeQuery();
@@ -97,59 +261,111 @@ public class TicketDAO {
                 ticket.setInTime(rs.getTimestamp(4));
                 ticket.setOutTime(rs.getTimestamp(5));
             }
-
-        }catch (Exception ex){
-            logger.error(ERROR_FETCHING,ex);
         }finally {
             dataBaseConfig.closeResultSet(rs);
             dataBaseConfig.closePreparedStatement(ps);
-            dataBaseConfig.closeConnection(con);
         }
         return ticket;
+    }
 
+    /**
+     * Tells whether the vehicle has an open ticket, from memory once the index is
+     * loaded and from the DB otherwise.
+     */
+    @Override
+    public boolean isVehicleInside(String vehicleRegNumber) {
+        if(openTicketIndex.isLoaded()){
+            return openTicketIndex.contains(vehicleRegNumber);
+        }
+        return getTicket(vehicleRegNumber) != null;
     }
+
+    @Override
     public Boolean isReccurent(String vehicleRegNumber) {
+        if(recurringCustomerFilter.isLoaded()){
+            return recurringCustomerFilter.contains(vehicleRegNumber);
+        }
         Connection con = null;
-        PreparedStatement ps = null;
-        ResultSet rs  = null;
         Boolean vehiculeIsRecurent = false;
 
         try {
             con = dataBaseConfig.getConnection();
-             ps = con.prepareStatement(DBConstants.GET_RECURRENT);
-            ps.setString(1,vehicleRegNumber);
-            rs = ps.executeQuery();
-
-            if(rs.next()){
-                vehiculeIsRecurent = true;
-            }
+            vehiculeIsRecurent = hasTicket(con, DBConstants.GET_RECURRENT, vehicleRegNumber)
+                    || hasTicket(con, DBConstants.GET_RECURRENT_HISTORY, vehicleRegNumber);
         }catch (Exception ex){
             logger.error("no",ex);
         }finally {
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
         }
         return vehiculeIsRecurent;
 
     }
+
+    private boolean hasTicket(Connection con, String query, String vehicleRegNumber) throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs  = null;
+        try {
+            ps = con.prepareStatement(query);
+            ps.setString(1,vehicleRegNumber);
+            rs = ps.executeQuery();
+            return rs.next();
+        }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+    }
+    @Override
     public boolean updateTicket(Ticket ticket) {
+        if(batchWriter != null && !UnitOfWork.isActive()){
+            return awaitWriteBehind(updateTicketAsync(ticket), "Error saving ticket info");
+        }
         Connection con = null;
         PreparedStatement ps = null;
         try {
             con = dataBaseConfig.getConnection();
              ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
-            ps.setDouble(1, ticket.getPrice());
-            ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
-            ps.setInt(3,ticket.getId());
+            bindUpdateTicket(ps, ticket);
             ps.execute();
+            String vehicleRegNumber = ticket.getVehicleRegNumber();
+            int ticketId = ticket.getId();
+            UnitOfWork.afterCommit(() -> {
+                openTicketIndex.remove(vehicleRegNumber, ticketId);
+                recurringCustomerFilter.add(vehicleRegNumber);
+            });
             return true;
         }catch (Exception ex){
             logger.error("Error saving ticket info",ex);
+            UnitOfWork.markRollbackOnly();
         }finally {
             dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
         }
         return false;
     }
+
+    private static boolean awaitWriteBehind(CompletableFuture<Boolean> write, String errorMessage) {
+        try {
+            return write.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            logger.error(errorMessage, ex);
+        } catch (ExecutionException ex) {
+            logger.error(errorMessage, ex.getCause());
+        }
+        return false;
+    }
+
+    static void bindSaveTicket(PreparedStatement ps, Ticket ticket) throws SQLException {
+        ps.setInt(1,ticket.getParkingSpot().getId());
+        ps.setString(2, ticket.getVehicleRegNumber());
+        ps.setDouble(3, ticket.getPrice());
+        ps.setTimestamp(4, new Timestamp(ticket.getInTimeMillis()));
+        ps.setTimestamp(5, ticket.hasOutTime() ? new Timestamp(ticket.getOutTimeMillis()) : null);
+    }
+
+    static void bindUpdateTicket(PreparedStatement ps, Ticket ticket) throws SQLException {
+        ps.setDouble(1, ticket.getPrice());
+        ps.setTimestamp(2, new Timestamp(ticket.getOutTimeMillis()));
+        ps.setInt(3,ticket.getId());
+    }
 }
@@ -0,0 +1,40 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Storage of tickets used by {@link com.parkit.parkingsystem.service.ParkingService}.
+ * Implemented over JDBC by {@link TicketDAO} and in memory by
+ * {@link com.parkit.parkingsystem.dao.memory.InMemoryTicketRepository}.
+ */
+public interface TicketRepository {
+
+    boolean saveTicket(Ticket ticket);
+
+    /**
+     * Returns the open ticket of the vehicle, or null when it is not inside.
+     */
+    Ticket getTicket(String vehicleRegNumber);
+
+    /**
+     * Returns the latest ticket of the vehicle, open or closed, or null.
+     */
+    Ticket getTicketById(String vehicleRegNumber);
+
+    /**
+     * Tells whether the vehicle has at least one closed ticket.
+     */
+    Boolean isReccurent(String vehicleRegNumber);
+
+    boolean updateTicket(Ticket ticket);
+
+    boolean isVehicleInside(String vehicleRegNumber);
+
+    /**
+     * Tells whether ticket writes are group-committed outside the caller's unit of
+     * work, in which case entry and exit cannot run as a single transaction.
+     */
+    default boolean isWriteBehind() {
+        return false;
+    }
+}
@@ -0,0 +1,163 @@
+package com.parkit.parkingsystem.dao.journal;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * One entry or exit recorded in the {@link TicketJournal}. An event carries the
+ * whole ticket as the gate saw it, so it can be applied to the DB on its own.
+ * Times are kept to the second, the precision of the {@code DATETIME} columns,
+ * so the replayer can find the row again by plate and in-time; journaled tickets
+ * are also given a whole-second in-time when they are created, see
+ * {@link #toSeconds(long)}.
+ */
+public final class JournalEvent {
+
+    public enum Type {
+        ENTRY, EXIT
+    }
+
+    private static final long NO_TIME = -1;
+
+    private final long sequence;
+    private final Type type;
+    private final int ticketId;
+    private final int parkingNumber;
+    private final ParkingType parkingType;
+    private final String vehicleRegNumber;
+    private final double price;
+    private final long inTime;
+    private final long outTime;
+
+    private JournalEvent(long sequence, Type type, int ticketId, int parkingNumber, ParkingType parkingType,
+                         String vehicleRegNumber, double price, long inTime, long outTime) {
+        this.sequence = sequence;
+        this.type = type;
+        this.ticketId = ticketId;
+        this.parkingNumber = parkingNumber;
+        this.parkingType = parkingType;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.price = price;
+        this.inTime = inTime;
+        this.outTime = outTime;
+    }
+
+    public static JournalEvent entry(Ticket ticket) {
+        return of(Type.ENTRY, ticket);
+    }
+
+    public static JournalEvent exit(Ticket ticket) {
+        if (!ticket.hasOutTime()) {
+            throw new IllegalArgumentException("An exit needs an out-time");
+        }
+        return of(Type.EXIT, ticket);
+    }
+
+    private static JournalEvent of(Type type, Ticket ticket) {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        return new JournalEvent(0, type, ticket.getId(), parkingSpot.getId(), parkingSpot.getParkingType(),
+                ticket.getVehicleRegNumber(), ticket.getPrice(), toSeconds(ticket.getInTimeMillis()),
+                ticket.hasOutTime() ? toSeconds(ticket.getOutTimeMillis()) : NO_TIME);
+    }
+
+    /**
+     * Cuts the time down to the whole second.
+     */
+    static long toSeconds(long millis) {
+        return millis - Math.floorMod(millis, 1000L);
+    }
+
+    JournalEvent withSequence(long sequence) {
+        return new JournalEvent(sequence, type, ticketId, parkingNumber, parkingType, vehicleRegNumber, price, inTime, outTime);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * The DB ID of the ticket when the gate knew it, or 0 for a ticket that was
+     * itself only journaled.
+     */
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public Date getInTime() {
+        return new Date(inTime);
+    }
+
+    public Date getOutTime() {
+        return outTime == NO_TIME ? null : new Date(outTime);
+    }
+
+    /**
+     * Writes the payload: sequence, type, ticket ID, spot, plate, price and times.
+     */
+    void writeTo(ByteBuffer buffer) {
+        buffer.putLong(sequence);
+        buffer.put((byte) type.ordinal());
+        buffer.putInt(ticketId);
+        buffer.putInt(parkingNumber);
+        putString(buffer, parkingType.name());
+        putString(buffer, vehicleRegNumber);
+        buffer.putDouble(price);
+        buffer.putLong(inTime);
+        buffer.putLong(outTime);
+    }
+
+    static JournalEvent readFrom(ByteBuffer buffer) {
+        long sequence = buffer.getLong();
+        Type type = Type.values()[buffer.get()];
+        int ticketId = buffer.getInt();
+        int parkingNumber = buffer.getInt();
+        ParkingType parkingType = ParkingType.valueOf(getString(buffer));
+        String vehicleRegNumber = getString(buffer);
+        double price = buffer.getDouble();
+        long inTime = buffer.getLong();
+        long outTime = buffer.getLong();
+        return new JournalEvent(sequence, type, ticketId, parkingNumber, parkingType, vehicleRegNumber, price, inTime, outTime);
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return type + " #" + sequence + " " + vehicleRegNumber + " spot " + parkingNumber;
+    }
+}
@@ -0,0 +1,289 @@
+package com.parkit.parkingsystem.dao.journal;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the events of a {@link TicketJournal} to the DB, in order, each in its
+ * own unit of work. The last applied sequence number is kept in a checkpoint file
+ * next to the segments, written after each batch, so a restart resumes where the
+ * last run stopped. Applying is idempotent, so the events of a batch that was
+ * applied but not checkpointed before a crash are replayed without harm: an entry
+ * is skipped when the plate already has a ticket with that in-time, archived or
+ * not, and an exit of a ticket that is already closed is skipped. An exit that
+ * finds no such ticket at all is an error. The spot is only taken or released
+ * together with the ticket row it belongs to. When an event fails, the run stops
+ * there and the next run starts again from it. Fully applied segments are deleted.
+ */
+public class JournalReplayer implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("JournalReplayer");
+
+    static final String CHECKPOINT_FILE = "replayed.checkpoint";
+
+    private final TicketJournal journal;
+    private final DataBaseConfig dataBaseConfig;
+    private final int batchSize;
+    private final Path checkpoint;
+    private volatile long appliedSequence;
+    private boolean failing;
+    private ScheduledExecutorService scheduler;
+
+    public JournalReplayer(TicketJournal journal, DataBaseConfig dataBaseConfig, int batchSize) throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.journal = journal;
+        this.dataBaseConfig = dataBaseConfig;
+        this.batchSize = batchSize;
+        this.checkpoint = journal.getDirectory().resolve(CHECKPOINT_FILE);
+        this.appliedSequence = readCheckpoint();
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        long sequence;
+        try {
+            sequence = Long.parseLong(new String(Files.readAllBytes(checkpoint), StandardCharsets.US_ASCII).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid journal checkpoint " + checkpoint, e);
+        }
+        if (sequence > journal.getLastSequence()) {
+            logger.warn("Journal checkpoint #{} is past the last journaled event #{}, replaying the whole journal",
+                    sequence, journal.getLastSequence());
+            return 0;
+        }
+        return sequence;
+    }
+
+    /**
+     * Replaces the checkpoint file in one move, so a crash leaves either the old or
+     * the new sequence number.
+     */
+    private void writeCheckpoint(long sequence) throws IOException {
+        Path next = checkpoint.resolveSibling(CHECKPOINT_FILE + ".tmp");
+        Files.write(next, Long.toString(sequence).getBytes(StandardCharsets.US_ASCII), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+        Files.move(next, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Replays in the background every {@code intervalMillis}, starting right away.
+     */
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-replayer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::replay, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Applies every pending event and returns how many were applied. Errors are
+     * logged once per outage and end the run.
+     */
+    public synchronized int replay() {
+        int applied = 0;
+        try {
+            List<JournalEvent> events;
+            while (!(events = journal.read(appliedSequence, batchSize)).isEmpty()) {
+                try {
+                    for (JournalEvent event : events) {
+                        apply(event);
+                        appliedSequence = event.getSequence();
+                        applied++;
+                    }
+                } finally {
+                    if (applied > 0) {
+                        writeCheckpoint(appliedSequence);
+                    }
+                }
+                journal.deleteUpTo(appliedSequence);
+            }
+            if (failing) {
+                logger.info("Journal replay resumed, the database is reachable again");
+                failing = false;
+            }
+        } catch (Exception ex) {
+            if (!failing) {
+                logger.error("Error replaying the journal at event #" + (appliedSequence + 1) + ", events are kept and retried", ex);
+                failing = true;
+            }
+        }
+        if (applied > 0) {
+            logger.debug("Replayed {} journal events up to #{}", applied, appliedSequence);
+        }
+        return applied;
+    }
+
+    public TicketJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Returns how many journaled events are not in the DB yet.
+     */
+    public long getPendingCount() {
+        return journal.getLastSequence() - appliedSequence;
+    }
+
+    private void apply(JournalEvent event) throws Exception {
+        UnitOfWork.execute(() -> {
+            Connection con = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                return event.getType() == JournalEvent.Type.ENTRY ? applyEntry(con, event) : applyExit(con, event);
+            } finally {
+                dataBaseConfig.closeConnection(con);
+            }
+        });
+    }
+
+    private boolean applyEntry(Connection con, JournalEvent event) throws SQLException {
+        Timestamp inTime = new Timestamp(event.getInTime().getTime());
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = con.prepareStatement(DBConstants.GET_TICKET_BY_IN_TIME);
+            ps.setString(1, event.getVehicleRegNumber());
+            ps.setTimestamp(2, inTime);
+            ps.setString(3, event.getVehicleRegNumber());
+            ps.setTimestamp(4, inTime);
+            rs = ps.executeQuery();
+            if (rs.next()) {
+                // already applied, and maybe archived since
+                return false;
+            }
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+        try {
+            ps = con.prepareStatement(DBConstants.SAVE_TICKET);
+            ps.setInt(1, event.getParkingNumber());
+            ps.setString(2, event.getVehicleRegNumber());
+            ps.setDouble(3, event.getPrice());
+            ps.setTimestamp(4, inTime);
+            ps.setTimestamp(5, null);
+            ps.executeUpdate();
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+        updateParking(con, event.getParkingNumber(), false);
+        return true;
+    }
+
+    private boolean applyExit(Connection con, JournalEvent event) throws SQLException {
+        PreparedStatement ps = null;
+        int closed;
+        try {
+            if (event.getTicketId() > 0) {
+                ps = con.prepareStatement(DBConstants.CLOSE_TICKET);
+                ps.setDouble(1, event.getPrice());
+                ps.setTimestamp(2, new Timestamp(event.getOutTime().getTime()));
+                ps.setInt(3, event.getTicketId());
+            } else {
+                ps = con.prepareStatement(DBConstants.CLOSE_TICKET_BY_IN_TIME);
+                ps.setDouble(1, event.getPrice());
+                ps.setTimestamp(2, new Timestamp(event.getOutTime().getTime()));
+                ps.setString(3, event.getVehicleRegNumber());
+                ps.setTimestamp(4, new Timestamp(event.getInTime().getTime()));
+            }
+            closed = ps.executeUpdate();
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+        if (closed == 0) {
+            if (isClosed(con, event)) {
+                // already applied by an earlier run
+                return false;
+            }
+            throw new SQLException("No ticket to close for " + event);
+        }
+        updateParking(con, event.getParkingNumber(), true);
+        return true;
+    }
+
+    /**
+     * Whether the ticket of the exit is already closed, in {@code ticket} or in
+     * {@code ticket_history}.
+     */
+    private boolean isClosed(Connection con, JournalEvent event) throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            if (event.getTicketId() > 0) {
+                ps = con.prepareStatement(DBConstants.GET_CLOSED_TICKET_BY_ID);
+                ps.setInt(1, event.getTicketId());
+                ps.setInt(2, event.getTicketId());
+                rs = ps.executeQuery();
+                return rs.next();
+            }
+            Timestamp inTime = new Timestamp(event.getInTime().getTime());
+            ps = con.prepareStatement(DBConstants.GET_TICKET_BY_IN_TIME);
+            ps.setString(1, event.getVehicleRegNumber());
+            ps.setTimestamp(2, inTime);
+            ps.setString(3, event.getVehicleRegNumber());
+            ps.setTimestamp(4, inTime);
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                if (rs.getTimestamp(2) != null) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+    }
+
+    private void updateParking(Connection con, int parkingNumber, boolean available) throws SQLException {
+        PreparedStatement ps = null;
+        try {
+            ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
+            ps.setBoolean(1, available);
+            ps.setInt(2, parkingNumber);
+            ps.executeUpdate();
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+    }
+
+    /**
+     * Stops the background runs and makes a last attempt to drain the journal.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        replay();
+    }
+}
@@ -0,0 +1,55 @@
+package com.parkit.parkingsystem.dao.journal;
+
+import com.parkit.parkingsystem.cache.SpotAvailabilityIndex;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Spot changes for journal mode. Spots are claimed and released in the availability
+ * index of the {@link ParkingSpotDAO} only; the {@code parking} table follows when
+ * the entry or exit event is replayed. Without a loaded index, calls go to the DB.
+ */
+public class JournaledParkingSpotRepository implements ParkingSpotRepository {
+
+    private final ParkingSpotDAO parkingSpotDAO;
+
+    public JournaledParkingSpotRepository(ParkingSpotDAO parkingSpotDAO) {
+        this.parkingSpotDAO = parkingSpotDAO;
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        return parkingSpotDAO.getNextAvailableSlot(parkingType);
+    }
+
+    @Override
+    public int claimNextAvailableSlot(ParkingType parkingType) {
+        SpotAvailabilityIndex availabilityIndex = parkingSpotDAO.getAvailabilityIndex();
+        if (!availabilityIndex.isLoaded()) {
+            return parkingSpotDAO.claimNextAvailableSlot(parkingType);
+        }
+        return availabilityIndex.claimLowestAvailable(parkingType);
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        SpotAvailabilityIndex availabilityIndex = parkingSpotDAO.getAvailabilityIndex();
+        if (!availabilityIndex.isLoaded()) {
+            return parkingSpotDAO.updateParking(parkingSpot);
+        }
+        availabilityIndex.setAvailable(new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable()));
+        return true;
+    }
+
+    @Override
+    public int getAvailableCount(ParkingType parkingType) {
+        return parkingSpotDAO.getAvailableCount(parkingType);
+    }
+
+    @Override
+    public int getCapacity(ParkingType parkingType) {
+        return parkingSpotDAO.getCapacity(parkingType);
+    }
+}
@@ -0,0 +1,83 @@
+package com.parkit.parkingsystem.dao.journal;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Ticket writes go to the {@link TicketJournal} and reach the DB later through the
+ * {@link JournalReplayer}, so gates keep working while the DB is down. The
+ * in-memory indexes of the {@link TicketDAO} are updated right away and answer
+ * the gate lookups; {@link #getTicketById} reads the DB and may lag behind the
+ * journal. Journaled tickets have no ID until they are replayed, and are found
+ * again by plate and in-time, so their in-time is cut to the whole second the
+ * {@code DATETIME} column keeps.
+ */
+public class JournaledTicketRepository implements TicketRepository {
+
+    private static final Logger logger = LogManager.getLogger("JournaledTicketRepository");
+
+    private final TicketDAO ticketDAO;
+    private final TicketJournal journal;
+
+    public JournaledTicketRepository(TicketDAO ticketDAO, TicketJournal journal) {
+        this.ticketDAO = ticketDAO;
+        this.journal = journal;
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        ticket.setInTimeMillis(JournalEvent.toSeconds(ticket.getInTimeMillis()));
+        try {
+            journal.append(JournalEvent.entry(ticket));
+        } catch (Exception ex) {
+            logger.error("Error journaling vehicle entry", ex);
+            return false;
+        }
+        ticketDAO.getOpenTicketIndex().put(ticket);
+        return true;
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        return ticketDAO.getTicket(vehicleRegNumber);
+    }
+
+    @Override
+    public Ticket getTicketById(String vehicleRegNumber) {
+        return ticketDAO.getTicketById(vehicleRegNumber);
+    }
+
+    @Override
+    public Boolean isReccurent(String vehicleRegNumber) {
+        return ticketDAO.isReccurent(vehicleRegNumber);
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        try {
+            journal.append(JournalEvent.exit(ticket));
+        } catch (Exception ex) {
+            logger.error("Error journaling vehicle exit", ex);
+            return false;
+        }
+        ticketDAO.getOpenTicketIndex().remove(ticket.getVehicleRegNumber(), ticket.getId());
+        ticketDAO.getRecurringCustomerFilter().add(ticket.getVehicleRegNumber());
+        return true;
+    }
+
+    @Override
+    public boolean isVehicleInside(String vehicleRegNumber) {
+        return ticketDAO.isVehicleInside(vehicleRegNumber);
+    }
+
+    /**
+     * Always true: each write is journaled on its own, outside any unit of work.
+     */
+    @Override
+    public boolean isWriteBehind() {
+        return true;
+    }
+}
@@ -0,0 +1,325 @@
+package com.parkit.parkingsystem.dao.journal;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of {@link JournalEvent}s in memory-mapped segment files.
+ * An append is a copy into the mapped page cache, so it survives a crash of the
+ * process without a system call; {@code forceOnAppend} also flushes each record to
+ * disk, to survive a power loss at the cost of one sync per append.
+ * <p>
+ * A record is {@code [payload length][CRC32 of payload][payload]}. The length is
+ * written last, and a zero length marks the end of a segment, so a record torn by
+ * a crash is either invisible or fails its checksum. Segments are named after
+ * their first sequence number and sealed (flushed) when full. On open, every
+ * segment is scanned and the active one is cut back to its last valid record.
+ * Reads never take the append lock. Position changes go through {@link Buffer} so the
+ * classes also run on a Java 8 runtime.
+ */
+public class TicketJournal implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("TicketJournal");
+
+    static final String SEGMENT_PREFIX = "journal-";
+    static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1024;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean forceOnAppend;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final ByteBuffer scratch = ByteBuffer.allocate(MAX_RECORD_BYTES);
+    private final CRC32 checksum = new CRC32();
+    private volatile long nextSequence = 1;
+    private boolean closed;
+
+    private TicketJournal(Path directory, int segmentSize, boolean forceOnAppend) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.forceOnAppend = forceOnAppend;
+    }
+
+    /**
+     * Opens the journal in the directory, recovering the segments left by a previous
+     * run, or starts a new one.
+     */
+    public static TicketJournal open(Path directory, int segmentSize, boolean forceOnAppend) throws IOException {
+        if (segmentSize < HEADER_BYTES + MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("segmentSize must be at least " + (HEADER_BYTES + MAX_RECORD_BYTES));
+        }
+        Files.createDirectories(directory);
+        TicketJournal journal = new TicketJournal(directory, segmentSize, forceOnAppend);
+        journal.recover();
+        return journal;
+    }
+
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        // names hold zero-padded first sequence numbers, so they sort in journal order
+        Collections.sort(files);
+        long records = 0;
+        for (Path file : files) {
+            Segment segment = Segment.map(file, firstSequenceOf(file), segmentSize);
+            records += segment.lastSequence - segment.firstSequence + 1;
+            if (!segments.isEmpty() && segment.firstSequence != lastSegment().lastSequence + 1) {
+                logger.error("Journal segment {} does not follow sequence {}, events in between are lost",
+                        file, lastSegment().lastSequence);
+            }
+            segments.add(segment);
+        }
+        if (segments.isEmpty()) {
+            segments.add(Segment.map(segmentPath(1), 1, segmentSize));
+        }
+        Segment active = lastSegment();
+        active.truncate();
+        nextSequence = active.lastSequence + 1;
+        if (records > 0) {
+            logger.info("Recovered {} journal events in {} segments from {}", records, segments.size(), directory);
+        }
+    }
+
+    /**
+     * Appends the event and returns its sequence number.
+     */
+    public synchronized long append(JournalEvent event) throws IOException {
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+        long sequence = nextSequence;
+        ((Buffer) scratch).clear();
+        try {
+            event.withSequence(sequence).writeTo(scratch);
+        } catch (BufferOverflowException e) {
+            throw new IllegalArgumentException("Journal event is larger than " + MAX_RECORD_BYTES + " bytes: " + event, e);
+        }
+        ((Buffer) scratch).flip();
+        int length = scratch.remaining();
+        checksum.reset();
+        checksum.update(scratch);
+        ((Buffer) scratch).rewind();
+
+        Segment active = lastSegment();
+        if (active.end + HEADER_BYTES + length > active.capacity) {
+            active = rollOver(active, sequence);
+        }
+        int position = active.end;
+        ByteBuffer writer = active.writer;
+        writer.putInt(position + 4, (int) checksum.getValue());
+        ((Buffer) writer).position(position + HEADER_BYTES);
+        writer.put(scratch);
+        writer.putInt(position, length);
+        if (forceOnAppend) {
+            active.buffer.force();
+        }
+        active.lastSequence = sequence;
+        active.end = position + HEADER_BYTES + length;
+        nextSequence = sequence + 1;
+        return sequence;
+    }
+
+    private Segment rollOver(Segment full, long firstSequence) throws IOException {
+        full.buffer.force();
+        Segment next = Segment.map(segmentPath(firstSequence), firstSequence, segmentSize);
+        segments.add(next);
+        logger.debug("Journal rolled over to {}", next.path);
+        return next;
+    }
+
+    /**
+     * Returns up to {@code max} events with a sequence number above {@code afterSequence},
+     * in order.
+     */
+    public List<JournalEvent> read(long afterSequence, int max) {
+        List<JournalEvent> events = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (events.size() >= max) {
+                break;
+            }
+            if (segment.lastSequence > afterSequence) {
+                segment.read(afterSequence, max - events.size(), events);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Deletes the sealed segments whose events all have a sequence number up to
+     * {@code sequence}, and returns how many were deleted. The active segment is kept.
+     */
+    public synchronized int deleteUpTo(long sequence) throws IOException {
+        int deleted = 0;
+        for (Segment segment : segments) {
+            if (segment == lastSegment() || segment.lastSequence > sequence) {
+                break;
+            }
+            segments.remove(segment);
+            Files.deleteIfExists(segment.path);
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * Flushes the active segment to disk.
+     */
+    public synchronized void sync() {
+        lastSegment().buffer.force();
+    }
+
+    public long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            lastSegment().buffer.force();
+        }
+    }
+
+    private Segment lastSegment() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+    }
+
+    private static long firstSequenceOf(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected journal segment name " + file, e);
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final long firstSequence;
+        private final MappedByteBuffer buffer;
+        private final ByteBuffer writer;
+        private final int capacity;
+        private volatile long lastSequence;
+        // published last by an append, so readers never see a half-written record
+        private volatile int end;
+
+        private Segment(Path path, long firstSequence, MappedByteBuffer buffer) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.buffer = buffer;
+            this.writer = buffer.duplicate();
+            this.capacity = buffer.capacity();
+            this.lastSequence = firstSequence - 1;
+        }
+
+        /**
+         * Maps the file, creating it at {@code segmentSize} if needed, and finds the
+         * end of its valid records.
+         */
+        static Segment map(Path path, long firstSequence, int segmentSize) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = channel.size() == 0 ? segmentSize : channel.size();
+                Segment segment = new Segment(path, firstSequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+                segment.scan();
+                return segment;
+            }
+        }
+
+        private void scan() {
+            ByteBuffer reader = buffer.duplicate();
+            CRC32 crc = new CRC32();
+            int position = 0;
+            long expected = firstSequence;
+            while (position + HEADER_BYTES <= capacity) {
+                int length = reader.getInt(position);
+                if (length == 0) {
+                    break;
+                }
+                if (length < 0 || length > capacity - position - HEADER_BYTES) {
+                    logger.warn("Discarding journal data after offset {} of {}: invalid record length", position, path);
+                    break;
+                }
+                ((Buffer) reader).limit(position + HEADER_BYTES + length).position(position + HEADER_BYTES);
+                crc.reset();
+                crc.update(reader);
+                ((Buffer) reader).limit(capacity);
+                if ((int) crc.getValue() != reader.getInt(position + 4)) {
+                    logger.warn("Discarding journal data after offset {} of {}: checksum mismatch", position, path);
+                    break;
+                }
+                if (reader.getLong(position + HEADER_BYTES) != expected) {
+                    logger.warn("Discarding journal data after offset {} of {}: out of sequence", position, path);
+                    break;
+                }
+                expected++;
+                position += HEADER_BYTES + length;
+            }
+            lastSequence = expected - 1;
+            end = position;
+        }
+
+        /**
+         * Zeroes everything after the last valid record, so the next append is not
+         * followed by the remains of a torn one.
+         */
+        void truncate() {
+            for (int i = end; i < capacity; i++) {
+                if (writer.get(i) != 0) {
+                    writer.put(i, (byte) 0);
+                }
+            }
+        }
+
+        void read(long afterSequence, int max, List<JournalEvent> events) {
+            int limit = end;
+            ByteBuffer reader = buffer.duplicate();
+            int position = 0;
+            int added = 0;
+            while (position < limit && added < max) {
+                int length = reader.getInt(position);
+                if (reader.getLong(position + HEADER_BYTES) > afterSequence) {
+                    ((Buffer) reader).limit(position + HEADER_BYTES + length).position(position + HEADER_BYTES);
+                    events.add(JournalEvent.readFrom(reader));
+                    ((Buffer) reader).limit(capacity);
+                    added++;
+                }
+                position += HEADER_BYTES + length;
+            }
+        }
+    }
+}
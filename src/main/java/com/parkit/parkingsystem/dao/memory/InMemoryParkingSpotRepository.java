@@ -0,0 +1,87 @@
+package com.parkit.parkingsystem.dao.memory;
+
+import com.parkit.parkingsystem.cache.SpotAvailabilityIndex;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Parking spots held in a {@link SpotAvailabilityIndex} instead of the {@code parking}
+ * table. The layout is fixed at construction. Changes apply immediately and are
+ * undone if the surrounding {@link UnitOfWork} rolls back.
+ */
+public class InMemoryParkingSpotRepository implements ParkingSpotRepository {
+
+    private final Map<Integer, ParkingType> types;
+    private final SpotAvailabilityIndex availabilityIndex = new SpotAvailabilityIndex();
+
+    public InMemoryParkingSpotRepository(Collection<ParkingSpot> parkingSpots) {
+        Map<Integer, ParkingType> layout = new TreeMap<>();
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            layout.put(parkingSpot.getId(), parkingSpot.getParkingType());
+        }
+        this.types = Collections.unmodifiableMap(layout);
+        availabilityIndex.load(parkingSpots);
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        return availabilityIndex.getLowestAvailable(parkingType);
+    }
+
+    @Override
+    public int claimNextAvailableSlot(ParkingType parkingType) {
+        int parkingNumber = availabilityIndex.claimLowestAvailable(parkingType);
+        if (parkingNumber > 0) {
+            ParkingSpot released = new ParkingSpot(parkingNumber, parkingType, true);
+            UnitOfWork.afterRollback(() -> availabilityIndex.setAvailable(released));
+        }
+        return parkingNumber;
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        if (types.get(parkingSpot.getId()) != parkingSpot.getParkingType()) {
+            return false;
+        }
+        ParkingSpot previous = new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(),
+                availabilityIndex.isAvailable(parkingSpot.getId(), parkingSpot.getParkingType()));
+        availabilityIndex.setAvailable(new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable()));
+        UnitOfWork.afterRollback(() -> availabilityIndex.setAvailable(previous));
+        return true;
+    }
+
+    @Override
+    public int getAvailableCount(ParkingType parkingType) {
+        return availabilityIndex.getAvailableCount(parkingType);
+    }
+
+    @Override
+    public int getCapacity(ParkingType parkingType) {
+        return availabilityIndex.getCapacity(parkingType);
+    }
+
+    public SpotAvailabilityIndex getAvailabilityIndex() {
+        return availabilityIndex;
+    }
+
+    /**
+     * Returns every spot with its current availability, ordered by number.
+     */
+    public List<ParkingSpot> getParkingSpots() {
+        List<ParkingSpot> parkingSpots = new ArrayList<>(types.size());
+        for (Map.Entry<Integer, ParkingType> spot : types.entrySet()) {
+            parkingSpots.add(new ParkingSpot(spot.getKey(), spot.getValue(),
+                    availabilityIndex.isAvailable(spot.getKey(), spot.getValue())));
+        }
+        return parkingSpots;
+    }
+}
@@ -0,0 +1,203 @@
+package com.parkit.parkingsystem.dao.memory;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory storage engine: one {@link InMemoryParkingSpotRepository} and one
+ * {@link InMemoryTicketRepository}, with optional snapshots to a text file.
+ * A snapshot holds the spot layout and every ticket; spot availability is not
+ * stored but derived on restore from the open tickets, so a snapshot taken while
+ * a vehicle is entering can never leave a spot taken without a ticket.
+ * Snapshots are written to a temporary file and moved into place, so a crash
+ * while writing leaves the previous snapshot intact.
+ */
+public class InMemoryStorage implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("InMemoryStorage");
+
+    private static final String HEADER = "# parkit in-memory snapshot v1";
+    private static final String SPOT = "SPOT";
+    private static final String TICKET = "TICKET";
+    private static final String NONE = "-";
+
+    private final InMemoryParkingSpotRepository parkingSpotRepository;
+    private final InMemoryTicketRepository ticketRepository;
+    private ScheduledExecutorService scheduler;
+    private Path snapshotFile;
+
+    /**
+     * Creates an empty lot with the given layout. Every spot starts available.
+     */
+    public InMemoryStorage(Collection<ParkingSpot> parkingSpots) {
+        this(parkingSpots, new ArrayList<>());
+    }
+
+    private InMemoryStorage(Collection<ParkingSpot> parkingSpots, Collection<Ticket> tickets) {
+        Set<Integer> occupied = new HashSet<>();
+        for (Ticket ticket : tickets) {
+            if (!ticket.hasOutTime() && ticket.getParkingSpot() != null) {
+                occupied.add(ticket.getParkingSpot().getId());
+            }
+        }
+        List<ParkingSpot> layout = new ArrayList<>();
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            layout.add(new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), !occupied.contains(parkingSpot.getId())));
+        }
+        this.parkingSpotRepository = new InMemoryParkingSpotRepository(layout);
+        this.ticketRepository = new InMemoryTicketRepository(tickets);
+    }
+
+    /**
+     * Restores the storage from a snapshot, or starts empty with the given spots
+     * when the file does not exist yet.
+     */
+    public static InMemoryStorage restore(Path snapshot, Collection<ParkingSpot> defaultParkingSpots) throws IOException {
+        if (!Files.exists(snapshot)) {
+            logger.info("No snapshot at {}, starting with an empty lot", snapshot);
+            return new InMemoryStorage(defaultParkingSpots);
+        }
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        List<Ticket> tickets = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(snapshot, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                try {
+                    if (SPOT.equals(fields[0]) && fields.length == 3) {
+                        parkingSpots.add(new ParkingSpot(Integer.parseInt(fields[1]), ParkingType.valueOf(fields[2]), true));
+                    } else if (TICKET.equals(fields[0]) && fields.length == 8) {
+                        tickets.add(parseTicket(fields));
+                    } else {
+                        throw new IllegalArgumentException("unknown record");
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid snapshot line " + lineNumber + " in " + snapshot, e);
+                }
+            }
+        }
+        logger.info("Restored {} parking spots and {} tickets from {}", parkingSpots.size(), tickets.size(), snapshot);
+        return new InMemoryStorage(parkingSpots, tickets);
+    }
+
+    public InMemoryParkingSpotRepository getParkingSpotRepository() {
+        return parkingSpotRepository;
+    }
+
+    public InMemoryTicketRepository getTicketRepository() {
+        return ticketRepository;
+    }
+
+    public synchronized void snapshot(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        List<ParkingSpot> parkingSpots = parkingSpotRepository.getParkingSpots();
+        List<Ticket> tickets = ticketRepository.getTickets();
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (ParkingSpot parkingSpot : parkingSpots) {
+                writer.write(SPOT + '\t' + parkingSpot.getId() + '\t' + parkingSpot.getParkingType());
+                writer.newLine();
+            }
+            for (Ticket ticket : tickets) {
+                writer.write(formatTicket(ticket));
+                writer.newLine();
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Wrote snapshot of {} tickets to {}", tickets.size(), file);
+    }
+
+    /**
+     * Writes a snapshot every {@code intervalMillis} and a last one on {@link #close()}.
+     */
+    public synchronized void startSnapshots(Path file, long intervalMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        snapshotFile = file;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "in-memory-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot(file);
+            } catch (IOException e) {
+                logger.error("Error writing snapshot to " + file, e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+        try {
+            snapshot(snapshotFile);
+        } catch (IOException e) {
+            logger.error("Error writing snapshot to " + snapshotFile, e);
+        }
+    }
+
+    private static String formatTicket(Ticket ticket) throws UnsupportedEncodingException {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        return TICKET + '\t' + ticket.getId()
+                + '\t' + parkingSpot.getId()
+                + '\t' + parkingSpot.getParkingType()
+                + '\t' + URLEncoder.encode(ticket.getVehicleRegNumber(), "UTF-8")
+                + '\t' + ticket.getPrice()
+                + '\t' + ticket.getInTimeMillis()
+                + '\t' + (ticket.hasOutTime() ? String.valueOf(ticket.getOutTimeMillis()) : NONE);
+    }
+
+    private static Ticket parseTicket(String[] fields) {
+        Ticket ticket = new Ticket();
+        ticket.setId(Integer.parseInt(fields[1]));
+        ticket.setParkingSpot(new ParkingSpot(Integer.parseInt(fields[2]), ParkingType.valueOf(fields[3]), false));
+        try {
+            ticket.setVehicleRegNumber(URLDecoder.decode(fields[4], "UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        ticket.setPrice(Double.parseDouble(fields[5]));
+        ticket.setInTimeMillis(Long.parseLong(fields[6]));
+        ticket.setOutTimeMillis(NONE.equals(fields[7]) ? Ticket.NO_TIME : Long.parseLong(fields[7]));
+        return ticket;
+    }
+}
@@ -0,0 +1,165 @@
+package com.parkit.parkingsystem.dao.memory;
+
+import com.parkit.parkingsystem.cache.OpenTicketIndex;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.PlateNormalizer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tickets held in concurrent maps instead of the {@code ticket} table. Tickets are
+ * copied on the way in and out, IDs are generated like an auto-increment column,
+ * and writes are undone if the surrounding {@link UnitOfWork} rolls back.
+ * "Latest ticket" means the last one saved for the plate.
+ */
+public class InMemoryTicketRepository implements TicketRepository {
+
+    private final Map<Integer, Ticket> ticketsById = new ConcurrentHashMap<>();
+    private final Map<String, Integer> latestIdByPlate = new ConcurrentHashMap<>();
+    private final Set<String> recurringPlates = ConcurrentHashMap.newKeySet();
+    private final OpenTicketIndex openTickets = new OpenTicketIndex();
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    public InMemoryTicketRepository() {
+        this(Collections.<Ticket>emptyList());
+    }
+
+    /**
+     * Starts from existing tickets, for instance restored from a snapshot.
+     */
+    public InMemoryTicketRepository(Collection<Ticket> tickets) {
+        List<Ticket> open = new ArrayList<>();
+        List<Ticket> ordered = new ArrayList<>(tickets);
+        ordered.sort(Comparator.comparingInt(Ticket::getId));
+        for (Ticket ticket : ordered) {
+            ticketsById.put(ticket.getId(), copy(ticket));
+            latestIdByPlate.put(PlateNormalizer.normalize(ticket.getVehicleRegNumber()), ticket.getId());
+            if (!ticket.hasOutTime()) {
+                open.add(ticket);
+            } else {
+                recurringPlates.add(PlateNormalizer.normalize(ticket.getVehicleRegNumber()));
+            }
+            lastId.accumulateAndGet(ticket.getId(), Math::max);
+        }
+        openTickets.load(open);
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        int id = lastId.incrementAndGet();
+        ticket.setId(id);
+        String plate = PlateNormalizer.normalize(ticket.getVehicleRegNumber());
+        Integer previousLatest = latestIdByPlate.put(plate, id);
+        ticketsById.put(id, copy(ticket));
+        openTickets.put(ticket);
+        boolean becameRecurring = ticket.hasOutTime() && recurringPlates.add(plate);
+        UnitOfWork.afterRollback(() -> {
+            ticketsById.remove(id);
+            openTickets.remove(plate, id);
+            restoreLatest(plate, id, previousLatest);
+            if (becameRecurring) {
+                recurringPlates.remove(plate);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        return openTickets.get(vehicleRegNumber);
+    }
+
+    @Override
+    public Ticket getTicketById(String vehicleRegNumber) {
+        Integer id = latestIdByPlate.get(PlateNormalizer.normalize(vehicleRegNumber));
+        Ticket ticket = id == null ? null : ticketsById.get(id);
+        return ticket == null ? null : copy(ticket);
+    }
+
+    @Override
+    public Boolean isReccurent(String vehicleRegNumber) {
+        String plate = PlateNormalizer.normalize(vehicleRegNumber);
+        return plate != null && recurringPlates.contains(plate);
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        int id = ticket.getId();
+        Ticket updated = copy(ticket);
+        Ticket[] before = new Ticket[1];
+        boolean found = ticketsById.computeIfPresent(id, (key, current) -> {
+            before[0] = current;
+            // like UPDATE_TICKET, only the price and the out-time change
+            updated.setVehicleRegNumber(current.getVehicleRegNumber());
+            updated.setParkingSpot(current.getParkingSpot());
+            updated.setInTimeMillis(current.getInTimeMillis());
+            return updated;
+        }) != null;
+        if (!found) {
+            return false;
+        }
+        Ticket previous = before[0];
+        String plate = PlateNormalizer.normalize(updated.getVehicleRegNumber());
+        if (updated.hasOutTime()) {
+            openTickets.remove(plate, id);
+        }
+        boolean becameRecurring = updated.hasOutTime() && recurringPlates.add(plate);
+        UnitOfWork.afterRollback(() -> {
+            ticketsById.put(id, previous);
+            openTickets.put(previous);
+            if (becameRecurring) {
+                recurringPlates.remove(plate);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean isVehicleInside(String vehicleRegNumber) {
+        return openTickets.contains(vehicleRegNumber);
+    }
+
+    /**
+     * Returns a copy of every ticket, ordered by ID.
+     */
+    public List<Ticket> getTickets() {
+        List<Ticket> tickets = new ArrayList<>(ticketsById.size());
+        for (Ticket ticket : ticketsById.values()) {
+            tickets.add(copy(ticket));
+        }
+        tickets.sort(Comparator.comparingInt(Ticket::getId));
+        return tickets;
+    }
+
+    private void restoreLatest(String plate, int id, Integer previousLatest) {
+        if (previousLatest == null) {
+            latestIdByPlate.remove(plate, id);
+        } else {
+            latestIdByPlate.replace(plate, id, previousLatest);
+        }
+    }
+
+    static Ticket copy(Ticket ticket) {
+        Ticket copy = new Ticket();
+        copy.setId(ticket.getId());
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        copy.setParkingSpot(parkingSpot == null ? null
+                : new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable()));
+        copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        copy.setPriceCents(ticket.getPriceCents());
+        copy.setInTimeMillis(ticket.getInTimeMillis());
+        copy.setOutTimeMillis(ticket.getOutTimeMillis());
+        return copy;
+    }
+}
@@ -0,0 +1,401 @@
+package com.parkit.parkingsystem.http;
+
+import com.parkit.parkingsystem.cache.DuplicateReadFilter;
+import com.parkit.parkingsystem.config.ApplicationProperties;
+import com.parkit.parkingsystem.config.CircuitBreaker;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.DaoExecutors;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateResult;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ParkingSystem;
+import com.parkit.parkingsystem.util.AdmissionLimiter;
+import com.parkit.parkingsystem.util.Json;
+import com.parkit.parkingsystem.util.PlateNormalizer;
+import com.parkit.parkingsystem.util.StripedLock;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JSON gate API for the barrier controllers, served by the JDK's built-in HTTP
+ * server.
+ * <pre>
+ * POST /entry {"type":"CAR","plate":"AB123CD"}  201, or 400, 409 (inside, full or repeated read), 500, 503
+ * POST /exit  {"plate":"AB123CD"}               200, or 400, 404 (not inside), 409 (repeated read), 500, 503
+ * GET  /occupancy                               capacity and free spots by type
+ * GET  /tickets/AB123CD                         latest ticket of the plate, or 404
+ * GET  /metrics                                 request, repeated read, plate lock, admission and breaker counters
+ * </pre>
+ * Entry and exit answer with the {@link GateResult} fields. Each request runs on its
+ * own virtual thread when the JVM has them, see {@link DaoExecutors}. At most
+ * {@code maxConcurrentRequests} are handled at once; a request that gets no slot
+ * within {@code acquireTimeoutMillis} is answered 503 instead of queueing behind a
+ * slow database.
+ */
+public class GateHttpServer implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("GateHttpServer");
+
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final int MAX_BODY_BYTES = 4096;
+    private static final String TICKETS_PATH = "/tickets/";
+
+    public static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ParkingService parkingService;
+    private final ParkingSpotRepository parkingSpotRepository;
+    private final TicketRepository ticketRepository;
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public GateHttpServer(InetSocketAddress address, int backlog, ExecutorService executor,
+                          int maxConcurrentRequests, long acquireTimeoutMillis, ParkingService parkingService,
+                          ParkingSpotRepository parkingSpotRepository, TicketRepository ticketRepository) throws IOException {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be at least 1");
+        }
+        this.executor = executor;
+        this.parkingService = parkingService;
+        this.parkingSpotRepository = parkingSpotRepository;
+        this.ticketRepository = ticketRepository;
+        this.permits = new Semaphore(maxConcurrentRequests);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.server = HttpServer.create(address, backlog);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+        logger.info("Gate API listening on port {}", getPort());
+    }
+
+    /**
+     * Turns Nagle's algorithm off for every JDK {@code HttpServer} of the JVM, unless
+     * {@value #NO_DELAY_PROPERTY} was given on the command line. The JDK server writes
+     * headers and body separately, so with Nagle on, small responses wait for the
+     * client's delayed ACK, about 40 ms each. The JDK reads the property once, so this
+     * must run before the first server of the JVM is created; the app does it at startup.
+     */
+    public static void enableNoDelay() {
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+    }
+
+    /**
+     * Starts a server configured by the {@code http.*} keys.
+     */
+    public static GateHttpServer start(ApplicationProperties properties, ParkingService parkingService,
+                                       ParkingSpotRepository parkingSpotRepository, TicketRepository ticketRepository) throws IOException {
+        return new GateHttpServer(new InetSocketAddress(properties.getString("http.host", "0.0.0.0"), properties.getInt("http.port", 8080)),
+                properties.getInt("http.backlog", 128),
+                DaoExecutors.create(properties.getInt("http.maxPlatformThreads", 64), "http"),
+                properties.getInt("http.maxConcurrentRequests", 64),
+                properties.getLong("http.acquireTimeoutMillis", 100),
+                parkingService, parkingSpotRepository, ticketRepository);
+    }
+
+    /**
+     * Runs the parking system with the gate API only, no console, until the process
+     * is stopped. Returns the process exit code.
+     */
+    public static int serve(ApplicationProperties properties) {
+        CountDownLatch stopped = new CountDownLatch(1);
+        try (ParkingSystem parkingSystem = ParkingSystem.start(properties)) {
+            ParkingService parkingService = new ParkingService(parkingSystem.getParkingSpotRepository(),
+                    parkingSystem.getTicketRepository(), parkingSystem.getDaoExecutor(), parkingSystem.getFareCalculatorService());
+            parkingSystem.configureGates(parkingService, properties);
+            try (GateHttpServer server = start(properties, parkingService,
+                    parkingSystem.getParkingSpotRepository(), parkingSystem.getTicketRepository())) {
+                Runtime.getRuntime().addShutdownHook(new Thread(stopped::countDown, "gate-api-shutdown"));
+                stopped.await();
+                logger.info("Stopping the gate API after {} requests, {} rejected", server.getRequestCount(), server.getRejectedCount());
+            }
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        } catch (Exception e) {
+            logger.error("Unable to run the gate API", e);
+            return 1;
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Requests answered 503 because every slot was busy.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Stops accepting connections, gives running requests a second to finish and
+     * shuts the request executor down.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) {
+        requests.increment();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                send(exchange, 503, status("BUSY", "Too many concurrent requests"));
+                return;
+            }
+            try {
+                route(exchange);
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Error handling " + exchange.getRequestMethod() + " " + exchange.getRequestURI(), e);
+            try {
+                send(exchange, 500, status("ERROR", e.getMessage()));
+            } catch (IOException ignored) {
+                // the response was already started, or the client is gone
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        if ("/entry".equals(path)) {
+            if (allowed(exchange, method, "POST")) {
+                entry(exchange);
+            }
+        } else if ("/exit".equals(path)) {
+            if (allowed(exchange, method, "POST")) {
+                exit(exchange);
+            }
+        } else if ("/occupancy".equals(path)) {
+            if (allowed(exchange, method, "GET")) {
+                occupancy(exchange);
+            }
+        } else if ("/metrics".equals(path)) {
+            if (allowed(exchange, method, "GET")) {
+                send(exchange, 200, metrics());
+            }
+        } else if (path.startsWith(TICKETS_PATH) && path.length() > TICKETS_PATH.length()) {
+            if (allowed(exchange, method, "GET")) {
+                ticket(exchange, PlateNormalizer.normalize(path.substring(TICKETS_PATH.length())));
+            }
+        } else {
+            send(exchange, 404, status("NOT_FOUND", "No endpoint " + path));
+        }
+    }
+
+    private void entry(HttpExchange exchange) throws IOException {
+        Map<String, String> request = readRequest(exchange);
+        if (request == null) {
+            return;
+        }
+        ParkingType parkingType;
+        try {
+            parkingType = ParkingType.valueOf(String.valueOf(request.get("type")).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, status(GateResult.Status.INVALID_INPUT.name(), "Unknown vehicle type " + request.get("type")));
+            return;
+        }
+        GateResult result = parkingService.enter(parkingType, request.get("plate"));
+        send(exchange, httpStatus(result), result.toJson());
+    }
+
+    private void exit(HttpExchange exchange) throws IOException {
+        Map<String, String> request = readRequest(exchange);
+        if (request == null) {
+            return;
+        }
+        GateResult result = parkingService.exit(request.get("plate"));
+        send(exchange, httpStatus(result), result.toJson());
+    }
+
+    private void occupancy(HttpExchange exchange) throws IOException {
+        Json.Builder occupancy = new Json.Builder();
+        for (ParkingType parkingType : ParkingType.values()) {
+            int capacity = parkingSpotRepository.getCapacity(parkingType);
+            int available = parkingSpotRepository.getAvailableCount(parkingType);
+            if (capacity < 0 || available < 0) {
+                send(exchange, 500, status("ERROR", "Unable to count " + parkingType + " spots"));
+                return;
+            }
+            if (capacity > 0) {
+                occupancy.put(parkingType.name(), new Json.Builder()
+                        .put("capacity", capacity)
+                        .put("available", available)
+                        .put("occupied", capacity - available));
+            }
+        }
+        send(exchange, 200, occupancy);
+    }
+
+    private Json.Builder metrics() {
+        Json.Builder metrics = new Json.Builder()
+                .put("requests", getRequestCount())
+                .put("busyRejections", getRejectedCount());
+        putReads(metrics, "entryReads", parkingService.getEntryReadFilter());
+        putReads(metrics, "exitReads", parkingService.getExitReadFilter());
+        StripedLock plateLocks = parkingService.getPlateLocks();
+        metrics.put("plateLocks", new Json.Builder()
+                .put("acquired", plateLocks.getAcquiredCount())
+                .put("contended", plateLocks.getContendedCount())
+                .put("waitMillis", TimeUnit.NANOSECONDS.toMillis(plateLocks.getWaitNanos())));
+        putAdmission(metrics, "entryAdmission", parkingService.getEntryLimiter());
+        putAdmission(metrics, "exitAdmission", parkingService.getExitLimiter());
+        CircuitBreaker breaker = parkingService.getCircuitBreaker();
+        if (breaker != null) {
+            metrics.put("circuitBreaker", new Json.Builder()
+                    .put("state", breaker.getState().name())
+                    .put("consecutiveFailures", breaker.getConsecutiveFailures())
+                    .put("opened", breaker.getOpenedCount())
+                    .put("refused", breaker.getRejectedCount()));
+        }
+        return metrics;
+    }
+
+    private static void putAdmission(Json.Builder metrics, String name, AdmissionLimiter limiter) {
+        if (limiter != null) {
+            metrics.put(name, new Json.Builder()
+                    .put("inFlight", limiter.getInFlight())
+                    .put("queueDepth", limiter.getQueueDepth())
+                    .put("admitted", limiter.getAdmittedCount())
+                    .put("rejected", limiter.getRejectedCount()));
+        }
+    }
+
+    private static void putReads(Json.Builder metrics, String name, DuplicateReadFilter filter) {
+        if (filter != null) {
+            metrics.put(name, new Json.Builder()
+                    .put("accepted", filter.getAcceptedCount())
+                    .put("duplicates", filter.getRejectedCount())
+                    .put("trackedPlates", filter.getTrackedPlates()));
+        }
+    }
+
+    private void ticket(HttpExchange exchange, String vehicleRegNumber) throws IOException {
+        Ticket ticket = ticketRepository.getTicketById(vehicleRegNumber);
+        if (ticket == null) {
+            send(exchange, 404, status("NOT_FOUND", "No ticket for " + vehicleRegNumber));
+            return;
+        }
+        send(exchange, 200, new Json.Builder()
+                .put("plate", ticket.getVehicleRegNumber())
+                .put("parkingNumber", ticket.getParkingSpot().getId())
+                .put("type", ticket.getParkingSpot().getParkingType().name())
+                .put("inside", !ticket.hasOutTime())
+                .put("inTime", format(ticket.getInTime()))
+                .put("outTime", format(ticket.getOutTime()))
+                .put("priceCents", ticket.getPriceCents())
+                .put("price", ticket.getPrice()));
+    }
+
+    private static int httpStatus(GateResult result) {
+        switch (result.getStatus()) {
+            case ENTERED:
+                return 201;
+            case EXITED:
+                return 200;
+            case INVALID_INPUT:
+                return 400;
+            case NOT_INSIDE:
+                return 404;
+            case ALREADY_INSIDE:
+            case LOT_FULL:
+            case DUPLICATE_READ:
+                return 409;
+            case OVERLOADED:
+            case DEGRADED:
+                return 503;
+            default:
+                return 500;
+        }
+    }
+
+    private static boolean allowed(HttpExchange exchange, String method, String expected) throws IOException {
+        if (expected.equals(method)) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", expected);
+        send(exchange, 405, status("METHOD_NOT_ALLOWED", "Use " + expected));
+        return false;
+    }
+
+    /**
+     * Reads the JSON body, or answers 400 or 413 and returns null.
+     */
+    private static Map<String, String> readRequest(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[512];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                if (body.size() + read > MAX_BODY_BYTES) {
+                    send(exchange, 413, status("INVALID_INPUT", "Request body over " + MAX_BODY_BYTES + " bytes"));
+                    return null;
+                }
+                body.write(buffer, 0, read);
+            }
+        }
+        try {
+            return Json.parseObject(new String(body.toByteArray(), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, status(GateResult.Status.INVALID_INPUT.name(), e.getMessage()));
+            return null;
+        }
+    }
+
+    private static Json.Builder status(String status, String message) {
+        return new Json.Builder().put("status", status).put("error", message);
+    }
+
+    private static String format(Date date) {
+        return date == null ? null : Instant.ofEpochMilli(date.getTime()).toString();
+    }
+
+    private static void send(HttpExchange exchange, int code, Json.Builder json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free monotonic count. Increments from many threads land on separate cells
+ * and are only summed when the count is read.
+ */
+public class Counter implements CounterMBean {
+
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long delta) {
+        count.add(delta);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(getCount());
+    }
+}
@@ -0,0 +1,19 @@
+package com.parkit.parkingsystem.metrics;
+
+/**
+ * JMX view of a {@link LatencyHistogram}, in milliseconds.
+ */
+public interface LatencyHistogramMBean {
+
+    long getCount();
+
+    double getMeanMillis();
+
+    double getMedianMillis();
+
+    double get99thPercentileMillis();
+
+    double get999thPercentileMillis();
+
+    double getMaxMillis();
+}
@@ -0,0 +1,171 @@
+package com.parkit.parkingsystem.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Named counters and latency histograms. Callers look a metric up once and keep
+ * it, so the hot path only touches the metric itself; the registry is only read
+ * to publish them.
+ * <p>
+ * Metrics can be published as JMX MBeans under {@value #JMX_DOMAIN}, with
+ * {@code type=Counter} or {@code type=Timer} and the metric name, and as a text
+ * dump logged at a fixed interval and once more on {@link #close()}.
+ */
+public class MetricsRegistry implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("Metrics");
+
+    public static final String JMX_DOMAIN = "com.parkit.parkingsystem";
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> timers = new ConcurrentSkipListMap<>();
+    private final List<ObjectName> registered = new ArrayList<>();
+    private MBeanServer mBeanServer;
+    private ScheduledExecutorService dumper;
+
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter != null) {
+            return counter;
+        }
+        Counter created = new Counter();
+        counter = counters.putIfAbsent(name, created);
+        if (counter != null) {
+            return counter;
+        }
+        register("Counter", name, created);
+        return created;
+    }
+
+    public LatencyHistogram timer(String name) {
+        LatencyHistogram timer = timers.get(name);
+        if (timer != null) {
+            return timer;
+        }
+        LatencyHistogram created = new LatencyHistogram();
+        timer = timers.putIfAbsent(name, created);
+        if (timer != null) {
+            return timer;
+        }
+        register("Timer", name, created);
+        return created;
+    }
+
+    /**
+     * Registers every metric, and those created later, with the platform MBean
+     * server until {@link #close()}.
+     */
+    public synchronized void startJmx() {
+        if (mBeanServer != null) {
+            return;
+        }
+        mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        for (Map.Entry<String, Counter> counter : counters.entrySet()) {
+            register("Counter", counter.getKey(), counter.getValue());
+        }
+        for (Map.Entry<String, LatencyHistogram> timer : timers.entrySet()) {
+            register("Timer", timer.getKey(), timer.getValue());
+        }
+    }
+
+    private synchronized void register(String type, String name, Object metric) {
+        if (mBeanServer == null) {
+            return;
+        }
+        try {
+            ObjectName objectName = objectName(type, name);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(metric, objectName);
+                registered.add(objectName);
+            }
+        } catch (JMException e) {
+            logger.error("Unable to register metric " + name + " with JMX", e);
+        }
+    }
+
+    public static ObjectName objectName(String type, String name) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * Logs {@link #dump()} every {@code intervalMillis} on a daemon thread.
+     */
+    public synchronized void startDump(long intervalMillis) {
+        if (dumper != null) {
+            return;
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleWithFixedDelay(this::logDump, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void logDump() {
+        String dump = dump();
+        if (!dump.isEmpty()) {
+            logger.info("Metrics:{}", dump);
+        }
+    }
+
+    /**
+     * One line per metric in name order, timers first: the name, then the count,
+     * mean, percentiles and max of a timer, or the value of a counter. Timers and
+     * counters still at zero are left out. Each line starts with a line break.
+     */
+    public String dump() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> timer : timers.entrySet()) {
+            if (timer.getValue().getCount() == 0) {
+                continue;
+            }
+            text.append(System.lineSeparator()).append("  ").append(timer.getKey()).append(' ').append(timer.getValue());
+        }
+        for (Map.Entry<String, Counter> counter : counters.entrySet()) {
+            if (counter.getValue().getCount() == 0) {
+                continue;
+            }
+            text.append(System.lineSeparator()).append("  ").append(counter.getKey()).append(' ').append(counter.getValue());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Stops the periodic dump, logs the metrics one last time and unregisters the
+     * MBeans.
+     */
+    @Override
+    public synchronized void close() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+        logDump();
+        if (mBeanServer != null) {
+            for (ObjectName objectName : registered) {
+                try {
+                    mBeanServer.unregisterMBean(objectName);
+                } catch (JMException e) {
+                    logger.error("Unable to unregister " + objectName, e);
+                }
+            }
+            registered.clear();
+            mBeanServer = null;
+        }
+    }
+}
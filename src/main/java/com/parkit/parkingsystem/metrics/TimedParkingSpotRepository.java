@@ -0,0 +1,78 @@
+package com.parkit.parkingsystem.metrics;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Times every call to the wrapped repository in a {@code parkingSpot.<method>}
+ * histogram of the registry.
+ */
+public class TimedParkingSpotRepository implements ParkingSpotRepository {
+
+    private final ParkingSpotRepository delegate;
+    private final LatencyHistogram getNextAvailableSlot;
+    private final LatencyHistogram claimNextAvailableSlot;
+    private final LatencyHistogram updateParking;
+    private final LatencyHistogram getAvailableCount;
+    private final LatencyHistogram getCapacity;
+
+    public TimedParkingSpotRepository(ParkingSpotRepository delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.getNextAvailableSlot = metrics.timer("parkingSpot.getNextAvailableSlot");
+        this.claimNextAvailableSlot = metrics.timer("parkingSpot.claimNextAvailableSlot");
+        this.updateParking = metrics.timer("parkingSpot.updateParking");
+        this.getAvailableCount = metrics.timer("parkingSpot.getAvailableCount");
+        this.getCapacity = metrics.timer("parkingSpot.getCapacity");
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getNextAvailableSlot(parkingType);
+        } finally {
+            getNextAvailableSlot.recordSince(start);
+        }
+    }
+
+    @Override
+    public int claimNextAvailableSlot(ParkingType parkingType) {
+        long start = System.nanoTime();
+        try {
+            return delegate.claimNextAvailableSlot(parkingType);
+        } finally {
+            claimNextAvailableSlot.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        long start = System.nanoTime();
+        try {
+            return delegate.updateParking(parkingSpot);
+        } finally {
+            updateParking.recordSince(start);
+        }
+    }
+
+    @Override
+    public int getAvailableCount(ParkingType parkingType) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAvailableCount(parkingType);
+        } finally {
+            getAvailableCount.recordSince(start);
+        }
+    }
+
+    @Override
+    public int getCapacity(ParkingType parkingType) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getCapacity(parkingType);
+        } finally {
+            getCapacity.recordSince(start);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.parkit.parkingsystem.metrics;
+
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Times every call to the wrapped repository in a {@code ticket.<method>}
+ * histogram of the registry.
+ */
+public class TimedTicketRepository implements TicketRepository {
+
+    private final TicketRepository delegate;
+    private final LatencyHistogram saveTicket;
+    private final LatencyHistogram getTicket;
+    private final LatencyHistogram getTicketById;
+    private final LatencyHistogram isReccurent;
+    private final LatencyHistogram updateTicket;
+    private final LatencyHistogram isVehicleInside;
+
+    public TimedTicketRepository(TicketRepository delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.saveTicket = metrics.timer("ticket.saveTicket");
+        this.getTicket = metrics.timer("ticket.getTicket");
+        this.getTicketById = metrics.timer("ticket.getTicketById");
+        this.isReccurent = metrics.timer("ticket.isReccurent");
+        this.updateTicket = metrics.timer("ticket.updateTicket");
+        this.isVehicleInside = metrics.timer("ticket.isVehicleInside");
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        long start = System.nanoTime();
+        try {
+            return delegate.saveTicket(ticket);
+        } finally {
+            saveTicket.recordSince(start);
+        }
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTicket(vehicleRegNumber);
+        } finally {
+            getTicket.recordSince(start);
+        }
+    }
+
+    @Override
+    public Ticket getTicketById(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTicketById(vehicleRegNumber);
+        } finally {
+            getTicketById.recordSince(start);
+        }
+    }
+
+    @Override
+    public Boolean isReccurent(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        try {
+            return delegate.isReccurent(vehicleRegNumber);
+        } finally {
+            isReccurent.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        long start = System.nanoTime();
+        try {
+            return delegate.updateTicket(ticket);
+        } finally {
+            updateTicket.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean isVehicleInside(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        try {
+            return delegate.isVehicleInside(vehicleRegNumber);
+        } finally {
+            isVehicleInside.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean isWriteBehind() {
+        return delegate.isWriteBehind();
+    }
+}
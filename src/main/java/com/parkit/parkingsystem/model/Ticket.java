@@ -1,14 +1,27 @@
 package com.parkit.parkingsystem.model;
 
+import com.parkit.parkingsystem.util.MoneyUtil;
+
 import java.util.Date;
 
+/**
+ * A parking stay. The price is held in cents and the times in epoch milliseconds,
+ * so copying and pricing a ticket allocates nothing; the {@code double} and
+ * {@link Date} accessors convert on each call.
+ */
 public class Ticket {
+
+    /**
+     * Value of {@link #getInTimeMillis()} and {@link #getOutTimeMillis()} while unset.
+     */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
     private int id;
     private ParkingSpot parkingSpot;
     private String vehicleRegNumber;
-    private double price;
-    private Date inTime;
-    private Date outTime;
+    private long priceCents;
+    private long inTimeMillis = NO_TIME;
+    private long outTimeMillis = NO_TIME;
 
     public int getId() {
         return id;
@@ -34,27 +47,58 @@ public class Ticket {
         this.vehicleRegNumber = vehicleRegNumber;
     }
 
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    public void setPriceCents(long priceCents) {
+        this.priceCents = priceCents;
+    }
+
     public double getPrice() {
-        return price;
+        return MoneyUtil.toUnits(priceCents);
     }
 
+    /**
+     * Sets the price rounded to the nearest cent, halves away from zero.
+     */
     public void setPrice(double price) {
-        this.price = price;
+        this.priceCents = MoneyUtil.toCents(price);
+    }
+
+    public long getInTimeMillis() {
+        return inTimeMillis;
+    }
+
+    public void setInTimeMillis(long inTimeMillis) {
+        this.inTimeMillis = inTimeMillis;
+    }
+
+    public long getOutTimeMillis() {
+        return outTimeMillis;
+    }
+
+    public void setOutTimeMillis(long outTimeMillis) {
+        this.outTimeMillis = outTimeMillis;
+    }
+
+    public boolean hasOutTime() {
+        return outTimeMillis != NO_TIME;
     }
 
     public Date getInTime() {
-        return inTime;
+        return inTimeMillis == NO_TIME ? null : new Date(inTimeMillis);
     }
 
     public void setInTime(Date inTime) {
-        this.inTime = inTime == null ? null : new Date(inTime.getTime());
+        this.inTimeMillis = inTime == null ? NO_TIME : inTime.getTime();
     }
 
     public Date getOutTime() {
-        return outTime;
+        return outTimeMillis == NO_TIME ? null : new Date(outTimeMillis);
     }
 
     public void setOutTime(Date outTime) {
-        this.outTime = outTime == null ? null : new Date(outTime.getTime());
+        this.outTimeMillis = outTime == null ? NO_TIME : outTime.getTime();
     }
 }
@@ -0,0 +1,246 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.ApplicationProperties;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.util.Json;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the gates from a stream of one-line commands instead of the interactive menu,
+ * for scripts and other programs:
+ * <pre>
+ * IN CAR AB123CD
+ * OUT AB123CD
+ * </pre>
+ * Keywords are case-insensitive, {@code ENTRY} and {@code EXIT} may be used instead of
+ * {@code IN} and {@code OUT}, and blank lines and lines starting with {@code #} are
+ * skipped. Each command writes exactly one line of JSON, the same object the gate API
+ * answers with; a command that cannot be parsed gets an {@code INVALID_INPUT} line with
+ * the reason. Output is flushed whenever no more input is waiting, so a program talking
+ * to the shell over a pipe sees each answer as soon as it is ready.
+ * <p>
+ * In this mode the console log goes to standard error, so standard output only ever
+ * carries result lines.
+ */
+public class CommandShell {
+
+    private static final Logger logger = LogManager.getLogger("CommandShell");
+
+    public static final String COMMAND = "commands";
+
+    static final String CONSOLE_TARGET_PROPERTY = "parkit.console.target";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ParkingService parkingService;
+    private long commands;
+    private long invalid;
+    private long failed;
+
+    public CommandShell(ParkingService parkingService) {
+        this.parkingService = parkingService;
+    }
+
+    /**
+     * Runs every command read from {@code in} and writes one result line per command
+     * to {@code out}, until the input ends.
+     */
+    public void run(Reader in, Writer out) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, BUFFER_SIZE);
+        Writer writer = out instanceof BufferedWriter ? out : new BufferedWriter(out, BUFFER_SIZE);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            commands++;
+            GateResult result;
+            try {
+                result = execute(line);
+            } catch (IllegalArgumentException e) {
+                invalid++;
+                writer.write(new Json.Builder()
+                        .put("status", GateResult.Status.INVALID_INPUT.name())
+                        .put("line", lineNumber)
+                        .put("error", e.getMessage())
+                        .toString());
+                writer.write('\n');
+                flushIfIdle(reader, writer);
+                continue;
+            }
+            if (!result.isSuccess()) {
+                failed++;
+            }
+            writer.write(result.toJson().toString());
+            writer.write('\n');
+            flushIfIdle(reader, writer);
+        }
+        writer.flush();
+    }
+
+    private GateResult execute(String line) {
+        int end = nextSpace(line, 0);
+        String keyword = line.substring(0, end).toUpperCase(Locale.ROOT);
+        switch (keyword) {
+            case "IN":
+            case "ENTRY": {
+                int typeStart = skipSpaces(line, end);
+                int typeEnd = nextSpace(line, typeStart);
+                ParkingType parkingType = parseType(line.substring(typeStart, typeEnd));
+                return parkingService.enter(parkingType, plate(line, typeEnd));
+            }
+            case "OUT":
+            case "EXIT":
+                return parkingService.exit(plate(line, end));
+            default:
+                throw new IllegalArgumentException("Unknown command " + keyword + ", expected IN <CAR|BIKE> <plate> or OUT <plate>");
+        }
+    }
+
+    private static ParkingType parseType(String type) {
+        if ("CAR".equalsIgnoreCase(type)) {
+            return ParkingType.CAR;
+        }
+        if ("BIKE".equalsIgnoreCase(type)) {
+            return ParkingType.BIKE;
+        }
+        throw new IllegalArgumentException(type.isEmpty() ? "Missing vehicle type" : "Unknown vehicle type " + type);
+    }
+
+    /**
+     * The rest of the line, so a plate may be written with spaces in it.
+     */
+    private static String plate(String line, int from) {
+        String plate = line.substring(skipSpaces(line, from));
+        if (plate.isEmpty()) {
+            throw new IllegalArgumentException("Missing vehicle registration number");
+        }
+        return plate;
+    }
+
+    private static int nextSpace(String line, int from) {
+        int i = from;
+        while (i < line.length() && !Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipSpaces(String line, int from) {
+        int i = from;
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static void flushIfIdle(BufferedReader reader, Writer writer) throws IOException {
+        if (!reader.ready()) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Moves the console appender of {@code log4j2.xml} to standard error, by setting
+     * the property its target is read from and loading the configuration again.
+     */
+    private static void logToStandardError() {
+        System.setProperty(CONSOLE_TARGET_PROPERTY, "SYSTEM_ERR");
+        Object context = LogManager.getContext(false);
+        if (context instanceof LoggerContext) {
+            ((LoggerContext) context).reconfigure();
+        }
+    }
+
+    /**
+     * Commands read, not counting blank and comment lines.
+     */
+    public long getCommandCount() {
+        return commands;
+    }
+
+    /**
+     * Commands that could not be parsed.
+     */
+    public long getInvalidCount() {
+        return invalid;
+    }
+
+    /**
+     * Commands that were parsed but refused or failed at the gate.
+     */
+    public long getFailedCount() {
+        return failed;
+    }
+
+    /**
+     * Entry point of {@code App commands <file|-> [--output=file]}: runs the commands
+     * from the file, or standard input, against the configured storage and writes the
+     * results to the output file, or standard output. Repeated reads are not filtered,
+     * since a script sending the same plate twice means it. Returns 0 when every
+     * command could be parsed, 1 otherwise, and 2 on a usage error.
+     */
+    public static int runCommand(String[] args, ApplicationProperties properties) {
+        String source = null;
+        String output = null;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--output=")) {
+                    output = arg.substring("--output=".length());
+                } else if (source == null) {
+                    source = arg;
+                } else {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+            }
+            if (source == null) {
+                throw new IllegalArgumentException("Missing input file");
+            }
+        } catch (IllegalArgumentException e) {
+            logger.error("{}. Usage: {} <file|-> [--output=file]", e.getMessage(), COMMAND);
+            return 2;
+        }
+
+        logToStandardError();
+        // standard output may still be used by the caller, so it is flushed but never closed
+        Writer stdout = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        try (ParkingSystem parkingSystem = ParkingSystem.start(properties);
+             Reader in = "-".equals(source) ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                     : Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8);
+             Writer file = output == null ? null : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+            ParkingService parkingService = new ParkingService(parkingSystem.getParkingSpotRepository(),
+                    parkingSystem.getTicketRepository(), parkingSystem.getDaoExecutor(), parkingSystem.getFareCalculatorService());
+            parkingSystem.configureGates(parkingService, properties);
+            parkingService.setDuplicateReadWindowMillis(0);
+            CommandShell shell = new CommandShell(parkingService);
+            long start = System.nanoTime();
+            shell.run(in, file != null ? file : stdout);
+            long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            logger.info("Ran {} commands in {} ms ({} per second), {} invalid, {} refused or failed",
+                    shell.getCommandCount(), elapsedMillis, shell.getCommandCount() * 1000 / elapsedMillis,
+                    shell.getInvalidCount(), shell.getFailedCount());
+            return shell.getInvalidCount() == 0 ? 0 : 1;
+        } catch (Exception e) {
+            logger.error("Unable to run the commands", e);
+            return 1;
+        }
+    }
+}
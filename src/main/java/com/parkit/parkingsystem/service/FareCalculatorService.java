@@ -1,42 +1,58 @@
 package com.parkit.parkingsystem.service;
 
-import com.parkit.parkingsystem.constants.Fare;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.tariff.Tariff;
 
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Prices tickets with the current {@link Tariff}. The tariff can be replaced at any
+ * time with {@link #setTariff}; each ticket is priced with the tariff that was
+ * current when pricing started, and gates never wait for a swap.
+ */
 public class FareCalculatorService {
 
+    private final AtomicReference<Tariff> tariff;
 
-    public void calculateFare(Ticket ticket) {
-        if ((ticket.getOutTime() == null) || (ticket.getOutTime().before(ticket.getInTime()))) {
-            throw new IllegalArgumentException("Out time provided is incorrect:" + ticket.getOutTime().toString());
-        }
+    public FareCalculatorService() {
+        this(Tariff.defaultTariff());
+    }
 
-        long inTime = ticket.getInTime().getTime();
-        long outTime = ticket.getOutTime().getTime();
-        double duration = ((double) (outTime - inTime) / 3600000);
-        if(duration <= 0.5){
-            ticket.setPrice(0.0);
-        }else{
-            switch (ticket.getParkingSpot().getParkingType()) {
-                case CAR: {
-                    ticket.setPrice(duration * Fare.CAR_RATE_PER_HOUR);
-                    break;
-                }
-                case BIKE: {
-                    ticket.setPrice(duration * Fare.BIKE_RATE_PER_HOUR);
-                    break;
-                }
-                default:
-                    throw new IllegalArgumentException("Unkown Parking Type");
-            }
-        }
+    public FareCalculatorService(Tariff tariff) {
+        this.tariff = new AtomicReference<>(tariff);
+    }
 
+    public Tariff getTariff() {
+        return tariff.get();
+    }
 
+    public void setTariff(Tariff tariff) {
+        this.tariff.set(tariff);
+    }
 
+    public void calculateFare(Ticket ticket) {
+        calculateFare(ticket, false);
+    }
+
+    /**
+     * Prices the ticket, with the tariff's recurring customer discount if asked.
+     */
+    public void calculateFare(Ticket ticket, boolean recurring) {
+        checkTimes(ticket);
+        ticket.setPriceCents(tariff.get().priceCents(ticket.getParkingSpot().getParkingType(),
+                ticket.getInTimeMillis(), ticket.getOutTimeMillis(), recurring));
     }
+
     public void calculateFareDiscount(Ticket ticket, double discount) {
-        calculateFare(ticket);
-        ticket.setPrice(ticket.getPrice() * discount );
+        checkTimes(ticket);
+        ticket.setPriceCents(tariff.get().priceCents(ticket.getParkingSpot().getParkingType(),
+                ticket.getInTimeMillis(), ticket.getOutTimeMillis(), discount));
+    }
+
+    private static void checkTimes(Ticket ticket) {
+        if (!ticket.hasOutTime() || ticket.getOutTimeMillis() < ticket.getInTimeMillis()) {
+            throw new IllegalArgumentException("Out time provided is incorrect:" + ticket.getOutTime().toString());
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,340 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.ApplicationProperties;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.TicketBatchWriter;
+import com.parkit.parkingsystem.dao.memory.InMemoryStorage;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.Json;
+import com.parkit.parkingsystem.util.ManualClock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays recorded gate events through {@link ParkingService#enter} and
+ * {@link ParkingService#exit}, as fast as they can be read. Each ticket gets the
+ * time of its event from a {@link ManualClock}, so fares come out as they would
+ * have at the gate. Events are applied in file order to an in-memory lot, on the
+ * calling thread: the gates never wait for the DB.
+ * <p>
+ * Two formats are read, one event per line:
+ * <ul>
+ *     <li>CSV: {@code timestamp,event,plate[,type]}, with an optional header line
+ *     starting with {@code timestamp} or {@code time}</li>
+ *     <li>JSON lines: {@code {"time":..., "event":..., "plate":..., "type":...}}</li>
+ * </ul>
+ * A timestamp is epoch milliseconds or an ISO-8601 instant such as
+ * {@code 2024-03-04T10:15:30Z}. The event is {@code ENTRY} or {@code IN}, {@code EXIT}
+ * or {@code OUT}; the type is required on entry. Blank lines and lines starting with
+ * {@code #} are skipped, invalid lines are counted and skipped.
+ * <p>
+ * When persisting, each closed ticket is queued on a {@link TicketBatchWriter} as it
+ * exits, with at most {@code maxPendingWrites} writes in flight, and the tickets still
+ * open at the end are written last along with their spots. Recurring customers are
+ * those seen earlier in the stream. A replayer replays one stream.
+ */
+public class GateEventReplayer {
+
+    private static final Logger logger = LogManager.getLogger("GateEventReplayer");
+
+    public static final String COMMAND = "replay";
+
+    public enum Format { CSV, JSONL }
+
+    private static final int READ_BUFFER_CHARS = 1 << 16;
+    private static final int MAX_LOGGED_PARSE_ERRORS = 10;
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final InMemoryStorage storage;
+    private final ManualClock clock = new ManualClock(0);
+    private final ParkingService parkingService;
+    private final TicketBatchWriter batchWriter;
+    private final ParkingSpotRepository persistedSpots;
+    private final int maxPendingWrites;
+
+    private final Deque<CompletableFuture<Boolean>> pendingWrites = new ArrayDeque<>();
+    private final long[] statusCounts = new long[GateResult.Status.values().length];
+    private long parseErrors;
+    private long persisted;
+    private long writeFailures;
+
+    /**
+     * Replays into {@code storage} only.
+     */
+    public GateEventReplayer(InMemoryStorage storage, FareCalculatorService fareCalculatorService) {
+        this(storage, fareCalculatorService, null, null, 1);
+    }
+
+    /**
+     * Replays into {@code storage} and writes the tickets with {@code batchWriter},
+     * marking the spots of the tickets left open as taken in {@code persistedSpots}.
+     */
+    public GateEventReplayer(InMemoryStorage storage, FareCalculatorService fareCalculatorService,
+                             TicketBatchWriter batchWriter, ParkingSpotRepository persistedSpots, int maxPendingWrites) {
+        if (maxPendingWrites < 1) {
+            throw new IllegalArgumentException("maxPendingWrites must be at least 1");
+        }
+        this.storage = storage;
+        this.parkingService = new ParkingService(storage.getParkingSpotRepository(), storage.getTicketRepository(),
+                Runnable::run, fareCalculatorService, clock);
+        this.batchWriter = batchWriter;
+        this.persistedSpots = persistedSpots;
+        this.maxPendingWrites = maxPendingWrites;
+    }
+
+    /**
+     * Absorbs repeated reads of a plate within {@code windowMillis} of event time,
+     * as {@link ParkingService#setDuplicateReadWindowMillis} does at the gates.
+     */
+    public void setDuplicateReadWindowMillis(long windowMillis) {
+        parkingService.setDuplicateReadWindowMillis(windowMillis);
+    }
+
+    /**
+     * Reads events until the end of {@code in}, then waits for the pending writes.
+     */
+    public ReplayReport replay(Reader in, Format format) throws IOException {
+        long start = System.nanoTime();
+        long lastProgress = start;
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, READ_BUFFER_CHARS);
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#") || (lineNumber == 1 && format == Format.CSV && isHeader(trimmed))) {
+                continue;
+            }
+            Event event;
+            try {
+                event = format == Format.CSV ? parseCsv(trimmed) : parseJson(trimmed);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                if (parseErrors++ < MAX_LOGGED_PARSE_ERRORS) {
+                    logger.warn("Skipping line {}: {}", lineNumber, e.getMessage());
+                }
+                continue;
+            }
+            apply(event);
+            if ((lineNumber & 0xFFF) == 0 && System.nanoTime() - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                lastProgress = System.nanoTime();
+                logger.info("Replay in progress: {}", report(start));
+            }
+        }
+        if (batchWriter != null) {
+            persistOpenTickets();
+            while (!pendingWrites.isEmpty()) {
+                awaitOldestWrite();
+            }
+        }
+        return report(start);
+    }
+
+    private ReplayReport report(long start) {
+        return new ReplayReport(statusCounts, parseErrors, persisted, writeFailures, System.nanoTime() - start);
+    }
+
+    private void apply(Event event) {
+        clock.setMillis(event.timeMillis);
+        GateResult result = event.entry ? parkingService.enter(event.parkingType, event.plate)
+                : parkingService.exit(event.plate);
+        statusCounts[result.getStatus().ordinal()]++;
+        if (batchWriter != null && result.getStatus() == GateResult.Status.EXITED) {
+            persist(result.getTicket());
+        }
+    }
+
+    private void persistOpenTickets() {
+        for (Ticket ticket : storage.getTicketRepository().getTickets()) {
+            if (!ticket.hasOutTime()) {
+                persist(ticket);
+                ParkingSpot parkingSpot = ticket.getParkingSpot();
+                if (!persistedSpots.updateParking(new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), false))) {
+                    writeFailures++;
+                }
+            }
+        }
+    }
+
+    private void persist(Ticket ticket) {
+        if (pendingWrites.size() >= maxPendingWrites) {
+            awaitOldestWrite();
+        }
+        pendingWrites.add(batchWriter.submitSave(ticket));
+    }
+
+    private void awaitOldestWrite() {
+        try {
+            if (pendingWrites.poll().join()) {
+                persisted++;
+            } else {
+                writeFailures++;
+            }
+        } catch (RuntimeException e) {
+            if (writeFailures++ == 0) {
+                logger.error("Error persisting replayed tickets", e);
+            }
+        }
+    }
+
+    private static boolean isHeader(String line) {
+        return line.toLowerCase(Locale.ROOT).startsWith("time");
+    }
+
+    static Event parseCsv(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length < 3 || fields.length > 4) {
+            throw new IllegalArgumentException("expected timestamp,event,plate[,type]");
+        }
+        return event(fields[0].trim(), fields[1].trim(), fields[2].trim(), fields.length == 4 ? fields[3].trim() : null);
+    }
+
+    static Event parseJson(String line) {
+        Map<String, String> fields = Json.parseObject(line);
+        String time = fields.containsKey("time") ? fields.get("time") : fields.get("timestamp");
+        return event(time, fields.get("event"), fields.get("plate"), fields.get("type"));
+    }
+
+    private static Event event(String time, String kind, String plate, String type) {
+        if (time == null || time.isEmpty()) {
+            throw new IllegalArgumentException("missing timestamp");
+        }
+        if (plate == null || plate.isEmpty()) {
+            throw new IllegalArgumentException("missing plate");
+        }
+        boolean entry;
+        if ("ENTRY".equalsIgnoreCase(kind) || "IN".equalsIgnoreCase(kind)) {
+            entry = true;
+        } else if ("EXIT".equalsIgnoreCase(kind) || "OUT".equalsIgnoreCase(kind)) {
+            entry = false;
+        } else {
+            throw new IllegalArgumentException("unknown event " + kind);
+        }
+        ParkingType parkingType = null;
+        if (type != null && !type.isEmpty()) {
+            parkingType = ParkingType.valueOf(type.toUpperCase(Locale.ROOT));
+        } else if (entry) {
+            throw new IllegalArgumentException("missing vehicle type");
+        }
+        return new Event(parseTime(time), entry, plate, parkingType);
+    }
+
+    private static long parseTime(String time) {
+        for (int i = 0; i < time.length(); i++) {
+            if (!Character.isDigit(time.charAt(i))) {
+                return Instant.parse(time).toEpochMilli();
+            }
+        }
+        return Long.parseLong(time);
+    }
+
+    /**
+     * Runs {@code replay <file|-> [--format=csv|jsonl] [--persist]}. The format
+     * defaults to JSON lines for {@code .jsonl} and {@code .ndjson} files, CSV
+     * otherwise. Without {@code --persist} the lot layout is
+     * {@code storage.memory.spots}; with it, the spots free in the DB. Returns 0 when
+     * nothing failed, 1 otherwise and 2 on invalid arguments.
+     */
+    public static int runCommand(String[] args, ApplicationProperties properties) {
+        String source = null;
+        Format format = null;
+        boolean persist = false;
+        try {
+            for (String arg : args) {
+                if ("--persist".equals(arg)) {
+                    persist = true;
+                } else if (arg.startsWith("--format=")) {
+                    format = Format.valueOf(arg.substring("--format=".length()).toUpperCase(Locale.ROOT));
+                } else if (source == null) {
+                    source = arg;
+                } else {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+            }
+            if (source == null) {
+                throw new IllegalArgumentException("Missing input file");
+            }
+        } catch (IllegalArgumentException e) {
+            logger.error("{}. Usage: {} <file|-> [--format=csv|jsonl] [--persist]", e.getMessage(), COMMAND);
+            return 2;
+        }
+        if (format == null) {
+            format = source.endsWith(".jsonl") || source.endsWith(".ndjson") ? Format.JSONL : Format.CSV;
+        }
+
+        TicketBatchWriter batchWriter = null;
+        try (Reader in = "-".equals(source) ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8)) {
+            FareCalculatorService fareCalculatorService = new FareCalculatorService(ParkingSystem.loadConfiguredTariff(properties));
+            GateEventReplayer replayer;
+            if (persist) {
+                ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+                List<ParkingSpot> free = new ArrayList<>();
+                for (ParkingSpot parkingSpot : parkingSpotDAO.getParkingSpots()) {
+                    if (parkingSpot.isAvailable()) {
+                        free.add(parkingSpot);
+                    }
+                }
+                batchWriter = new TicketBatchWriter(parkingSpotDAO.dataBaseConfig,
+                        properties.getInt("replay.batchSize", 500), properties.getLong("replay.maxDelayMillis", 5));
+                replayer = new GateEventReplayer(new InMemoryStorage(free), fareCalculatorService, batchWriter,
+                        parkingSpotDAO, properties.getInt("replay.maxPendingWrites", 10000));
+                logger.info("Replaying {} into the DB over {} free parking spots", source, free.size());
+            } else {
+                replayer = new GateEventReplayer(new InMemoryStorage(ParkingSystem.parseLayout(
+                        properties.getString("storage.memory.spots", "CAR:3,BIKE:2"))), fareCalculatorService);
+                logger.info("Replaying {} in memory", source);
+            }
+            replayer.setDuplicateReadWindowMillis(properties.getLong("gate.duplicateReadWindowMillis", 0));
+            ReplayReport report = replayer.replay(in, format);
+            logger.info("Replay done: {}", report);
+            return report.getFailed() == 0 ? 0 : 1;
+        } catch (Exception e) {
+            logger.error("Replay failed", e);
+            return 1;
+        } finally {
+            if (batchWriter != null) {
+                batchWriter.close();
+            }
+            if (persist) {
+                DataBaseConfig.shutdown();
+            }
+        }
+    }
+
+    static final class Event {
+
+        final long timeMillis;
+        final boolean entry;
+        final String plate;
+        final ParkingType parkingType;
+
+        Event(long timeMillis, boolean entry, String plate, ParkingType parkingType) {
+            this.timeMillis = timeMillis;
+            this.entry = entry;
+            this.plate = plate;
+            this.parkingType = parkingType;
+        }
+    }
+}
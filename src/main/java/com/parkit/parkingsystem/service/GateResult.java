@@ -0,0 +1,157 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.Json;
+import com.parkit.parkingsystem.util.MoneyUtil;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Outcome of {@link ParkingService#enter} or {@link ParkingService#exit}. On success
+ * it carries the ticket's spot, time and fare; otherwise the reason, and the cause
+ * for {@link Status#ERROR}.
+ */
+public final class GateResult {
+
+    public enum Status {
+        /** A spot was assigned and the ticket saved. */
+        ENTERED,
+        /** The ticket was closed and priced. */
+        EXITED,
+        /** No plate or no vehicle type was given. */
+        INVALID_INPUT,
+        /** The vehicle already has an open ticket. */
+        ALREADY_INSIDE,
+        /** No spot of the requested type is free. */
+        LOT_FULL,
+        /** The vehicle has no open ticket. */
+        NOT_INSIDE,
+        /** The same plate was read at this gate direction moments ago; nothing was done. */
+        DUPLICATE_READ,
+        /** The repository reported that the ticket could not be written. */
+        NOT_SAVED,
+        /** Too many calls of this kind were running or waiting; nothing was done. */
+        OVERLOADED,
+        /** The database keeps failing and calls to it are suspended for a while; nothing was done. */
+        DEGRADED,
+        /** An unexpected exception, see {@link #getError()}. */
+        ERROR
+    }
+
+    private final Status status;
+    private final String vehicleRegNumber;
+    private final Ticket ticket;
+    private final boolean recurring;
+    private final Exception error;
+
+    private GateResult(Status status, String vehicleRegNumber, Ticket ticket, boolean recurring, Exception error) {
+        this.status = status;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.ticket = ticket;
+        this.recurring = recurring;
+        this.error = error;
+    }
+
+    static GateResult success(Status status, Ticket ticket, boolean recurring) {
+        return new GateResult(status, ticket.getVehicleRegNumber(), ticket, recurring, null);
+    }
+
+    static GateResult failure(Status status, String vehicleRegNumber) {
+        return new GateResult(status, vehicleRegNumber, null, false, null);
+    }
+
+    static GateResult error(String vehicleRegNumber, Exception error) {
+        return new GateResult(Status.ERROR, vehicleRegNumber, null, false, error);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSuccess() {
+        return status == Status.ENTERED || status == Status.EXITED;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    /**
+     * The spot number assigned on entry or freed on exit, 0 on failure.
+     */
+    public int getParkingNumber() {
+        ParkingSpot parkingSpot = ticket == null ? null : ticket.getParkingSpot();
+        return parkingSpot == null ? 0 : parkingSpot.getId();
+    }
+
+    /**
+     * The fare in cents, 0 unless {@link Status#EXITED}.
+     */
+    public long getPriceCents() {
+        return ticket == null ? 0 : ticket.getPriceCents();
+    }
+
+    public double getPrice() {
+        return MoneyUtil.toUnits(getPriceCents());
+    }
+
+    public Date getInTime() {
+        return ticket == null ? null : ticket.getInTime();
+    }
+
+    public Date getOutTime() {
+        return ticket == null ? null : ticket.getOutTime();
+    }
+
+    /**
+     * Whether the vehicle is a recurring customer, and gets or got the discount.
+     */
+    public boolean isRecurring() {
+        return recurring;
+    }
+
+    public Exception getError() {
+        return error;
+    }
+
+    /**
+     * The ticket as saved on entry or closed on exit, null on failure.
+     */
+    Ticket getTicket() {
+        return ticket;
+    }
+
+    /**
+     * The result as a JSON object: status and plate, plus the spot, times, fare and
+     * recurring flag on success, or the error message.
+     */
+    public Json.Builder toJson() {
+        Json.Builder json = new Json.Builder()
+                .put("status", status.name())
+                .put("plate", vehicleRegNumber);
+        if (isSuccess()) {
+            json.put("parkingNumber", getParkingNumber())
+                    .put("inTime", format(getInTime()))
+                    .put("outTime", format(getOutTime()))
+                    .put("priceCents", getPriceCents())
+                    .put("price", getPrice())
+                    .put("recurring", recurring);
+        }
+        if (error != null) {
+            json.put("error", String.valueOf(error.getMessage()));
+        }
+        return json;
+    }
+
+    private static String format(Date date) {
+        return date == null ? null : Instant.ofEpochMilli(date.getTime()).toString();
+    }
+
+    @Override
+    public String toString() {
+        return status + " " + vehicleRegNumber + (isSuccess() ? " spot " + getParkingNumber() : "")
+                + (status == Status.EXITED ? " fare " + getPrice() : "") + (error != null ? " " + error : "");
+    }
+}
@@ -1,7 +1,7 @@
 package com.parkit.parkingsystem.service;
 
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.config.ApplicationProperties;
+import com.parkit.parkingsystem.http.GateHttpServer;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -15,10 +15,28 @@ public class InteractiveShell {
         logger.info("Welcome to Parking System!");
 
         boolean continueApp = true;
+        ApplicationProperties properties = ApplicationProperties.load(ApplicationProperties.DEFAULT_RESOURCE);
         InputReaderUtil inputReaderUtil = new InputReaderUtil();
-        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
-        TicketDAO ticketDAO = new TicketDAO();
-        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        ParkingSystem parkingSystem;
+        try{
+            parkingSystem = ParkingSystem.start(properties);
+        }catch(Exception e){
+            logger.error("Unable to start the parking system", e);
+            return;
+        }
+        ParkingService parkingService = new ParkingService(inputReaderUtil,
+                parkingSystem.getParkingSpotRepository(), parkingSystem.getTicketRepository(),
+                parkingSystem.getDaoExecutor(), parkingSystem.getFareCalculatorService());
+        parkingSystem.configureGates(parkingService, properties);
+        GateHttpServer gateHttpServer = null;
+        if(properties.getBoolean("http.enabled", false)){
+            try{
+                gateHttpServer = GateHttpServer.start(properties, parkingService,
+                        parkingSystem.getParkingSpotRepository(), parkingSystem.getTicketRepository());
+            }catch(Exception e){
+                logger.error("Unable to start the gate API, continuing with the console only", e);
+            }
+        }
 
         while(continueApp){
             loadMenu();
@@ -35,6 +53,10 @@ public class InteractiveShell {
                 case 3: {
                     logger.info("Exiting from the system!");
                     continueApp = false;
+                    if(gateHttpServer != null){
+                        gateHttpServer.close();
+                    }
+                    parkingSystem.close();
                     break;
                 }
                 default:
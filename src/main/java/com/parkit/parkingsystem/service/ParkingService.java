@@ -1,62 +1,296 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.cache.DuplicateReadFilter;
+import com.parkit.parkingsystem.config.CircuitBreaker;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.ParkingType;
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.AsyncTicketRepository;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.AdmissionLimiter;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.PlateNormalizer;
+import com.parkit.parkingsystem.util.StripedLock;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Clock;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 
+/**
+ * Entry and exit of vehicles. {@link #enter} and {@link #exit} are the gate API and
+ * hold no per-call state, so one instance can serve many gates concurrently; the
+ * {@code process*} methods are the interactive client reading from
+ * {@link InputReaderUtil}.
+ * <p>
+ * Plates are normalized on the way in, so tickets are stored and looked up under
+ * one spelling whatever the gate read, and the per-plate state below is keyed on
+ * that spelling.
+ * <p>
+ * Entries and exits of the same plate are serialized by a striped lock, so two
+ * gates reading one vehicle at once cannot both open a ticket or both close it.
+ * Different plates only share a lock when they hash to the same stripe. The lock
+ * covers the gates of this process only.
+ */
 public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
-    private static final Double DISCOUNT = 0.95;
 
-    private static FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private static final int PLATE_LOCK_STRIPES = 256;
 
-    private InputReaderUtil inputReaderUtil;
-    private ParkingSpotDAO parkingSpotDAO;
-    private  TicketDAO ticketDAO;
+    private final InputReaderUtil inputReaderUtil;
+    private final ParkingSpotRepository parkingSpotDAO;
+    private final TicketRepository ticketDAO;
+    private final AsyncTicketRepository asyncTicketDAO;
+    private final FareCalculatorService fareCalculatorService;
+    private final Clock clock;
+    private final StripedLock plateLocks = new StripedLock(PLATE_LOCK_STRIPES);
+    private volatile DuplicateReadFilter entryReads;
+    private volatile DuplicateReadFilter exitReads;
+    private volatile AdmissionLimiter entryLimiter;
+    private volatile AdmissionLimiter exitLimiter;
+    private volatile CircuitBreaker circuitBreaker;
+    private volatile GateMetrics entryMetrics;
+    private volatile GateMetrics exitMetrics;
 
-    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotRepository parkingSpotDAO, TicketRepository ticketDAO){
+        this(inputReaderUtil, parkingSpotDAO, ticketDAO, Runnable::run);
+    }
+
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotRepository parkingSpotDAO, TicketRepository ticketDAO,
+                          Executor daoExecutor){
+        this(inputReaderUtil, parkingSpotDAO, ticketDAO, daoExecutor, new FareCalculatorService());
+    }
+
+    /**
+     * A service driven only through {@link #enter} and {@link #exit}, without the
+     * interactive input.
+     */
+    public ParkingService(ParkingSpotRepository parkingSpotDAO, TicketRepository ticketDAO,
+                          Executor daoExecutor, FareCalculatorService fareCalculatorService){
+        this(null, parkingSpotDAO, ticketDAO, daoExecutor, fareCalculatorService, Clock.systemUTC());
+    }
+
+    /**
+     * A headless service that stamps tickets with {@code clock} instead of the system
+     * time, to replay recorded events.
+     */
+    public ParkingService(ParkingSpotRepository parkingSpotDAO, TicketRepository ticketDAO,
+                          Executor daoExecutor, FareCalculatorService fareCalculatorService, Clock clock){
+        this(null, parkingSpotDAO, ticketDAO, daoExecutor, fareCalculatorService, clock);
+    }
+
+    /**
+     * @param daoExecutor runs the independent lookups of entry and exit concurrently,
+     *                    see {@link com.parkit.parkingsystem.dao.DaoExecutors}
+     * @param fareCalculatorService prices exits with its current tariff
+     */
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotRepository parkingSpotDAO, TicketRepository ticketDAO,
+                          Executor daoExecutor, FareCalculatorService fareCalculatorService){
+        this(inputReaderUtil, parkingSpotDAO, ticketDAO, daoExecutor, fareCalculatorService, Clock.systemUTC());
+    }
+
+    private ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotRepository parkingSpotDAO, TicketRepository ticketDAO,
+                           Executor daoExecutor, FareCalculatorService fareCalculatorService, Clock clock){
         this.inputReaderUtil = inputReaderUtil;
         this.parkingSpotDAO = parkingSpotDAO;
         this.ticketDAO = ticketDAO;
+        this.asyncTicketDAO = new AsyncTicketRepository(ticketDAO, daoExecutor);
+        this.fareCalculatorService = fareCalculatorService;
+        this.clock = clock;
+    }
+
+    /**
+     * Absorbs repeated reads of a plate at the same gate direction within
+     * {@code windowMillis}, answered {@link GateResult.Status#DUPLICATE_READ} without
+     * touching the repositories. 0 turns it off, the default.
+     */
+    public void setDuplicateReadWindowMillis(long windowMillis) {
+        entryReads = windowMillis > 0 ? new DuplicateReadFilter(windowMillis) : null;
+        exitReads = windowMillis > 0 ? new DuplicateReadFilter(windowMillis) : null;
+    }
+
+    /**
+     * The entry side filter, null when repeated reads are not filtered.
+     */
+    public DuplicateReadFilter getEntryReadFilter() {
+        return entryReads;
+    }
+
+    public DuplicateReadFilter getExitReadFilter() {
+        return exitReads;
+    }
+
+    /**
+     * Bounds concurrent entries and exits separately, so a burst of one cannot starve
+     * the other. Calls refused by a limiter are answered
+     * {@link GateResult.Status#OVERLOADED}. Null leaves the operation unbounded.
+     */
+    public void setAdmissionLimiters(AdmissionLimiter entryLimiter, AdmissionLimiter exitLimiter) {
+        this.entryLimiter = entryLimiter;
+        this.exitLimiter = exitLimiter;
+    }
+
+    public AdmissionLimiter getEntryLimiter() {
+        return entryLimiter;
+    }
+
+    public AdmissionLimiter getExitLimiter() {
+        return exitLimiter;
+    }
+
+    /**
+     * While {@code circuitBreaker} is open, entries and exits are answered
+     * {@link GateResult.Status#DEGRADED} without calling the repositories.
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Times entries and exits end to end, from the read to the result, in the
+     * {@code gate.entry} and {@code gate.exit} histograms of the registry, and counts
+     * their results in {@code gate.entry.<status>} and {@code gate.exit.<status>}.
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        entryMetrics = new GateMetrics(metrics, "gate.entry");
+        exitMetrics = new GateMetrics(metrics, "gate.exit");
+    }
+
+    /**
+     * The per-plate locks that order entries and exits of one vehicle, with their
+     * contention counters.
+     */
+    public StripedLock getPlateLocks() {
+        return plateLocks;
     }
 
     public void processIncomingVehicle() {
+        ParkingType parkingType;
+        String vehicleRegNumber;
         try{
-            ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
-            if(parkingSpot !=null && parkingSpot.getId() > 0){
-                String vehicleRegNumber = getVehichleRegNumber();
-                Boolean reccurent = ticketDAO.isReccurent(vehicleRegNumber);
-                parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);//allot this parking space and mark it's availability as false
-                Date inTime = new Date();
-                Ticket ticket = new Ticket();
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(0);
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                ticketDAO.saveTicket(ticket);
-                if(Boolean.TRUE.equals(reccurent)){
-                    logger.info("Welcome back! As a recurring user of our parking lot, you'll benefit from a 5% discount.");
-                }
-                logger.info("Generated Ticket and saved in DB");
-                logger.info("Please park your vehicle in spot number: {}", parkingSpot.getId());
-                logger.info("Recorded in-time for vehicle number: {} is {}",vehicleRegNumber, inTime);
+            try{
+                parkingType = getVehichleType();
+            }catch(IllegalArgumentException ie){
+                logger.error("Error parsing user input for type of vehicle", ie);
+                return;
+            }
+            vehicleRegNumber = getVehichleRegNumber();
+        }catch(Exception e){
+            logger.error("Unable to process incoming vehicle",e);
+            return;
+        }
+        GateResult result = enter(parkingType, vehicleRegNumber);
+        if(result.getStatus() == GateResult.Status.DUPLICATE_READ){
+            logger.info("Ignoring repeated read of vehicle {}", vehicleRegNumber);
+        }else if(isUnavailable(result)){
+            logger.error("The parking system is busy or degraded, please try again shortly ({})", result.getStatus());
+        }else if(result.getStatus() == GateResult.Status.ALREADY_INSIDE){
+            logger.error("Vehicle {} is already inside the parking lot", vehicleRegNumber);
+        }else if(result.isSuccess()){
+            if(result.isRecurring()){
+                // the tariff gives the share of the fare recurring users pay
+                logger.info("Welcome back! As a recurring user of our parking lot, you'll benefit from a {}% discount.",
+                        100 - fareCalculatorService.getTariff().getRecurringPercent());
+            }
+            logger.info("Generated Ticket and saved in DB");
+            logger.info("Please park your vehicle in spot number: {}", result.getParkingNumber());
+            logger.info("Recorded in-time for vehicle number: {} is {}",vehicleRegNumber, result.getInTime());
+        }
+    }
+
+    /**
+     * Assigns a spot to the vehicle and opens its ticket. Safe to call from any
+     * number of gate threads; failures are reported in the result, never thrown.
+     */
+    public GateResult enter(ParkingType parkingType, String vehicleRegNumber) {
+        long start = System.nanoTime();
+        GateResult result = gateEntry(parkingType, vehicleRegNumber);
+        GateMetrics timing = entryMetrics;
+        if(timing != null){
+            timing.record(start, result);
+        }
+        return result;
+    }
+
+    private GateResult gateEntry(ParkingType parkingType, String vehicleRegNumber) {
+        String plate = PlateNormalizer.normalize(vehicleRegNumber);
+        if(parkingType == null || plate == null || plate.isEmpty()){
+            return GateResult.failure(GateResult.Status.INVALID_INPUT, vehicleRegNumber);
+        }
+        DuplicateReadFilter filter = entryReads;
+        long readMillis = clock.millis();
+        if(filter != null && filter.isRepeat(plate, readMillis)){
+            return GateResult.failure(GateResult.Status.DUPLICATE_READ, plate);
+        }
+        GateResult result = admit(entryLimiter, plate, () -> processEntry(parkingType, plate));
+        if(filter != null && isRetryable(result)){
+            filter.forget(plate, readMillis);
+        }
+        return result;
+    }
 
+    private GateResult processEntry(ParkingType parkingType, String vehicleRegNumber) {
+        try{
+            CompletableFuture<Boolean> recurring = asyncTicketDAO.isReccurent(vehicleRegNumber);
+            if(ticketDAO.isVehicleInside(vehicleRegNumber)){
+                return GateResult.failure(GateResult.Status.ALREADY_INSIDE, vehicleRegNumber);
             }
+            Date inTime = new Date(clock.millis());
+            // joined before the transaction takes its connection, as the lookup may need one of its own
+            boolean recurringCustomer = Boolean.TRUE.equals(recurring.join());
+            return inTransaction(() -> {
+                ParkingSpot parkingSpot = claimNextParkingSpot(parkingType);//allot a parking space, it is already marked unavailable
+                if(parkingSpot == null){
+                    return GateResult.failure(GateResult.Status.LOT_FULL, vehicleRegNumber);
+                }
+                Ticket newTicket = new Ticket();
+                newTicket.setParkingSpot(parkingSpot);
+                newTicket.setVehicleRegNumber(vehicleRegNumber);
+                newTicket.setPriceCents(0);
+                newTicket.setInTime(inTime);
+                newTicket.setOutTime(null);
+                if(!ticketDAO.saveTicket(newTicket)){
+                    if(ticketDAO.isWriteBehind()){
+                        // there is no transaction to undo the claim, so give the spot back by hand
+                        parkingSpot.setAvailable(true);
+                        parkingSpotDAO.updateParking(parkingSpot);
+                    }else{
+                        UnitOfWork.markRollbackOnly();
+                    }
+                    return GateResult.failure(GateResult.Status.NOT_SAVED, vehicleRegNumber);
+                }
+                return GateResult.success(GateResult.Status.ENTERED, newTicket, recurringCustomer);
+            });
         }catch(Exception e){
             logger.error("Unable to process incoming vehicle",e);
+            return GateResult.error(vehicleRegNumber, e);
         }
     }
 
+    /**
+     * Runs the block as one unit of work, except in write-behind mode where ticket
+     * writes are group-committed by the batch writer and each DAO call commits alone.
+     * A block that fails a write returns NOT_SAVED, which is answered once the
+     * transaction has been rolled back.
+     */
+    private <T> T inTransaction(UnitOfWork.Work<T> work) throws Exception {
+        return ticketDAO.isWriteBehind() ? work.execute() : UnitOfWork.executeOrRollback(work);
+    }
+
     private String getVehichleRegNumber() throws IllegalArgumentException {
         logger.info("Please type the vehicle registration number and press enter key");
         return inputReaderUtil.readVehicleRegistrationNumber();
@@ -81,6 +315,16 @@ public class ParkingService {
         return parkingSpot;
     }
 
+    private ParkingSpot claimNextParkingSpot(ParkingType parkingType){
+        int parkingNumber = parkingSpotDAO.claimNextAvailableSlot(parkingType);
+        if(parkingNumber > 0){
+            return new ParkingSpot(parkingNumber,parkingType, false);
+        }
+        logger.error("Error fetching next available parking slot",
+                new NullPointerException("Error fetching parking number from DB. Parking slots might be full"));
+        return null;
+    }
+
     private ParkingType getVehichleType(){
         logger.info("Please select vehicle type from menu");
         logger.info("1 CAR");
@@ -101,31 +345,162 @@ public class ParkingService {
     }
 
     public void processExitingVehicle() {
+        String vehicleRegNumber;
         try{
-            String vehicleRegNumber = getVehichleRegNumber();
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
-            Date outTime = new Date();
-            ticket.setOutTime(outTime);
-            if (Boolean.TRUE.equals(ticketDAO.isReccurent(vehicleRegNumber))) {
-                fareCalculatorService.calculateFareDiscount(ticket, DISCOUNT);
+            vehicleRegNumber = getVehichleRegNumber();
+        }catch(Exception e){
+            logger.error("Unable to process exiting vehicle",e);
+            return;
+        }
+        GateResult result = exit(vehicleRegNumber);
+        if(result.getStatus() == GateResult.Status.DUPLICATE_READ){
+            logger.info("Ignoring repeated read of vehicle {}", vehicleRegNumber);
+        }else if(isUnavailable(result)){
+            logger.error("The parking system is busy or degraded, please try again shortly ({})", result.getStatus());
+        }else if(result.isSuccess()){
+            if(result.isRecurring()){
                 logger.info("Welcome again regular customer!");
-            } else {
-                fareCalculatorService.calculateFare(ticket);
             }
-            if(ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true);
-                parkingSpotDAO.updateParking(parkingSpot);
-                logger.info("Please pay the parking fare: {}" , ticket.getPrice());
-                logger.info("Recorded out-time for vehicle number: {} is {}" , ticket.getVehicleRegNumber(),outTime);
+            logger.info("Please pay the parking fare: {}" , result.getPrice());
+            logger.info("Recorded out-time for vehicle number: {} is {}" , vehicleRegNumber, result.getOutTime());
+        }else if(result.getStatus() == GateResult.Status.NOT_INSIDE || result.getStatus() == GateResult.Status.INVALID_INPUT){
+            logger.error("No vehicle {} inside the parking lot", vehicleRegNumber);
+            logger.error("Unable to process exiting vehicle");
+        }
+    }
 
-            }else{
-                logger.error("Unable to update ticket information. Error occurred");
+    /**
+     * Closes and prices the vehicle's open ticket and frees its spot. Safe to call
+     * from any number of gate threads; failures are reported in the result, never
+     * thrown.
+     */
+    public GateResult exit(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        GateResult result = gateExit(vehicleRegNumber);
+        GateMetrics timing = exitMetrics;
+        if(timing != null){
+            timing.record(start, result);
+        }
+        return result;
+    }
+
+    private GateResult gateExit(String vehicleRegNumber) {
+        String plate = PlateNormalizer.normalize(vehicleRegNumber);
+        if(plate == null || plate.isEmpty()){
+            return GateResult.failure(GateResult.Status.INVALID_INPUT, vehicleRegNumber);
+        }
+        DuplicateReadFilter filter = exitReads;
+        long readMillis = clock.millis();
+        if(filter != null && filter.isRepeat(plate, readMillis)){
+            return GateResult.failure(GateResult.Status.DUPLICATE_READ, plate);
+        }
+        GateResult result = admit(exitLimiter, plate, () -> processExit(plate));
+        if(filter != null && isRetryable(result)){
+            filter.forget(plate, readMillis);
+        }
+        return result;
+    }
 
+    /**
+     * Runs the operation once the circuit breaker and the admission limiter let it
+     * through, holding the plate's lock.
+     */
+    private GateResult admit(AdmissionLimiter limiter, String vehicleRegNumber, Supplier<GateResult> operation) {
+        CircuitBreaker breaker = circuitBreaker;
+        if(breaker != null && !breaker.allowRequest()){
+            return GateResult.failure(GateResult.Status.DEGRADED, vehicleRegNumber);
+        }
+        try{
+            if(limiter != null && !limiter.tryAcquire()){
+                return GateResult.failure(GateResult.Status.OVERLOADED, vehicleRegNumber);
             }
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            return GateResult.failure(GateResult.Status.OVERLOADED, vehicleRegNumber);
+        }
+        try{
+            Lock plateLock = plateLocks.acquire(vehicleRegNumber);
+            try{
+                return operation.get();
+            }finally{
+                plateLock.unlock();
+            }
+        }finally{
+            if(limiter != null){
+                limiter.release();
+            }
+        }
+    }
+
+    private static boolean isUnavailable(GateResult result) {
+        return result.getStatus() == GateResult.Status.DEGRADED || result.getStatus() == GateResult.Status.OVERLOADED;
+    }
+
+    /**
+     * Whether a failed read should let the next read of the plate through.
+     */
+    private static boolean isRetryable(GateResult result) {
+        switch(result.getStatus()){
+            case ERROR:
+            case NOT_SAVED:
+            case DEGRADED:
+            case OVERLOADED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private GateResult processExit(String vehicleRegNumber) {
+        try{
+            Date outTime = new Date(clock.millis());
+            // both lookups are reads, so they can overlap outside the transaction
+            CompletableFuture<Ticket> openTicketLookup = asyncTicketDAO.getTicket(vehicleRegNumber);
+            CompletableFuture<Boolean> recurring = asyncTicketDAO.isReccurent(vehicleRegNumber);
+            Ticket openTicket = openTicketLookup.join();
+            boolean recurringCustomer = Boolean.TRUE.equals(recurring.join());
+            if(openTicket == null){
+                return GateResult.failure(GateResult.Status.NOT_INSIDE, vehicleRegNumber);
+            }
+            return inTransaction(() -> {
+                openTicket.setOutTime(outTime);
+                fareCalculatorService.calculateFare(openTicket, recurringCustomer);
+                if(!ticketDAO.updateTicket(openTicket)) {
+                    logger.error("Unable to update ticket information. Error occurred");
+                    UnitOfWork.markRollbackOnly();
+                    return GateResult.failure(GateResult.Status.NOT_SAVED, vehicleRegNumber);
+                }
+                ParkingSpot parkingSpot = openTicket.getParkingSpot();
+                parkingSpot.setAvailable(true);
+                parkingSpotDAO.updateParking(parkingSpot);
+                return GateResult.success(GateResult.Status.EXITED, openTicket, recurringCustomer);
+            });
         }catch(Exception e){
             logger.error("Unable to process exiting vehicle",e);
+            return GateResult.error(vehicleRegNumber, e);
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Latency of one gate operation, and how many calls ended in each status.
+     */
+    private static final class GateMetrics {
+
+        private final LatencyHistogram latency;
+        private final Counter[] results;
+
+        private GateMetrics(MetricsRegistry metrics, String name) {
+            latency = metrics.timer(name);
+            GateResult.Status[] statuses = GateResult.Status.values();
+            results = new Counter[statuses.length];
+            for(int i = 0; i < statuses.length; i++){
+                results[i] = metrics.counter(name + "." + statuses[i].name());
+            }
+        }
+
+        private void record(long startNanos, GateResult result) {
+            latency.recordSince(startNanos);
+            results[result.getStatus().ordinal()].increment();
+        }
+    }
+}
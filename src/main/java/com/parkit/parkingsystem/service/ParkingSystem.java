@@ -0,0 +1,322 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.ApplicationProperties;
+import com.parkit.parkingsystem.config.CircuitBreaker;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.DaoExecutors;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.TicketArchiver;
+import com.parkit.parkingsystem.dao.TicketBatchWriter;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.dao.journal.JournalReplayer;
+import com.parkit.parkingsystem.dao.journal.JournaledParkingSpotRepository;
+import com.parkit.parkingsystem.dao.journal.JournaledTicketRepository;
+import com.parkit.parkingsystem.dao.journal.TicketJournal;
+import com.parkit.parkingsystem.dao.memory.InMemoryStorage;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.TimedParkingSpotRepository;
+import com.parkit.parkingsystem.metrics.TimedTicketRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.tariff.Tariff;
+import com.parkit.parkingsystem.tariff.TariffReloader;
+import com.parkit.parkingsystem.util.AdmissionLimiter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the storage engine chosen by {@code storage.engine} and owns its background
+ * components until {@link #close()}. {@code jdbc} (the default) runs on MySQL through
+ * the DAOs, or through a local {@link TicketJournal} when {@code journal.enabled} is
+ * set; {@code memory} keeps everything in {@link InMemoryStorage}, optionally
+ * snapshotted to {@code storage.memory.snapshotFile}. Both engines share an executor
+ * for asynchronous DAO calls, see {@link DaoExecutors}, and the fare calculator with
+ * the tariff from {@code tariff.file}. Unless {@code metrics.enabled} is false, the
+ * repositories are timed into a {@link MetricsRegistry}, published over JMX and
+ * dumped to the log every {@code metrics.dumpIntervalSeconds}.
+ */
+public class ParkingSystem implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("ParkingSystem");
+
+    public static final String ENGINE_JDBC = "jdbc";
+    public static final String ENGINE_MEMORY = "memory";
+
+    private static final int DEFAULT_DAO_THREADS = 16;
+    private static final String TARIFF_RESOURCE = "tariff.properties";
+
+    private ParkingSpotRepository parkingSpotRepository;
+    private TicketRepository ticketRepository;
+    private final List<AutoCloseable> resources;
+    private final ExecutorService daoExecutor;
+    private final FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private CircuitBreaker circuitBreaker;
+    private MetricsRegistry metrics;
+
+    public ParkingSystem(ParkingSpotRepository parkingSpotRepository, TicketRepository ticketRepository) {
+        this(parkingSpotRepository, ticketRepository, new ArrayList<>(), DaoExecutors.create(DEFAULT_DAO_THREADS));
+    }
+
+    private ParkingSystem(ParkingSpotRepository parkingSpotRepository, TicketRepository ticketRepository,
+                          List<AutoCloseable> resources, ExecutorService daoExecutor) {
+        this.parkingSpotRepository = parkingSpotRepository;
+        this.ticketRepository = ticketRepository;
+        this.resources = resources;
+        this.daoExecutor = daoExecutor;
+        // first in, so it is shut down last, after everything that may still submit to it
+        resources.add(0, daoExecutor::shutdown);
+    }
+
+    public static ParkingSystem start(ApplicationProperties properties) throws IOException {
+        String engine = properties.getString("storage.engine", ENGINE_JDBC);
+        logger.info("Starting with the {} storage engine", engine);
+        ParkingSystem parkingSystem;
+        if (ENGINE_MEMORY.equals(engine)) {
+            parkingSystem = startInMemory(properties);
+        } else if (ENGINE_JDBC.equals(engine)) {
+            parkingSystem = startJdbc(properties);
+        } else {
+            throw new IllegalArgumentException("Unknown storage.engine: " + engine);
+        }
+        try {
+            parkingSystem.loadTariff(properties);
+            parkingSystem.startMetrics(properties);
+        } catch (IOException | RuntimeException e) {
+            parkingSystem.close();
+            throw e;
+        }
+        return parkingSystem;
+    }
+
+    /**
+     * Uses {@code tariff.file}, reloaded when it changes, or the packaged
+     * {@code tariff.properties} when no file is set.
+     */
+    private void loadTariff(ApplicationProperties properties) throws IOException {
+        String tariffFile = properties.getString("tariff.file", "");
+        if (tariffFile.isEmpty()) {
+            fareCalculatorService.setTariff(TariffReloader.loadResource(TARIFF_RESOURCE));
+            return;
+        }
+        TariffReloader reloader = new TariffReloader(Paths.get(tariffFile), fareCalculatorService::setTariff);
+        if (!reloader.reloadIfChanged()) {
+            throw new IOException("Unable to load tariff file " + tariffFile);
+        }
+        reloader.start(TimeUnit.SECONDS.toMillis(properties.getLong("tariff.reloadIntervalSeconds", 30)));
+        resources.add(reloader);
+    }
+
+    /**
+     * Wraps the repositories in timing decorators and publishes the registry as set
+     * by the {@code metrics.*} keys.
+     */
+    private void startMetrics(ApplicationProperties properties) {
+        if (!properties.getBoolean("metrics.enabled", true)) {
+            return;
+        }
+        metrics = new MetricsRegistry();
+        parkingSpotRepository = new TimedParkingSpotRepository(parkingSpotRepository, metrics);
+        ticketRepository = new TimedTicketRepository(ticketRepository, metrics);
+        if (properties.getBoolean("metrics.jmx.enabled", true)) {
+            metrics.startJmx();
+        }
+        long dumpIntervalSeconds = properties.getLong("metrics.dumpIntervalSeconds", 60);
+        if (dumpIntervalSeconds > 0) {
+            metrics.startDump(TimeUnit.SECONDS.toMillis(dumpIntervalSeconds));
+        }
+        resources.add(metrics);
+    }
+
+    /**
+     * Loads {@code tariff.file} once, or the packaged {@code tariff.properties} when
+     * no file is set.
+     */
+    public static Tariff loadConfiguredTariff(ApplicationProperties properties) throws IOException {
+        String tariffFile = properties.getString("tariff.file", "");
+        return tariffFile.isEmpty() ? TariffReloader.loadResource(TARIFF_RESOURCE) : TariffReloader.load(Paths.get(tariffFile));
+    }
+
+    public ParkingSpotRepository getParkingSpotRepository() {
+        return parkingSpotRepository;
+    }
+
+    public TicketRepository getTicketRepository() {
+        return ticketRepository;
+    }
+
+    public ExecutorService getDaoExecutor() {
+        return daoExecutor;
+    }
+
+    public FareCalculatorService getFareCalculatorService() {
+        return fareCalculatorService;
+    }
+
+    /**
+     * The DB circuit breaker, or null with the memory engine or when
+     * {@code db.breaker.failureThreshold} is 0.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * The registry the repositories and gates are timed into, or null when
+     * {@code metrics.enabled} is false.
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets up a gate service with the {@code gate.*} keys: repeated read window,
+     * per-operation admission limits, and the DB circuit breaker. Entries and exits
+     * are timed into the metrics registry, if any.
+     */
+    public void configureGates(ParkingService parkingService, ApplicationProperties properties) {
+        parkingService.setDuplicateReadWindowMillis(properties.getLong("gate.duplicateReadWindowMillis", 0));
+        int maxConcurrent = properties.getInt("gate.maxConcurrentPerOperation", 0);
+        if (maxConcurrent > 0) {
+            int maxQueued = properties.getInt("gate.maxQueuedPerOperation", 64);
+            long maxWaitMillis = properties.getLong("gate.maxQueueWaitMillis", 500);
+            parkingService.setAdmissionLimiters(new AdmissionLimiter(maxConcurrent, maxQueued, maxWaitMillis),
+                    new AdmissionLimiter(maxConcurrent, maxQueued, maxWaitMillis));
+        }
+        parkingService.setCircuitBreaker(circuitBreaker);
+        if (metrics != null) {
+            parkingService.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * Stops the background components in reverse start order.
+     */
+    @Override
+    public void close() {
+        for (int i = resources.size() - 1; i >= 0; i--) {
+            try {
+                resources.get(i).close();
+            } catch (Exception e) {
+                logger.error("Error while closing " + resources.get(i), e);
+            }
+        }
+    }
+
+    private static ParkingSystem startJdbc(ApplicationProperties properties) throws IOException {
+        List<AutoCloseable> resources = new ArrayList<>();
+        resources.add(DataBaseConfig::shutdown);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        migrateSchema(properties, parkingSpotDAO.dataBaseConfig);
+        TicketDAO ticketDAO = new TicketDAO();
+        JournalReplayer replayer = null;
+        if (properties.getBoolean("journal.enabled", false)) {
+            TicketJournal journal = TicketJournal.open(Paths.get(properties.getString("journal.directory", "journal")),
+                    properties.getInt("journal.segmentSizeBytes", 4 * 1024 * 1024),
+                    properties.getBoolean("journal.forceOnAppend", false));
+            resources.add(journal);
+            replayer = new JournalReplayer(journal, ticketDAO.dataBaseConfig, properties.getInt("journal.replayBatchSize", 100));
+            // events left by the last run must be in the DB before the indexes are loaded from it
+            replayer.replay();
+        }
+        boolean indexesLoaded = parkingSpotDAO.loadAvailabilityIndex();
+        indexesLoaded &= ticketDAO.loadOpenTicketIndex();
+        indexesLoaded &= ticketDAO.loadRecurringCustomers();
+        if (replayer != null && !indexesLoaded) {
+            // the indexes are only ever loaded from the DB, the journal alone does not know the lot
+            logger.error("The journal needs the database at startup to load the indexes; until a restart, gates go to the database");
+        }
+        if (replayer != null) {
+            logger.info("Ticket writes go through the journal at {}", properties.getString("journal.directory", "journal"));
+            replayer.start(properties.getLong("journal.replayIntervalMillis", 200));
+            resources.add(replayer);
+        } else if (properties.getBoolean("ticket.writeBehind.enabled", false)) {
+            logger.info("Ticket writes are group-committed in write-behind mode");
+            TicketBatchWriter batchWriter = new TicketBatchWriter(ticketDAO.dataBaseConfig,
+                    properties.getInt("ticket.writeBehind.maxBatchSize", 100),
+                    properties.getLong("ticket.writeBehind.maxDelayMillis", 5));
+            ticketDAO.setBatchWriter(batchWriter);
+            resources.add(batchWriter);
+        }
+        if (properties.getBoolean("ticket.archive.enabled", true)) {
+            TicketArchiver archiver = new TicketArchiver(ticketDAO.dataBaseConfig,
+                    TimeUnit.DAYS.toMillis(properties.getLong("ticket.archive.maxAgeDays", 90)),
+                    properties.getInt("ticket.archive.batchSize", 500));
+            archiver.start(TimeUnit.MINUTES.toMillis(properties.getLong("ticket.archive.intervalMinutes", 60)));
+            resources.add(archiver);
+        }
+        ParkingSystem parkingSystem = replayer != null
+                ? new ParkingSystem(new JournaledParkingSpotRepository(parkingSpotDAO),
+                        new JournaledTicketRepository(ticketDAO, replayer.getJournal()), resources, daoExecutor(properties))
+                : new ParkingSystem(parkingSpotDAO, ticketDAO, resources, daoExecutor(properties));
+        try {
+            // with the journal, gates keep working while the DB is down, so the breaker stays out of their way
+            parkingSystem.circuitBreaker = replayer != null ? null : parkingSpotDAO.dataBaseConfig.getPool().getCircuitBreaker();
+        } catch (ClassNotFoundException e) {
+            logger.error("Unable to load the DB driver", e);
+        }
+        return parkingSystem;
+    }
+
+    private static void migrateSchema(ApplicationProperties properties, DataBaseConfig dataBaseConfig) {
+        if (!properties.getBoolean("db.migrate.enabled", true)) {
+            return;
+        }
+        try {
+            new SchemaMigrator(dataBaseConfig).migrate();
+        } catch (Exception e) {
+            logger.error("Error migrating database schema", e);
+        }
+    }
+
+    private static ParkingSystem startInMemory(ApplicationProperties properties) throws IOException {
+        List<ParkingSpot> layout = parseLayout(properties.getString("storage.memory.spots", "CAR:3,BIKE:2"));
+        String snapshotFile = properties.getString("storage.memory.snapshotFile", "");
+        if (snapshotFile.isEmpty()) {
+            InMemoryStorage storage = new InMemoryStorage(layout);
+            return new ParkingSystem(storage.getParkingSpotRepository(), storage.getTicketRepository(),
+                    new ArrayList<>(), daoExecutor(properties));
+        }
+        InMemoryStorage storage = InMemoryStorage.restore(Paths.get(snapshotFile), layout);
+        storage.startSnapshots(Paths.get(snapshotFile),
+                TimeUnit.SECONDS.toMillis(properties.getLong("storage.memory.snapshotIntervalSeconds", 60)));
+        List<AutoCloseable> resources = new ArrayList<>();
+        resources.add(storage);
+        return new ParkingSystem(storage.getParkingSpotRepository(), storage.getTicketRepository(),
+                resources, daoExecutor(properties));
+    }
+
+    private static ExecutorService daoExecutor(ApplicationProperties properties) {
+        return DaoExecutors.create(properties.getInt("dao.async.maxPlatformThreads", DEFAULT_DAO_THREADS));
+    }
+
+    /**
+     * Parses a layout such as {@code CAR:3,BIKE:2} into spots numbered from 1 in
+     * that order, the same numbering as the rows inserted by {@code Data.sql}.
+     */
+    static List<ParkingSpot> parseLayout(String layout) {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        int number = 1;
+        for (String group : layout.split(",")) {
+            String[] typeAndCount = group.trim().split(":");
+            if (typeAndCount.length != 2) {
+                throw new IllegalArgumentException("Invalid storage.memory.spots entry: " + group);
+            }
+            ParkingType parkingType = ParkingType.valueOf(typeAndCount[0].trim());
+            int count = Integer.parseInt(typeAndCount[1].trim());
+            for (int i = 0; i < count; i++) {
+                parkingSpots.add(new ParkingSpot(number++, parkingType, true));
+            }
+        }
+        return parkingSpots;
+    }
+}
@@ -0,0 +1,334 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.ApplicationProperties;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.MoneyUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Recomputes the price of closed tickets, typically after a tariff correction.
+ * Tickets closed in {@code [from, to)} are streamed from the DB with a fetch-size
+ * cursor and priced in chunks of {@code batchSize} on a fork-join pool while the
+ * next chunk is read. The prices that changed are written back in one JDBC batch
+ * and transaction per chunk. A dry run only reports what would change.
+ * <p>
+ * Every ticket is priced with the tariff current when the run started. As at the
+ * gate, a plate with another ticket closed before this one gets the recurring
+ * customer discount. A run that stopped on an error can simply be run again:
+ * tickets already repriced have no delta left.
+ */
+public class RebillingJob {
+
+    private static final Logger logger = LogManager.getLogger("RebillingJob");
+
+    public static final String COMMAND = "rebill";
+
+    private static final int SPLIT_THRESHOLD = 64;
+    private static final long NOT_PRICED = Long.MIN_VALUE;
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final DataBaseConfig dataBaseConfig;
+    private final FareCalculatorService fareCalculatorService;
+    private final ForkJoinPool pool;
+    private final int fetchSize;
+    private final int batchSize;
+
+    public RebillingJob(DataBaseConfig dataBaseConfig, FareCalculatorService fareCalculatorService,
+                        ForkJoinPool pool, int fetchSize, int batchSize) {
+        if (fetchSize < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("fetchSize and batchSize must be at least 1");
+        }
+        this.dataBaseConfig = dataBaseConfig;
+        this.fareCalculatorService = fareCalculatorService;
+        this.pool = pool;
+        this.fetchSize = fetchSize;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Reprices the tickets of {@code ticket}, or of {@code ticket_history} when
+     * {@code history} is set, closed from {@code from} included to {@code to}
+     * excluded. {@code progress} gets the counts so far after each chunk.
+     */
+    public RebillingReport run(Date from, Date to, boolean history, boolean dryRun,
+                               Consumer<RebillingReport> progress) throws Exception {
+        FareCalculatorService pinned = new FareCalculatorService(fareCalculatorService.getTariff());
+        Totals totals = new Totals(dryRun, System.nanoTime());
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(history ? DBConstants.GET_HISTORY_TICKETS_TO_REBILL : DBConstants.GET_CLOSED_TICKETS_TO_REBILL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setTimestamp(1, new Timestamp(from.getTime()));
+            ps.setTimestamp(2, new Timestamp(to.getTime()));
+            rs = ps.executeQuery();
+            Chunk previous = null;
+            ForkJoinTask<Void> previousPricing = null;
+            while (true) {
+                // reading a chunk overlaps with pricing the previous one, and writing
+                // the previous one overlaps with pricing this one
+                Chunk chunk = readChunk(rs);
+                if (previousPricing != null) {
+                    previousPricing.join();
+                }
+                ForkJoinTask<Void> pricing = chunk == null ? null : pool.submit(new PriceTask(pinned, chunk, 0, chunk.size));
+                if (previous != null) {
+                    write(previous, history, dryRun);
+                    totals.add(previous);
+                    progress.accept(totals.report());
+                }
+                if (chunk == null) {
+                    break;
+                }
+                previous = chunk;
+                previousPricing = pricing;
+            }
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+        return totals.report();
+    }
+
+    private Chunk readChunk(ResultSet rs) throws SQLException {
+        Chunk chunk = null;
+        while (rs.next()) {
+            if (chunk == null) {
+                chunk = new Chunk(batchSize);
+            }
+            Ticket ticket = new Ticket();
+            ticket.setId(rs.getInt(1));
+            ticket.setParkingSpot(new ParkingSpot(rs.getInt(2), ParkingType.valueOf(rs.getString(3)), true));
+            ticket.setVehicleRegNumber(rs.getString(4));
+            ticket.setPrice(rs.getDouble(5));
+            ticket.setInTimeMillis(rs.getTimestamp(6).getTime());
+            ticket.setOutTimeMillis(rs.getTimestamp(7).getTime());
+            int i = chunk.size++;
+            chunk.tickets[i] = ticket;
+            chunk.oldCents[i] = ticket.getPriceCents();
+            chunk.recurring[i] = rs.getBoolean(8);
+            if (chunk.size == batchSize) {
+                break;
+            }
+        }
+        return chunk;
+    }
+
+    private void write(Chunk chunk, boolean history, boolean dryRun) throws Exception {
+        if (dryRun || chunk.changedCount() == 0) {
+            return;
+        }
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            ps = con.prepareStatement(history ? DBConstants.REBILL_HISTORY_TICKET : DBConstants.REBILL_TICKET);
+            for (int i = 0; i < chunk.size; i++) {
+                if (chunk.isChanged(i)) {
+                    ps.setDouble(1, MoneyUtil.toUnits(chunk.newCents[i]));
+                    ps.setInt(2, chunk.tickets[i].getId());
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+            con.commit();
+        } catch (Exception ex) {
+            if (con != null) {
+                con.rollback();
+            }
+            throw ex;
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+            if (con != null) {
+                con.setAutoCommit(true);
+            }
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Runs the job from the command line:
+     * {@code rebill <from> <to> [--dry-run] [--history]}, with ISO dates in the
+     * local time zone, {@code to} excluded. Returns the process exit code.
+     */
+    public static int runCommand(String[] args, ApplicationProperties properties) {
+        boolean dryRun = false;
+        boolean history = false;
+        LocalDate from = null;
+        LocalDate to = null;
+        try {
+            for (String arg : args) {
+                if ("--dry-run".equals(arg)) {
+                    dryRun = true;
+                } else if ("--history".equals(arg)) {
+                    history = true;
+                } else if (from == null) {
+                    from = LocalDate.parse(arg);
+                } else if (to == null) {
+                    to = LocalDate.parse(arg);
+                } else {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+            }
+            if (to == null) {
+                throw new IllegalArgumentException("Missing date range");
+            }
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            logger.error("{}. Usage: {} <from yyyy-MM-dd> <to yyyy-MM-dd, excluded> [--dry-run] [--history]", e.getMessage(), COMMAND);
+            return 2;
+        }
+
+        ZoneId zone = ZoneId.systemDefault();
+        ForkJoinPool pool = new ForkJoinPool(properties.getInt("rebill.parallelism", Runtime.getRuntime().availableProcessors()));
+        try {
+            FareCalculatorService fareCalculatorService = new FareCalculatorService(ParkingSystem.loadConfiguredTariff(properties));
+            RebillingJob job = new RebillingJob(new DataBaseConfig(), fareCalculatorService, pool,
+                    properties.getInt("rebill.fetchSize", 1000), properties.getInt("rebill.batchSize", 500));
+            logger.info("Rebilling {} tickets closed from {} to {} with the {}",
+                    history ? "archived" : "current", from, to, fareCalculatorService.getTariff());
+            long[] lastLog = {System.nanoTime()};
+            RebillingReport report = job.run(Date.from(from.atStartOfDay(zone).toInstant()),
+                    Date.from(to.atStartOfDay(zone).toInstant()), history, dryRun, progress -> {
+                        long now = System.nanoTime();
+                        if (now - lastLog[0] >= PROGRESS_INTERVAL_NANOS) {
+                            lastLog[0] = now;
+                            logger.info("Rebilling in progress: {}", progress);
+                        }
+                    });
+            logger.info("Rebilling done: {}", report);
+            return report.getFailed() == 0 ? 0 : 1;
+        } catch (Exception e) {
+            logger.error("Rebilling failed", e);
+            return 1;
+        } finally {
+            pool.shutdown();
+            DataBaseConfig.shutdown();
+        }
+    }
+
+    /**
+     * Prices a range of a chunk, splitting it across the pool.
+     */
+    private static final class PriceTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FareCalculatorService fareCalculatorService;
+        private final Chunk chunk;
+        private final int from;
+        private final int to;
+
+        private PriceTask(FareCalculatorService fareCalculatorService, Chunk chunk, int from, int to) {
+            this.fareCalculatorService = fareCalculatorService;
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PriceTask(fareCalculatorService, chunk, from, middle),
+                        new PriceTask(fareCalculatorService, chunk, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                Ticket ticket = chunk.tickets[i];
+                try {
+                    fareCalculatorService.calculateFare(ticket, chunk.recurring[i]);
+                    chunk.newCents[i] = ticket.getPriceCents();
+                } catch (RuntimeException e) {
+                    logger.error("Unable to price ticket " + ticket.getId(), e);
+                    chunk.newCents[i] = NOT_PRICED;
+                }
+            }
+        }
+    }
+
+    private static final class Chunk {
+
+        private final Ticket[] tickets;
+        private final long[] oldCents;
+        private final long[] newCents;
+        private final boolean[] recurring;
+        private int size;
+
+        private Chunk(int capacity) {
+            tickets = new Ticket[capacity];
+            oldCents = new long[capacity];
+            newCents = new long[capacity];
+            recurring = new boolean[capacity];
+        }
+
+        private boolean isChanged(int i) {
+            return newCents[i] != NOT_PRICED && newCents[i] != oldCents[i];
+        }
+
+        private int changedCount() {
+            int changed = 0;
+            for (int i = 0; i < size; i++) {
+                if (isChanged(i)) {
+                    changed++;
+                }
+            }
+            return changed;
+        }
+    }
+
+    private static final class Totals {
+
+        private final boolean dryRun;
+        private final long startNanos;
+        private long scanned;
+        private long changed;
+        private long failed;
+        private long deltaCents;
+
+        private Totals(boolean dryRun, long startNanos) {
+            this.dryRun = dryRun;
+            this.startNanos = startNanos;
+        }
+
+        private void add(Chunk chunk) {
+            scanned += chunk.size;
+            for (int i = 0; i < chunk.size; i++) {
+                if (chunk.newCents[i] == NOT_PRICED) {
+                    failed++;
+                } else if (chunk.isChanged(i)) {
+                    changed++;
+                    deltaCents += chunk.newCents[i] - chunk.oldCents[i];
+                }
+            }
+        }
+
+        private RebillingReport report() {
+            return new RebillingReport(dryRun, scanned, changed, failed, deltaCents, System.nanoTime() - startNanos);
+        }
+    }
+}
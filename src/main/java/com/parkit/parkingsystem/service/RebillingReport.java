@@ -0,0 +1,72 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.util.MoneyUtil;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts of a {@link RebillingJob} run so far, or of the whole run once it returned.
+ */
+public final class RebillingReport {
+
+    private final boolean dryRun;
+    private final long scanned;
+    private final long changed;
+    private final long failed;
+    private final long deltaCents;
+    private final long elapsedNanos;
+
+    RebillingReport(boolean dryRun, long scanned, long changed, long failed, long deltaCents, long elapsedNanos) {
+        this.dryRun = dryRun;
+        this.scanned = scanned;
+        this.changed = changed;
+        this.failed = failed;
+        this.deltaCents = deltaCents;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public long getScanned() {
+        return scanned;
+    }
+
+    /**
+     * Tickets whose price changed, written back unless this is a dry run.
+     */
+    public long getChanged() {
+        return changed;
+    }
+
+    /**
+     * Tickets that could not be priced, such as a type the tariff has no rate for.
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Sum of new price minus old price over the changed tickets.
+     */
+    public long getDeltaCents() {
+        return deltaCents;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    public double getTicketsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : scanned * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s%d tickets in %.1f s (%.0f tickets/s): %d repriced, delta %+.2f, %d failed",
+                dryRun ? "[dry run] " : "", scanned, elapsedNanos / 1e9, getTicketsPerSecond(),
+                changed, MoneyUtil.toUnits(deltaCents), failed);
+    }
+}
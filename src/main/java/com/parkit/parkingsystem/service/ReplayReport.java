@@ -0,0 +1,88 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts of a {@link GateEventReplayer} run: events by outcome, lines that could
+ * not be read, and ticket writes when persisting.
+ */
+public final class ReplayReport {
+
+    private final long[] statusCounts;
+    private final long parseErrors;
+    private final long persisted;
+    private final long writeFailures;
+    private final long elapsedNanos;
+
+    ReplayReport(long[] statusCounts, long parseErrors, long persisted, long writeFailures, long elapsedNanos) {
+        this.statusCounts = statusCounts.clone();
+        this.parseErrors = parseErrors;
+        this.persisted = persisted;
+        this.writeFailures = writeFailures;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Events read and handed to the gates, whatever their outcome.
+     */
+    public long getEvents() {
+        long events = 0;
+        for (long count : statusCounts) {
+            events += count;
+        }
+        return events;
+    }
+
+    public long getCount(GateResult.Status status) {
+        return statusCounts[status.ordinal()];
+    }
+
+    /**
+     * Lines skipped because they are not a valid event.
+     */
+    public long getParseErrors() {
+        return parseErrors;
+    }
+
+    /**
+     * Tickets written to the DB, 0 unless persisting.
+     */
+    public long getPersisted() {
+        return persisted;
+    }
+
+    public long getWriteFailures() {
+        return writeFailures;
+    }
+
+    /**
+     * Unreadable lines, events that failed with an error or were not saved, and
+     * tickets that could not be written. Refused events such as an exit without an
+     * entry are outcomes of the data, not failures.
+     */
+    public long getFailed() {
+        return parseErrors + getCount(GateResult.Status.ERROR) + getCount(GateResult.Status.NOT_SAVED) + writeFailures;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    public double getEventsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : getEvents() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder outcomes = new StringBuilder();
+        for (GateResult.Status status : GateResult.Status.values()) {
+            if (statusCounts[status.ordinal()] > 0) {
+                outcomes.append(outcomes.length() == 0 ? "" : ", ").append(status).append(' ').append(statusCounts[status.ordinal()]);
+            }
+        }
+        return String.format(Locale.ROOT, "%d events in %.1f s (%.0f events/s): %s; %d unreadable lines, %d tickets persisted, %d write failures",
+                getEvents(), elapsedNanos / 1e9, getEventsPerSecond(), outcomes.length() == 0 ? "none" : outcomes,
+                parseErrors, persisted, writeFailures);
+    }
+}
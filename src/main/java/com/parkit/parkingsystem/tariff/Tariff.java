@@ -0,0 +1,315 @@
+package com.parkit.parkingsystem.tariff;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.util.MoneyUtil;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiled, immutable set of parking rates. Built once from a tariff file by
+ * {@link #compile(Properties)}, then shared by every gate; swapping tariffs means
+ * swapping the instance.
+ * <p>
+ * Each vehicle type gets a table of the 10080 minutes of the week, run-length
+ * encoded into segments of constant rate, so pricing a stay walks one segment at
+ * a time and allocates nothing. Amounts are summed exactly as
+ * {@code milliseconds x thousandths of a rate per hour} and only turned into
+ * cents at the end, rounded half up once, after any discount. Daily caps apply per calendar day in the tariff time zone,
+ * and stays up to the grace period are free.
+ *
+ * <pre>
+ * graceMinutes=30
+ * recurringDiscountPercent=5
+ * timeZone=Europe/Paris
+ * CAR.ratePerHour=1.5
+ * CAR.weekendRatePerHour=1.0
+ * CAR.bands=07:00-10:00@2.5,16:00-19:00@2.5
+ * CAR.weekendBands=
+ * CAR.dailyCap=20
+ * </pre>
+ * Bands override the base rate on weekdays (Monday to Friday) or on the weekend,
+ * and a later band overrides an earlier one where they overlap.
+ */
+public final class Tariff {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+    private static final long MILLIS_PER_MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long RATE_SCALE = 1000;
+    // an amount is in thousandths x milliseconds; a cent is 1/100 of a unit per hour
+    private static final long AMOUNT_PER_CENT = RATE_SCALE * TimeUnit.HOURS.toMillis(1) / MoneyUtil.CENTS_PER_UNIT;
+    private static final long PERCENT = 100;
+    // 1970-01-01 was a Thursday; day 0 of the tables is Monday
+    private static final int EPOCH_DAY_OF_WEEK = 3;
+
+    private final Map<ParkingType, RateTable> tables;
+    private final long graceMillis;
+    private final long recurringPercent;
+    private final TimeZone timeZone;
+    private final String description;
+
+    private Tariff(Map<ParkingType, RateTable> tables, long graceMillis, long recurringPercent,
+                   TimeZone timeZone, String description) {
+        this.tables = tables;
+        this.graceMillis = graceMillis;
+        this.recurringPercent = recurringPercent;
+        this.timeZone = timeZone;
+        this.description = description;
+    }
+
+    /**
+     * The historical tariff: {@link Fare} rates around the clock, 30 free minutes and
+     * 5% off for recurring customers.
+     */
+    public static Tariff defaultTariff() {
+        Properties properties = new Properties();
+        properties.setProperty(ParkingType.CAR + ".ratePerHour", String.valueOf(Fare.CAR_RATE_PER_HOUR));
+        properties.setProperty(ParkingType.BIKE + ".ratePerHour", String.valueOf(Fare.BIKE_RATE_PER_HOUR));
+        return compile(properties, "default");
+    }
+
+    public static Tariff compile(Properties properties) {
+        return compile(properties, "custom");
+    }
+
+    /**
+     * Compiles the tariff. Throws {@link IllegalArgumentException} on any invalid
+     * entry, so a broken file never replaces a working tariff.
+     */
+    public static Tariff compile(Properties properties, String description) {
+        Map<ParkingType, RateTable> tables = new EnumMap<>(ParkingType.class);
+        for (ParkingType parkingType : ParkingType.values()) {
+            String rate = properties.getProperty(parkingType + ".ratePerHour");
+            if (rate != null) {
+                tables.put(parkingType, RateTable.compile(parkingType, properties, parseRate(parkingType + ".ratePerHour", rate)));
+            }
+        }
+        if (tables.isEmpty()) {
+            throw new IllegalArgumentException("Tariff has no <TYPE>.ratePerHour entry");
+        }
+        long graceMinutes = parseLong("graceMinutes", properties.getProperty("graceMinutes", "30"));
+        long discountPercent = parseLong("recurringDiscountPercent", properties.getProperty("recurringDiscountPercent", "5"));
+        if (discountPercent > 100) {
+            throw new IllegalArgumentException("recurringDiscountPercent must be between 0 and 100");
+        }
+        String zone = properties.getProperty("timeZone", "").trim();
+        TimeZone timeZone = zone.isEmpty() ? TimeZone.getDefault() : TimeZone.getTimeZone(zone);
+        if (!zone.isEmpty() && !timeZone.getID().equals(zone)) {
+            throw new IllegalArgumentException("Unknown timeZone: " + zone);
+        }
+        return new Tariff(tables, TimeUnit.MINUTES.toMillis(graceMinutes), PERCENT - discountPercent,
+                (TimeZone) timeZone.clone(), description);
+    }
+
+    /**
+     * Returns the price of a stay in cents. Throws {@link IllegalArgumentException} for
+     * a type the tariff has no rate for, unless the stay is within the grace period.
+     */
+    public long priceCents(ParkingType parkingType, long inMillis, long outMillis) {
+        return priceCents(parkingType, inMillis, outMillis, false);
+    }
+
+    /**
+     * Returns the price of a stay in cents, with the recurring customer discount if
+     * asked. The discount applies to the exact amount, so there is a single rounding.
+     */
+    public long priceCents(ParkingType parkingType, long inMillis, long outMillis, boolean recurring) {
+        long amount = amount(parkingType, inMillis, outMillis);
+        if (!recurring) {
+            return MoneyUtil.divideHalfUp(amount, AMOUNT_PER_CENT);
+        }
+        return MoneyUtil.divideHalfUp(Math.multiplyExact(amount, recurringPercent), AMOUNT_PER_CENT * PERCENT);
+    }
+
+    /**
+     * Returns the price of a stay in cents with an arbitrary factor applied, 0.95 for
+     * 5% off. The factor is taken at its decimal value and the result rounded once.
+     */
+    public long priceCents(ParkingType parkingType, long inMillis, long outMillis, double factor) {
+        long amount = amount(parkingType, inMillis, outMillis);
+        return BigDecimal.valueOf(amount).multiply(BigDecimal.valueOf(factor))
+                .divide(BigDecimal.valueOf(AMOUNT_PER_CENT), 0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private long amount(ParkingType parkingType, long inMillis, long outMillis) {
+        if (outMillis - inMillis <= graceMillis) {
+            return 0;
+        }
+        RateTable table = parkingType == null ? null : tables.get(parkingType);
+        if (table == null) {
+            throw new IllegalArgumentException("Unkown Parking Type");
+        }
+        return table.amount(timeZone, inMillis, outMillis);
+    }
+
+    /**
+     * What a recurring customer pays as a percentage of the price, 95 for 5% off.
+     */
+    public long getRecurringPercent() {
+        return recurringPercent;
+    }
+
+    public long getGraceMillis() {
+        return graceMillis;
+    }
+
+    public boolean hasRate(ParkingType parkingType) {
+        return tables.containsKey(parkingType);
+    }
+
+    @Override
+    public String toString() {
+        return description + " tariff for " + tables.keySet();
+    }
+
+    private static long parseRate(String key, String value) {
+        try {
+            double rate = Double.parseDouble(value.trim());
+            if (rate < 0 || Double.isNaN(rate) || Double.isInfinite(rate)) {
+                throw new IllegalArgumentException("Invalid rate for " + key + ": " + value);
+            }
+            return Math.round(rate * RATE_SCALE);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid rate for " + key + ": " + value, e);
+        }
+    }
+
+    private static long parseLong(String key, String value) {
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed < 0) {
+                throw new IllegalArgumentException("Negative value for " + key + ": " + value);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + key + ": " + value, e);
+        }
+    }
+
+    /**
+     * Rates of one vehicle type over a week. {@code segmentAt} maps each minute of
+     * the week to the segment covering it; segments never span midnight, so a stay is
+     * split at day boundaries for the daily cap on the way.
+     */
+    private static final class RateTable {
+
+        private final short[] segmentAt;
+        private final int[] segmentEnd;
+        private final long[] segmentRate;
+        private final long dailyCapAmount;
+
+        private RateTable(short[] segmentAt, int[] segmentEnd, long[] segmentRate, long dailyCapAmount) {
+            this.segmentAt = segmentAt;
+            this.segmentEnd = segmentEnd;
+            this.segmentRate = segmentRate;
+            this.dailyCapAmount = dailyCapAmount;
+        }
+
+        static RateTable compile(ParkingType parkingType, Properties properties, long rate) {
+            String prefix = parkingType + ".";
+            long weekendRate = properties.containsKey(prefix + "weekendRatePerHour")
+                    ? parseRate(prefix + "weekendRatePerHour", properties.getProperty(prefix + "weekendRatePerHour"))
+                    : rate;
+            long[] rateAt = new long[MINUTES_PER_WEEK];
+            for (int day = 0; day < 7; day++) {
+                boolean weekend = day >= 5;
+                Arrays.fill(rateAt, day * MINUTES_PER_DAY, (day + 1) * MINUTES_PER_DAY, weekend ? weekendRate : rate);
+                String bandsKey = prefix + (weekend ? "weekendBands" : "bands");
+                applyBands(rateAt, day, bandsKey, properties.getProperty(bandsKey, ""));
+            }
+
+            short[] segmentAt = new short[MINUTES_PER_WEEK];
+            int[] ends = new int[MINUTES_PER_WEEK];
+            long[] rates = new long[MINUTES_PER_WEEK];
+            int segments = 0;
+            for (int minute = 0; minute < MINUTES_PER_WEEK; minute++) {
+                boolean newSegment = minute == 0 || minute % MINUTES_PER_DAY == 0 || rateAt[minute] != rateAt[minute - 1];
+                if (newSegment) {
+                    rates[segments++] = rateAt[minute];
+                }
+                segmentAt[minute] = (short) (segments - 1);
+                ends[segments - 1] = minute + 1;
+            }
+
+            String cap = properties.getProperty(prefix + "dailyCap", "").trim();
+            long dailyCapAmount = cap.isEmpty() ? Long.MAX_VALUE
+                    : parseRate(prefix + "dailyCap", cap) * TimeUnit.HOURS.toMillis(1);
+            return new RateTable(segmentAt, Arrays.copyOf(ends, segments), Arrays.copyOf(rates, segments), dailyCapAmount);
+        }
+
+        private static void applyBands(long[] rateAt, int day, String key, String bands) {
+            for (String band : bands.split(",")) {
+                band = band.trim();
+                if (band.isEmpty()) {
+                    continue;
+                }
+                int at = band.indexOf('@');
+                int dash = band.indexOf('-');
+                if (at < 0 || dash < 0 || dash > at) {
+                    throw new IllegalArgumentException("Invalid band in " + key + ": " + band + ", expected HH:mm-HH:mm@rate");
+                }
+                int from = parseMinuteOfDay(key, band.substring(0, dash));
+                int to = parseMinuteOfDay(key, band.substring(dash + 1, at));
+                if (from >= to) {
+                    throw new IllegalArgumentException("Band ends before it starts in " + key + ": " + band);
+                }
+                long rate = parseRate(key, band.substring(at + 1));
+                Arrays.fill(rateAt, day * MINUTES_PER_DAY + from, day * MINUTES_PER_DAY + to, rate);
+            }
+        }
+
+        private static int parseMinuteOfDay(String key, String time) {
+            String[] parts = time.trim().split(":");
+            try {
+                int hours = Integer.parseInt(parts[0]);
+                int minutes = parts.length == 2 ? Integer.parseInt(parts[1]) : -1;
+                int minuteOfDay = hours * 60 + minutes;
+                if (parts.length != 2 || minutes < 0 || minutes > 59 || minuteOfDay > MINUTES_PER_DAY) {
+                    throw new IllegalArgumentException("Invalid time in " + key + ": " + time);
+                }
+                return minuteOfDay;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid time in " + key + ": " + time, e);
+            }
+        }
+
+        /**
+         * Sums {@code milliseconds x rate} over the stay, capping each calendar day.
+         */
+        long amount(TimeZone timeZone, long inMillis, long outMillis) {
+            long total = 0;
+            long dayAmount = 0;
+            long currentDay = Long.MIN_VALUE;
+            long time = inMillis;
+            while (time < outMillis) {
+                long offset = timeZone.getOffset(time);
+                long local = time + offset;
+                long day = Math.floorDiv(local, MILLIS_PER_DAY);
+                long millisOfDay = local - day * MILLIS_PER_DAY;
+                int dayOfWeek = (int) Math.floorMod(day + EPOCH_DAY_OF_WEEK, 7L);
+                int segment = segmentAt[dayOfWeek * MINUTES_PER_DAY + (int) (millisOfDay / MILLIS_PER_MINUTE)];
+                long segmentEndLocal = day * MILLIS_PER_DAY
+                        + (segmentEnd[segment] - dayOfWeek * MINUTES_PER_DAY) * MILLIS_PER_MINUTE;
+                // a daylight saving change inside the segment can move its end before us
+                long end = Math.min(Math.max(segmentEndLocal - offset, time + 1), outMillis);
+                if (day != currentDay) {
+                    total += Math.min(dayAmount, dailyCapAmount);
+                    dayAmount = 0;
+                    currentDay = day;
+                }
+                dayAmount += (end - time) * segmentRate[segment];
+                time = end;
+            }
+            return total + Math.min(dayAmount, dailyCapAmount);
+        }
+    }
+}
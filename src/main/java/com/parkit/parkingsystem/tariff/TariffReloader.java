@@ -0,0 +1,100 @@
+package com.parkit.parkingsystem.tariff;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Loads a tariff file and compiles it again whenever its modification time changes.
+ * A new tariff is handed to the consumer only once it compiled, so a file caught
+ * half-written or with a typo leaves the current tariff in place.
+ */
+public class TariffReloader implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("TariffReloader");
+
+    private final Path file;
+    private final Consumer<Tariff> consumer;
+    private long lastModified = Long.MIN_VALUE;
+    private ScheduledExecutorService scheduler;
+
+    public TariffReloader(Path file, Consumer<Tariff> consumer) {
+        this.file = file;
+        this.consumer = consumer;
+    }
+
+    public static Tariff load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        return Tariff.compile(properties, file.getFileName().toString());
+    }
+
+    /**
+     * Loads a tariff file packaged on the classpath.
+     */
+    public static Tariff loadResource(String resource) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = TariffReloader.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Tariff resource " + resource + " not found on classpath");
+            }
+            properties.load(in);
+        }
+        return Tariff.compile(properties, resource);
+    }
+
+    /**
+     * Compiles and publishes the file if it changed since the last call. Returns
+     * true when a new tariff was published.
+     */
+    public synchronized boolean reloadIfChanged() {
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            if (modified == lastModified) {
+                return false;
+            }
+            Tariff tariff = load(file);
+            lastModified = modified;
+            consumer.accept(tariff);
+            logger.info("Loaded {}", tariff);
+            return true;
+        } catch (IOException | IllegalArgumentException ex) {
+            logger.error("Error loading tariff file " + file + ", keeping the current tariff", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Checks the file every {@code intervalMillis}.
+     */
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tariff-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reloadIfChanged, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds how many calls of one kind run at once and how many may wait for a turn.
+ * A call beyond {@code maxQueued} waiting, or still waiting after
+ * {@code maxWaitMillis}, is refused, so a slow backend cannot pile callers up
+ * without limit.
+ */
+public class AdmissionLimiter {
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxWaitMillis;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public AdmissionLimiter(int maxConcurrent, int maxQueued, long maxWaitMillis) {
+        if (maxConcurrent < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1 and maxQueued at least 0");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWaitMillis = maxWaitMillis;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Takes a turn, waiting if needed. Returns false when refused; on true the
+     * caller must {@link #release()} in a finally block.
+     */
+    public boolean tryAcquire() throws InterruptedException {
+        if (permits.tryAcquire()) {
+            admitted.increment();
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        try {
+            if (permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                admitted.increment();
+                return true;
+            }
+            rejected.increment();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getInFlight() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * Calls waiting for a turn right now.
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "AdmissionLimiter[inFlight=" + getInFlight() + "/" + maxConcurrent + ", queued=" + getQueueDepth()
+                + "/" + maxQueued + ", admitted=" + getAdmittedCount() + ", rejected=" + getRejectedCount() + "]";
+    }
+}
@@ -0,0 +1,234 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The little JSON the gate API and the event replay need: flat objects in, objects
+ * built field by field out. Not a general purpose parser; nested values are rejected.
+ */
+public final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Parses a flat object whose values are strings, numbers, booleans or null.
+     * Every value is returned as its text, null for {@code null}. Throws
+     * {@link IllegalArgumentException} on anything else.
+     */
+    public static Map<String, String> parseObject(String json) {
+        Parser parser = new Parser(json);
+        Map<String, String> fields = new LinkedHashMap<>();
+        parser.expect('{');
+        if (!parser.consume('}')) {
+            do {
+                String name = parser.string();
+                parser.expect(':');
+                fields.put(name, parser.value());
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+        parser.end();
+        return fields;
+    }
+
+    public static final class Builder {
+
+        private final StringBuilder json = new StringBuilder("{");
+
+        public Builder put(String name, String value) {
+            name(name);
+            if (value == null) {
+                json.append("null");
+            } else {
+                quote(value);
+            }
+            return this;
+        }
+
+        public Builder put(String name, long value) {
+            name(name);
+            json.append(value);
+            return this;
+        }
+
+        public Builder put(String name, double value) {
+            name(name);
+            json.append(value);
+            return this;
+        }
+
+        public Builder put(String name, boolean value) {
+            name(name);
+            json.append(value);
+            return this;
+        }
+
+        public Builder put(String name, Builder value) {
+            name(name);
+            json.append(value);
+            return this;
+        }
+
+        private void name(String name) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            quote(name);
+            json.append(':');
+        }
+
+        private void quote(String value) {
+            json.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        json.append("\\\"");
+                        break;
+                    case '\\':
+                        json.append("\\\\");
+                        break;
+                    case '\n':
+                        json.append("\\n");
+                        break;
+                    case '\r':
+                        json.append("\\r");
+                        break;
+                    case '\t':
+                        json.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            json.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            json.append(c);
+                        }
+                }
+            }
+            json.append('"');
+        }
+
+        @Override
+        public String toString() {
+            return json + "}";
+        }
+    }
+
+    private static final class Parser {
+
+        private final String json;
+        private int position;
+
+        private Parser(String json) {
+            this.json = json;
+        }
+
+        private void skipWhitespace() {
+            while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+                position++;
+            }
+        }
+
+        private boolean consume(char c) {
+            skipWhitespace();
+            if (position < json.length() && json.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) {
+                throw error("'" + c + "' expected");
+            }
+        }
+
+        private void end() {
+            skipWhitespace();
+            if (position != json.length()) {
+                throw error("end of input expected");
+            }
+        }
+
+        private String value() {
+            skipWhitespace();
+            if (position < json.length() && json.charAt(position) == '"') {
+                return string();
+            }
+            int start = position;
+            while (position < json.length() && "-+.eE0123456789truefalsn".indexOf(json.charAt(position)) >= 0) {
+                position++;
+            }
+            String literal = json.substring(start, position);
+            if ("null".equals(literal)) {
+                return null;
+            }
+            if ("true".equals(literal) || "false".equals(literal)) {
+                return literal;
+            }
+            try {
+                Double.parseDouble(literal);
+                return literal;
+            } catch (NumberFormatException e) {
+                throw error("string, number, boolean or null expected");
+            }
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (position < json.length()) {
+                char c = json.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= json.length()) {
+                    break;
+                }
+                char escaped = json.charAt(position++);
+                switch (escaped) {
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > json.length()) {
+                            throw error("incomplete unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("invalid unicode escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                }
+            }
+            throw error("unterminated string");
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid JSON at " + position + ": " + message);
+        }
+    }
+}
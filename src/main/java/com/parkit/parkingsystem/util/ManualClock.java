@@ -0,0 +1,50 @@
+package com.parkit.parkingsystem.util;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * A clock that only moves when told to, for replaying events at their recorded
+ * times. Reads and writes are visible across threads, but a replay that sets the
+ * time and then acts on it must do both from one thread.
+ */
+public final class ManualClock extends Clock {
+
+    private final ZoneId zone;
+    private volatile long millis;
+
+    public ManualClock(long millis) {
+        this(millis, ZoneOffset.UTC);
+    }
+
+    private ManualClock(long millis, ZoneId zone) {
+        this.millis = millis;
+        this.zone = zone;
+    }
+
+    public void setMillis(long millis) {
+        this.millis = millis;
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new ManualClock(millis, zone);
+    }
+}
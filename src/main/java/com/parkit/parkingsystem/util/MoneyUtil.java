@@ -0,0 +1,43 @@
+package com.parkit.parkingsystem.util;
+
+/**
+ * Fixed-point money helpers. Amounts are kept as a {@code long} number of cents,
+ * and every conversion rounds half up (away from zero), once.
+ */
+public final class MoneyUtil {
+
+    public static final long CENTS_PER_UNIT = 100;
+
+    private MoneyUtil() {
+    }
+
+    /**
+     * Rounds a currency amount to the nearest cent, halves away from zero. Meant for
+     * amounts coming from outside (the DB column, a snapshot); prices themselves are
+     * computed in cents.
+     */
+    public static long toCents(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Invalid amount: " + amount);
+        }
+        // exact for amounts that are whole cents, such as prices read back from the DB
+        double cents = amount * CENTS_PER_UNIT;
+        return cents < 0 ? -Math.round(-cents) : Math.round(cents);
+    }
+
+    public static double toUnits(long cents) {
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    /**
+     * {@code dividend / divisor} rounded half away from zero, for a positive divisor.
+     */
+    public static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) >= divisor - Math.abs(remainder)) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+}
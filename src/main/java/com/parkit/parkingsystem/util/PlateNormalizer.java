@@ -0,0 +1,60 @@
+package com.parkit.parkingsystem.util;
+
+/**
+ * Puts registration numbers in one canonical form: upper case, without dashes or
+ * ASCII whitespace, so "ab-123 cd" and "AB123CD " are the same vehicle everywhere.
+ * The migration {@code V4__normalize_plates.sql} strips the same {@link #SEPARATORS}
+ * from the plates already stored, so both must change together. A plate
+ * that is already canonical, the usual case once plates are stored normalized, is
+ * returned as is without allocating.
+ */
+public final class PlateNormalizer {
+
+    /**
+     * The characters dropped from a plate: the dash, space, tab, line feed,
+     * vertical tab, form feed and carriage return.
+     */
+    public static final String SEPARATORS = "- \t\n\u000B\f\r";
+
+    private PlateNormalizer() {
+    }
+
+    /**
+     * Returns the canonical form of the plate, or null for a null plate. A plate made
+     * only of separators normalizes to the empty string.
+     */
+    public static String normalize(String vehicleRegNumber) {
+        if (vehicleRegNumber == null) {
+            return null;
+        }
+        int length = vehicleRegNumber.length();
+        int i = 0;
+        while (i < length && isCanonical(vehicleRegNumber.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return vehicleRegNumber;
+        }
+        char[] normalized = new char[length];
+        vehicleRegNumber.getChars(0, i, normalized, 0);
+        int size = i;
+        for (; i < length; i++) {
+            char c = vehicleRegNumber.charAt(i);
+            if (!isSeparator(c)) {
+                normalized[size++] = Character.toUpperCase(c);
+            }
+        }
+        return new String(normalized, 0, size);
+    }
+
+    private static boolean isCanonical(char c) {
+        if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+            return true;
+        }
+        return !isSeparator(c) && Character.toUpperCase(c) == c;
+    }
+
+    private static boolean isSeparator(char c) {
+        return SEPARATORS.indexOf(c) >= 0;
+    }
+}
@@ -0,0 +1,83 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared by key hash: operations on the same key are
+ * serialized, operations on keys of different stripes run in parallel, and memory
+ * stays constant however many keys there are. Two keys may share a stripe, which
+ * only costs them some parallelism.
+ * <p>
+ * Counts acquisitions, those that had to wait because the stripe was held, and the
+ * total time spent waiting.
+ */
+public class StripedLock {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    /**
+     * @param stripes rounded up to a power of two
+     */
+    public StripedLock(int stripes) {
+        if (stripes < 1 || stripes > 1 << 16) {
+            throw new IllegalArgumentException("stripes must be between 1 and 65536");
+        }
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Locks the stripe of {@code key} and returns it, for the caller to unlock in a
+     * finally block.
+     */
+    public Lock acquire(Object key) {
+        int hash = key.hashCode();
+        ReentrantLock lock = locks[(hash ^ (hash >>> 16)) & mask];
+        if (!lock.tryLock()) {
+            contended.increment();
+            long start = System.nanoTime();
+            lock.lock();
+            waitNanos.add(System.nanoTime() - start);
+        }
+        acquired.increment();
+        return lock;
+    }
+
+    public int getStripes() {
+        return locks.length;
+    }
+
+    public long getAcquiredCount() {
+        return acquired.sum();
+    }
+
+    /**
+     * Acquisitions that found their stripe held and waited.
+     */
+    public long getContendedCount() {
+        return contended.sum();
+    }
+
+    public long getWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "StripedLock[stripes=" + locks.length + ", acquired=" + getAcquiredCount()
+                + ", contended=" + getContendedCount() + ", waitMillis=" + waitNanos.sum() / 1_000_000 + "]";
+    }
+}
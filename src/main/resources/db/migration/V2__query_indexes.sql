@@ -0,0 +1,9 @@
+-- GET_TICKET, GET_UPDATED_TICKET, GET_RECURRENT and GET_RECURRENT_PLATES:
+-- seek on the plate, then OUT_TIME/IN_TIME order; PARKING_NUMBER and PRICE make it covering
+create index IDX_TICKET_PLATE_OUT_TIME on ticket(VEHICLE_REG_NUMBER, OUT_TIME, IN_TIME, PARKING_NUMBER, PRICE);
+
+-- GET_OPEN_TICKETS: OUT_TIME is null, ordered by IN_TIME
+create index IDX_TICKET_OUT_TIME_IN_TIME on ticket(OUT_TIME, IN_TIME);
+
+-- GET_NEXT_PARKING_SPOT and CLAIM_NEXT_PARKING_SPOT: lowest free number of a type
+create index IDX_PARKING_TYPE_AVAILABLE on parking(TYPE, AVAILABLE, PARKING_NUMBER);
@@ -0,0 +1,12 @@
+-- Closed tickets older than ticket.archive.maxAgeDays, moved here by TicketArchiver
+create table ticket_history(
+ ID int PRIMARY KEY,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL
+);
+
+-- GET_UPDATED_TICKET_HISTORY and GET_RECURRENT_HISTORY, covering like IDX_TICKET_PLATE_OUT_TIME
+create index IDX_TICKET_HISTORY_PLATE_OUT_TIME on ticket_history(VEHICLE_REG_NUMBER, OUT_TIME, IN_TIME, PARKING_NUMBER, PRICE);
@@ -0,0 +1,7 @@
+-- The gates store plates normalized by PlateNormalizer: upper case, without dashes or the
+-- ASCII whitespace of PlateNormalizer.SEPARATORS. Rows saved before that are rewritten the same way.
+-- CAST makes CHAR() a text string, which UPPER needs on MySQL. There is no WHERE clause: with the
+-- case-insensitive default collation a plate differing only in case would compare equal and be skipped.
+update ticket set VEHICLE_REG_NUMBER = UPPER(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(VEHICLE_REG_NUMBER, ' ', ''), '-', ''), CAST(CHAR(9) AS CHAR(1)), ''), CAST(CHAR(10) AS CHAR(1)), ''), CAST(CHAR(11) AS CHAR(1)), ''), CAST(CHAR(12) AS CHAR(1)), ''), CAST(CHAR(13) AS CHAR(1)), ''));
+
+update ticket_history set VEHICLE_REG_NUMBER = UPPER(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(VEHICLE_REG_NUMBER, ' ', ''), '-', ''), CAST(CHAR(9) AS CHAR(1)), ''), CAST(CHAR(10) AS CHAR(1)), ''), CAST(CHAR(11) AS CHAR(1)), ''), CAST(CHAR(12) AS CHAR(1)), ''), CAST(CHAR(13) AS CHAR(1)), ''));
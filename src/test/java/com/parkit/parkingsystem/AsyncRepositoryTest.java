@@ -0,0 +1,111 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.AsyncParkingSpotRepository;
+import com.parkit.parkingsystem.dao.AsyncTicketRepository;
+import com.parkit.parkingsystem.dao.DaoExecutors;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncRepositoryTest {
+
+    @Mock
+    private TicketRepository ticketRepository;
+    @Mock
+    private ParkingSpotRepository parkingSpotRepository;
+    @Mock
+    private InputReaderUtil inputReaderUtil;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = DaoExecutors.create(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void independentLookupsOverlap() throws Exception {
+        // each call waits for the other, so this only completes if both run at once
+        CyclicBarrier bothRunning = new CyclicBarrier(2);
+        when(ticketRepository.getTicket("ABCDEF")).thenAnswer(invocation -> {
+            bothRunning.await(5, TimeUnit.SECONDS);
+            return new Ticket();
+        });
+        when(ticketRepository.isReccurent("ABCDEF")).thenAnswer(invocation -> {
+            bothRunning.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+        AsyncTicketRepository asyncTickets = new AsyncTicketRepository(ticketRepository, executor);
+
+        CompletableFuture<Ticket> ticket = asyncTickets.getTicket("ABCDEF");
+        CompletableFuture<Boolean> recurring = asyncTickets.isReccurent("ABCDEF");
+
+        assertNotNull(ticket.get(5, TimeUnit.SECONDS));
+        assertTrue(recurring.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failuresCompleteTheFutureExceptionally() {
+        when(parkingSpotRepository.claimNextAvailableSlot(ParkingType.CAR)).thenThrow(new IllegalStateException("down"));
+        AsyncParkingSpotRepository asyncSpots = new AsyncParkingSpotRepository(parkingSpotRepository, executor);
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> asyncSpots.claimNextAvailableSlot(ParkingType.CAR).join());
+
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void exitLooksUpTicketAndRecurrenceConcurrently() {
+        CyclicBarrier bothRunning = new CyclicBarrier(2);
+        Ticket ticket = new Ticket();
+        ticket.setInTime(new Date(System.currentTimeMillis() - (60 * 60 * 1000)));
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(ticketRepository.getTicket("ABCDEF")).thenAnswer(invocation -> {
+            bothRunning.await(5, TimeUnit.SECONDS);
+            return ticket;
+        });
+        when(ticketRepository.isReccurent("ABCDEF")).thenAnswer(invocation -> {
+            bothRunning.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+        when(ticketRepository.updateTicket(any(Ticket.class))).thenReturn(true);
+        when(parkingSpotRepository.updateParking(any(ParkingSpot.class))).thenReturn(true);
+        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotRepository, ticketRepository, executor);
+
+        parkingService.processExitingVehicle();
+
+        verify(ticketRepository).updateTicket(ticket);
+        assertNotNull(ticket.getOutTime());
+        assertEquals(0.95 * 1.5, ticket.getPrice(), 0.01);
+    }
+}
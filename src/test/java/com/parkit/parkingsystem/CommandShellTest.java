@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.memory.InMemoryStorage;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.CommandShell;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.Json;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandShellTest {
+
+    private static final Logger logger = LogManager.getLogger("CommandShellTest");
+
+    @Test
+    void eachCommandWritesOneResultLine() throws Exception {
+        CommandShell shell = new CommandShell(parkingService(new InMemoryStorage(layout(1, 1))));
+        String commands = "IN CAR AB123CD\n"
+                + "\n"
+                + "# a bike comes in\n"
+                + "entry bike  XY 987\n"
+                + "IN CAR EF456\n"
+                + "OUT ab123cd\n"
+                + "PARK AB123CD\n"
+                + "IN TRUCK AB123CD\n"
+                + "OUT\n"
+                + "exit GH789\n";
+        StringWriter out = new StringWriter();
+
+        shell.run(new StringReader(commands), out);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(8, lines.length);
+        assertEquals("ENTERED", status(lines[0]));
+        assertEquals("1", Json.parseObject(lines[0]).get("parkingNumber"));
+        assertEquals("ENTERED", status(lines[1]));
+        assertEquals("XY987", Json.parseObject(lines[1]).get("plate"));
+        assertEquals("LOT_FULL", status(lines[2]));
+        assertEquals("EXITED", status(lines[3]));
+        assertEquals("INVALID_INPUT", status(lines[4]));
+        assertEquals("7", Json.parseObject(lines[4]).get("line"));
+        assertEquals("INVALID_INPUT", status(lines[5]));
+        assertEquals("INVALID_INPUT", status(lines[6]));
+        assertEquals("NOT_INSIDE", status(lines[7]));
+        assertEquals(8, shell.getCommandCount());
+        assertEquals(3, shell.getInvalidCount());
+        assertEquals(2, shell.getFailedCount());
+    }
+
+    @Test
+    void aLargeScriptRunsQuickly() throws Exception {
+        InMemoryStorage storage = new InMemoryStorage(layout(100, 0));
+        CommandShell shell = new CommandShell(parkingService(storage));
+        StringBuilder commands = new StringBuilder();
+        int vehicles = 20_000;
+        for (int i = 0; i < vehicles; i++) {
+            commands.append("IN CAR P").append(i).append('\n');
+            commands.append("OUT P").append(i).append('\n');
+        }
+        StringWriter out = new StringWriter();
+
+        long start = System.nanoTime();
+        shell.run(new StringReader(commands.toString()), out);
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        logger.info("Ran {} commands in {} ms ({} per second)", shell.getCommandCount(), elapsedMillis,
+                shell.getCommandCount() * 1000 / elapsedMillis);
+
+        assertEquals(2 * vehicles, shell.getCommandCount());
+        assertEquals(0, shell.getInvalidCount());
+        assertEquals(0, shell.getFailedCount());
+        assertEquals(2 * vehicles, out.toString().split("\n").length);
+        assertEquals(vehicles, storage.getTicketRepository().getTickets().size());
+    }
+
+    private static ParkingService parkingService(InMemoryStorage storage) {
+        return new ParkingService(storage.getParkingSpotRepository(), storage.getTicketRepository(),
+                Runnable::run, new FareCalculatorService());
+    }
+
+    private static String status(String line) {
+        Map<String, String> fields = Json.parseObject(line);
+        return fields.get("status");
+    }
+
+    private static List<ParkingSpot> layout(int cars, int bikes) {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int i = 1; i <= cars + bikes; i++) {
+            parkingSpots.add(new ParkingSpot(i, i <= cars ? ParkingType.CAR : ParkingType.BIKE, true));
+        }
+        return parkingSpots;
+    }
+}
@@ -0,0 +1,260 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.CircuitBreaker;
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.PoolSettings;
+import com.parkit.parkingsystem.config.PoolStats;
+import nl.altindag.log.LogCaptor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ConnectionPoolTest {
+
+    private PoolSettings settings;
+    private List<Connection> physicalConnections;
+    private ConnectionPool pool;
+
+    private static LogCaptor logCaptor;
+
+    @BeforeEach
+    void setUp() {
+        settings = new PoolSettings();
+        settings.setMaxSize(2);
+        settings.setMinIdle(0);
+        settings.setMaxWaitMillis(50);
+        settings.setHousekeepingIntervalMillis(0);
+        physicalConnections = new ArrayList<>();
+
+        logCaptor = LogCaptor.forName("ConnectionPool");
+        logCaptor.setLogLevelToInfo();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private ConnectionPool newPool() {
+        pool = new ConnectionPool(settings, () -> {
+            Connection connection = mock(Connection.class);
+            when(connection.getAutoCommit()).thenReturn(true);
+            when(connection.prepareStatement(anyString())).thenAnswer(invocation -> mock(PreparedStatement.class));
+            physicalConnections.add(connection);
+            return connection;
+        });
+        return pool;
+    }
+
+    @Test
+    void closedConnectionIsReusedInsteadOfReopened() throws SQLException {
+        newPool();
+
+        pool.getConnection().close();
+        pool.getConnection().close();
+
+        assertEquals(1, physicalConnections.size());
+        verify(physicalConnections.get(0), never()).close();
+        assertEquals(1, pool.getStats().getIdle());
+        assertEquals(2, pool.getStats().getBorrows());
+    }
+
+    @Test
+    void borrowingBeyondMaxSizeTimesOut() throws SQLException {
+        newPool();
+        pool.getConnection();
+        pool.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, () -> pool.getConnection());
+
+        PoolStats stats = pool.getStats();
+        assertEquals(2, stats.getActive());
+        assertEquals(1, stats.getTimeouts());
+    }
+
+    @Test
+    void invalidIdleConnectionIsReplacedOnBorrow() throws SQLException {
+        settings.setValidationIntervalMillis(0);
+        newPool();
+        pool.getConnection().close();
+        when(physicalConnections.get(0).isValid(anyInt())).thenReturn(false);
+
+        pool.getConnection();
+
+        assertEquals(2, physicalConnections.size());
+        verify(physicalConnections.get(0)).close();
+    }
+
+    @Test
+    void housekeepEvictsIdleConnectionsPastTimeout() throws SQLException {
+        settings.setIdleTimeoutMillis(-1);
+        newPool();
+        pool.getConnection().close();
+
+        pool.housekeep();
+
+        assertEquals(0, pool.getStats().getIdle());
+        assertEquals(1, pool.getStats().getDestroyed());
+    }
+
+    @Test
+    void housekeepReportsLeakedConnection() throws SQLException {
+        settings.setLeakDetectionThresholdMillis(1);
+        newPool();
+        pool.getConnection();
+
+        sleep(10);
+        pool.housekeep();
+
+        assertEquals(1, pool.getStats().getLeaksDetected());
+        assertTrue(logCaptor.getWarnLogs().get(0).startsWith("Possible connection leak"));
+    }
+
+    @Test
+    void closingHandleTwiceReleasesOnce() throws SQLException {
+        newPool();
+        Connection connection = pool.getConnection();
+
+        connection.close();
+        connection.close();
+
+        assertTrue(connection.isClosed());
+        assertEquals(1, pool.getStats().getIdle());
+        assertThrows(SQLException.class, () -> connection.prepareStatement("select 1"));
+    }
+
+    @Test
+    void preparedStatementIsReusedAcrossLeases() throws SQLException {
+        newPool();
+        Connection first = pool.getConnection();
+        PreparedStatement ps = first.prepareStatement("select 1");
+        ps.close();
+        first.close();
+
+        Connection second = pool.getConnection();
+        PreparedStatement again = second.prepareStatement("select 1");
+
+        assertSame(ps, again);
+        verify(physicalConnections.get(0), times(1)).prepareStatement("select 1");
+        assertEquals(1, pool.getStats().getStatementCacheHits());
+        assertEquals(1, pool.getStats().getStatementCacheMisses());
+    }
+
+    @Test
+    void leastRecentlyUsedStatementIsEvicted() throws SQLException {
+        settings.setStatementCacheSize(2);
+        newPool();
+        Connection connection = pool.getConnection();
+        connection.prepareStatement("select 1").close();
+        connection.prepareStatement("select 2").close();
+        connection.prepareStatement("select 1").close();
+
+        connection.prepareStatement("select 3").close();
+        connection.prepareStatement("select 2").close();
+
+        assertEquals(2, pool.getStats().getStatementCacheEvictions());
+        assertEquals(1, pool.getStats().getStatementCacheHits());
+        verify(physicalConnections.get(0), times(2)).prepareStatement("select 2");
+    }
+
+    @Test
+    void statementStillInUseIsNotSharedTwice() throws SQLException {
+        newPool();
+        Connection connection = pool.getConnection();
+        PreparedStatement ps = connection.prepareStatement("select 1");
+
+        PreparedStatement other = connection.prepareStatement("select 1");
+
+        assertNotSame(ps, other);
+        assertEquals(2, pool.getStats().getStatementCacheMisses());
+    }
+
+    @Test
+    void statementsGetTheQueryTimeout() throws SQLException {
+        settings.setQueryTimeoutSeconds(5);
+        List<PreparedStatement> statements = new ArrayList<>();
+        pool = new ConnectionPool(settings, () -> {
+            Connection connection = mock(Connection.class);
+            when(connection.getAutoCommit()).thenReturn(true);
+            when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+                PreparedStatement statement = mock(PreparedStatement.class);
+                statements.add(statement);
+                return statement;
+            });
+            return connection;
+        });
+
+        Connection connection = pool.getConnection();
+        connection.prepareStatement("select 1").close();
+        connection.prepareStatement("select 1");
+
+        verify(statements.get(0), times(2)).setQueryTimeout(5);
+    }
+
+    @Test
+    void breakerOpensAfterTimeoutsAndRefusesAtOnce() throws Exception {
+        settings.setBreakerFailureThreshold(2);
+        settings.setBreakerOpenMillis(100);
+        boolean[] stalled = {true};
+        int[] opened = {0};
+        pool = new ConnectionPool(settings, () -> {
+            opened[0]++;
+            Connection connection = mock(Connection.class);
+            when(connection.getAutoCommit()).thenReturn(true);
+            when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+                PreparedStatement statement = mock(PreparedStatement.class);
+                when(statement.executeQuery()).thenAnswer(query -> {
+                    if (stalled[0]) {
+                        throw new SQLTimeoutException("Query timed out");
+                    }
+                    return null;
+                });
+                return statement;
+            });
+            return connection;
+        });
+
+        for (int i = 0; i < 2; i++) {
+            Connection connection = pool.getConnection();
+            try {
+                PreparedStatement ps = connection.prepareStatement("select 1");
+                assertThrows(SQLTimeoutException.class, ps::executeQuery);
+            } finally {
+                connection.close();
+            }
+        }
+        CircuitBreaker breaker = pool.getCircuitBreaker();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(SQLTransientConnectionException.class, () -> pool.getConnection());
+        assertEquals(1, breaker.getRejectedCount());
+        assertEquals(1, opened[0]);
+
+        sleep(150);
+        stalled[0] = false;
+        Connection connection = pool.getConnection();
+        connection.prepareStatement("select 1").executeQuery();
+        connection.close();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
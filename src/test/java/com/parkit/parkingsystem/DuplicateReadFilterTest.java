@@ -0,0 +1,80 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.DuplicateReadFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateReadFilterTest {
+
+    @Test
+    void repeatsInsideTheWindowAreRejected() {
+        DuplicateReadFilter filter = new DuplicateReadFilter(3_000);
+
+        assertFalse(filter.isRepeat("AB-123 cd", 10_000));
+        assertTrue(filter.isRepeat("AB123CD", 10_500));
+        assertTrue(filter.isRepeat("ab123cd", 12_999));
+        assertFalse(filter.isRepeat("EF456", 12_999));
+        // the window runs from the accepted read, not from the last repeat
+        assertFalse(filter.isRepeat("AB123CD", 13_000));
+
+        assertEquals(3, filter.getAcceptedCount());
+        assertEquals(2, filter.getRejectedCount());
+    }
+
+    @Test
+    void aForgottenReadLetsTheNextOneThrough() {
+        DuplicateReadFilter filter = new DuplicateReadFilter(3_000);
+
+        assertFalse(filter.isRepeat("AB123CD", 10_000));
+        filter.forget("AB123CD", 9_000);
+        assertTrue(filter.isRepeat("AB123CD", 10_100));
+        filter.forget("ab-123-cd", 10_000);
+        assertFalse(filter.isRepeat("AB123CD", 10_200));
+    }
+
+    @Test
+    void expiredPlatesAreSwept() {
+        DuplicateReadFilter filter = new DuplicateReadFilter(1_000);
+        for (int i = 0; i < 100; i++) {
+            filter.isRepeat("PLATE" + i, 5_000);
+        }
+        assertEquals(100, filter.getTrackedPlates());
+
+        filter.isRepeat("LATE", 7_000);
+        assertEquals(1, filter.getTrackedPlates());
+    }
+
+    @Test
+    void concurrentReadsOfOnePlateAcceptExactlyOne() throws Exception {
+        DuplicateReadFilter filter = new DuplicateReadFilter(3_000);
+        ExecutorService cameras = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> reads = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                long readMillis = 10_000 + i;
+                reads.add(cameras.submit(() -> {
+                    start.await();
+                    return filter.isRepeat("AB123CD", readMillis);
+                }));
+            }
+            start.countDown();
+            int accepted = 0;
+            for (Future<Boolean> read : reads) {
+                accepted += read.get() ? 0 : 1;
+            }
+            assertEquals(1, accepted);
+            assertEquals(63, filter.getRejectedCount());
+        } finally {
+            cameras.shutdownNow();
+        }
+    }
+}
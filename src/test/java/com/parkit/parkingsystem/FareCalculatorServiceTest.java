@@ -60,7 +60,9 @@ class FareCalculatorServiceTest {
         ticket.setOutTime(outTime);
         ticket.setParkingSpot(parkingSpot);
         fareCalculatorService.calculateFareDiscount(ticket, 0.95);
-        assertEquals(ticket.getPrice(), (Fare.CAR_RATE_PER_HOUR * 0.95));
+        // 1.425 rounded half up to the cent
+        assertEquals(143, ticket.getPriceCents());
+        assertEquals(1.43, ticket.getPrice());
     }
 
     @Test
@@ -152,7 +154,9 @@ class FareCalculatorServiceTest {
         ticket.setOutTime(outTime);
         ticket.setParkingSpot(parkingSpot);
         fareCalculatorService.calculateFare(ticket);
-        assertEquals( (0.75 * Fare.CAR_RATE_PER_HOUR) , ticket.getPrice());
+        // 0.75 * 1.5 = 1.125, rounded half up to the cent
+        assertEquals(113, ticket.getPriceCents());
+        assertEquals(1.13, ticket.getPrice());
     }
 
     @Test
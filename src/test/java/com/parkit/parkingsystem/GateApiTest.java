@@ -0,0 +1,241 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.CircuitBreaker;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.dao.memory.InMemoryStorage;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateResult;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.AdmissionLimiter;
+import com.parkit.parkingsystem.util.ManualClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GateApiTest {
+
+    private static final int CAR_SPOTS = 50;
+
+    private InMemoryStorage storage;
+    private ParkingService parkingService;
+    private ExecutorService gates;
+
+    @BeforeEach
+    void setUp() {
+        List<ParkingSpot> layout = new ArrayList<>();
+        for (int i = 1; i <= CAR_SPOTS; i++) {
+            layout.add(new ParkingSpot(i, ParkingType.CAR, true));
+        }
+        layout.add(new ParkingSpot(CAR_SPOTS + 1, ParkingType.BIKE, true));
+        storage = new InMemoryStorage(layout);
+        parkingService = new ParkingService(storage.getParkingSpotRepository(), storage.getTicketRepository(),
+                Runnable::run, new FareCalculatorService());
+        gates = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gates.shutdownNow();
+    }
+
+    @Test
+    void repeatedReadsAreAbsorbedWithoutTouchingTheLot() throws Exception {
+        ManualClock clock = new ManualClock(1_000_000);
+        ParkingService gate = new ParkingService(storage.getParkingSpotRepository(), storage.getTicketRepository(),
+                Runnable::run, new FareCalculatorService(), clock);
+        gate.setDuplicateReadWindowMillis(3_000);
+
+        List<Future<GateResult>> reads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            reads.add(gates.submit(() -> gate.enter(ParkingType.CAR, "AB-123 CD")));
+        }
+        int entered = 0;
+        for (Future<GateResult> read : reads) {
+            GateResult.Status status = read.get().getStatus();
+            if (status == GateResult.Status.ENTERED) {
+                entered++;
+            } else {
+                assertEquals(GateResult.Status.DUPLICATE_READ, status);
+            }
+        }
+        assertEquals(1, entered);
+        assertEquals(1, storage.getTicketRepository().getTickets().size());
+        assertEquals(CAR_SPOTS - 1, storage.getParkingSpotRepository().getAvailableCount(ParkingType.CAR));
+        assertEquals(7, gate.getEntryReadFilter().getRejectedCount());
+
+        clock.setMillis(2_000_000);
+        assertEquals(GateResult.Status.EXITED, gate.exit("AB123CD").getStatus());
+        assertEquals(GateResult.Status.DUPLICATE_READ, gate.exit("AB123CD").getStatus());
+        clock.setMillis(2_003_000);
+        assertEquals(GateResult.Status.NOT_INSIDE, gate.exit("AB123CD").getStatus());
+        assertEquals(1, gate.getExitReadFilter().getRejectedCount());
+    }
+
+    @Test
+    void concurrentExitsOfOnePlateCloseItOnce() throws Exception {
+        TicketRepository tickets = storage.getTicketRepository();
+        // widens the window between reading the open ticket and closing it
+        TicketRepository slowTickets = new TicketRepository() {
+            @Override
+            public boolean saveTicket(Ticket ticket) {
+                return tickets.saveTicket(ticket);
+            }
+
+            @Override
+            public Ticket getTicket(String vehicleRegNumber) {
+                Ticket ticket = tickets.getTicket(vehicleRegNumber);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return ticket;
+            }
+
+            @Override
+            public Ticket getTicketById(String vehicleRegNumber) {
+                return tickets.getTicketById(vehicleRegNumber);
+            }
+
+            @Override
+            public Boolean isReccurent(String vehicleRegNumber) {
+                return tickets.isReccurent(vehicleRegNumber);
+            }
+
+            @Override
+            public boolean updateTicket(Ticket ticket) {
+                return tickets.updateTicket(ticket);
+            }
+
+            @Override
+            public boolean isVehicleInside(String vehicleRegNumber) {
+                return tickets.isVehicleInside(vehicleRegNumber);
+            }
+        };
+        ParkingService gate = new ParkingService(storage.getParkingSpotRepository(), slowTickets,
+                Runnable::run, new FareCalculatorService());
+        assertEquals(GateResult.Status.ENTERED, gate.enter(ParkingType.CAR, "AB123CD").getStatus());
+        assertEquals(GateResult.Status.ENTERED, gate.enter(ParkingType.CAR, "EF456").getStatus());
+
+        List<Future<GateResult>> exits = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String plate = i % 2 == 0 ? "AB123CD" : "ab-123-cd";
+            exits.add(gates.submit(() -> gate.exit(plate)));
+        }
+        int exited = 0;
+        for (Future<GateResult> exit : exits) {
+            GateResult.Status status = exit.get().getStatus();
+            if (status == GateResult.Status.EXITED) {
+                exited++;
+            } else {
+                assertEquals(GateResult.Status.NOT_INSIDE, status);
+            }
+        }
+        assertEquals(1, exited);
+        assertEquals(CAR_SPOTS - 1, storage.getParkingSpotRepository().getAvailableCount(ParkingType.CAR));
+        assertTrue(gate.getPlateLocks().getContendedCount() > 0);
+    }
+
+    @Test
+    void gatesFailFastWhenOverloadedOrDegraded() throws Exception {
+        AdmissionLimiter entryLimiter = new AdmissionLimiter(1, 0, 0);
+        CircuitBreaker breaker = new CircuitBreaker("DB", 1, 60_000);
+        parkingService.setAdmissionLimiters(entryLimiter, null);
+        parkingService.setCircuitBreaker(breaker);
+
+        assertTrue(entryLimiter.tryAcquire());
+        assertEquals(GateResult.Status.OVERLOADED, parkingService.enter(ParkingType.CAR, "AB123CD").getStatus());
+        entryLimiter.release();
+        assertEquals(GateResult.Status.ENTERED, parkingService.enter(ParkingType.CAR, "AB123CD").getStatus());
+        assertEquals(1, entryLimiter.getRejectedCount());
+        assertEquals(0, entryLimiter.getInFlight());
+
+        breaker.recordFailure();
+        assertEquals(GateResult.Status.DEGRADED, parkingService.exit("AB123CD").getStatus());
+        assertEquals(GateResult.Status.DEGRADED, parkingService.enter(ParkingType.CAR, "EF456").getStatus());
+        assertEquals(1, storage.getTicketRepository().getTickets().size());
+        assertEquals(2, breaker.getRejectedCount());
+
+        breaker.recordSuccess();
+        assertEquals(GateResult.Status.EXITED, parkingService.exit("AB123CD").getStatus());
+    }
+
+    @Test
+    void entryAndExitReturnTypedResults() {
+        GateResult entry = parkingService.enter(ParkingType.BIKE, "AB123");
+        assertEquals(GateResult.Status.ENTERED, entry.getStatus());
+        assertEquals(CAR_SPOTS + 1, entry.getParkingNumber());
+        assertNotNull(entry.getInTime());
+        assertFalse(entry.isRecurring());
+
+        assertEquals(GateResult.Status.ALREADY_INSIDE, parkingService.enter(ParkingType.BIKE, "AB123").getStatus());
+        assertEquals(GateResult.Status.LOT_FULL, parkingService.enter(ParkingType.BIKE, "CD456").getStatus());
+
+        GateResult exit = parkingService.exit("AB123");
+        assertEquals(GateResult.Status.EXITED, exit.getStatus());
+        assertEquals(CAR_SPOTS + 1, exit.getParkingNumber());
+        // within the free grace period
+        assertEquals(0, exit.getPriceCents());
+        assertNotNull(exit.getOutTime());
+
+        assertEquals(GateResult.Status.NOT_INSIDE, parkingService.exit("AB123").getStatus());
+        assertTrue(parkingService.enter(ParkingType.BIKE, "AB123").isRecurring());
+    }
+
+    @Test
+    void invalidInputIsRejectedWithoutTouchingTheLot() {
+        assertEquals(GateResult.Status.INVALID_INPUT, parkingService.enter(null, "AB123").getStatus());
+        assertEquals(GateResult.Status.INVALID_INPUT, parkingService.enter(ParkingType.CAR, " ").getStatus());
+        assertEquals(GateResult.Status.INVALID_INPUT, parkingService.exit(null).getStatus());
+        assertEquals(1, storage.getParkingSpotRepository().getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    void concurrentGatesNeverShareASpot() throws Exception {
+        List<Future<GateResult>> entries = new ArrayList<>();
+        for (int i = 0; i <= CAR_SPOTS; i++) {
+            String plate = "CAR" + i;
+            entries.add(gates.submit(() -> parkingService.enter(ParkingType.CAR, plate)));
+        }
+        Set<Integer> spots = new HashSet<>();
+        int full = 0;
+        for (Future<GateResult> entry : entries) {
+            GateResult result = entry.get();
+            if (result.getStatus() == GateResult.Status.LOT_FULL) {
+                full++;
+            } else {
+                assertEquals(GateResult.Status.ENTERED, result.getStatus());
+                assertTrue(spots.add(result.getParkingNumber()), "spot assigned twice: " + result);
+            }
+        }
+        assertEquals(CAR_SPOTS, spots.size());
+        assertEquals(1, full);
+
+        List<Future<GateResult>> exits = new ArrayList<>();
+        for (int i = 0; i <= CAR_SPOTS; i++) {
+            String plate = "CAR" + i;
+            exits.add(gates.submit(() -> parkingService.exit(plate)));
+        }
+        int exited = 0;
+        for (Future<GateResult> exit : exits) {
+            if (exit.get().getStatus() == GateResult.Status.EXITED) {
+                exited++;
+            }
+        }
+        assertEquals(CAR_SPOTS, exited);
+        assertEquals(1, storage.getParkingSpotRepository().getNextAvailableSlot(ParkingType.CAR));
+    }
+}
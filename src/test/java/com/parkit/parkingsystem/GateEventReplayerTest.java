@@ -0,0 +1,159 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketBatchWriter;
+import com.parkit.parkingsystem.dao.memory.InMemoryStorage;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateEventReplayer;
+import com.parkit.parkingsystem.service.GateResult;
+import com.parkit.parkingsystem.service.ReplayReport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GateEventReplayerTest {
+
+    private static final String[] DROP_SCHEMA = {"drop table if exists ticket_history",
+            "drop table if exists ticket", "drop table if exists parking", "drop table if exists schema_version"};
+
+    private static final long HOUR = 3_600_000L;
+    private static final long T0 = Instant.parse("2024-03-04T10:00:00Z").toEpochMilli();
+
+    private static EmbeddedDataBaseConfig dataBaseConfig;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseConfig();
+        dataBaseConfig.execute(DROP_SCHEMA);
+        new SchemaMigrator(dataBaseConfig).migrate();
+        dataBaseConfig.execute("insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR'),(2,false,'CAR'),(3,true,'CAR'),(4,true,'BIKE')");
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        dataBaseConfig.execute(DROP_SCHEMA);
+    }
+
+    @Test
+    void csvEventsArePricedWithTheirRecordedTimes() throws Exception {
+        InMemoryStorage storage = new InMemoryStorage(layout(2, 1));
+        String csv = "timestamp,event,plate,type\n"
+                + "2024-03-04T10:00:00Z,ENTRY,AB123CD,CAR\n"
+                + (T0 + 10 * 60_000) + ",in,XY987,bike\n"
+                + "\n"
+                + "# the car leaves after two hours\n"
+                + "2024-03-04T12:00:00Z,EXIT,AB123CD\n"
+                + (T0 + 3 * HOUR) + ",ENTRY,AB123CD,CAR\n"
+                + (T0 + 5 * HOUR) + ",OUT,AB123CD\n";
+
+        ReplayReport report = new GateEventReplayer(storage, new FareCalculatorService())
+                .replay(new StringReader(csv), GateEventReplayer.Format.CSV);
+
+        assertEquals(5, report.getEvents());
+        assertEquals(3, report.getCount(GateResult.Status.ENTERED));
+        assertEquals(2, report.getCount(GateResult.Status.EXITED));
+        assertEquals(0, report.getFailed());
+        List<Ticket> tickets = storage.getTicketRepository().getTickets();
+        assertEquals(3, tickets.size());
+        assertEquals(T0, tickets.get(0).getInTimeMillis());
+        assertEquals(T0 + 2 * HOUR, tickets.get(0).getOutTimeMillis());
+        assertEquals(300, tickets.get(0).getPriceCents());
+        assertFalse(tickets.get(1).hasOutTime());
+        // second visit of the same car gets the recurring discount
+        assertEquals(285, tickets.get(2).getPriceCents());
+    }
+
+    @Test
+    void invalidLinesAndRefusedEventsAreCounted() throws Exception {
+        InMemoryStorage storage = new InMemoryStorage(layout(1, 0));
+        String jsonl = "{\"time\":" + T0 + ",\"event\":\"ENTRY\",\"plate\":\"AB123CD\",\"type\":\"CAR\"}\n"
+                + "{\"time\":\"2024-03-04T10:05:00Z\",\"event\":\"ENTRY\",\"plate\":\"AB123CD\",\"type\":\"CAR\"}\n"
+                + "{\"time\":" + T0 + ",\"event\":\"ENTRY\",\"plate\":\"EF456\",\"type\":\"CAR\"}\n"
+                + "{\"time\":" + T0 + ",\"event\":\"EXIT\",\"plate\":\"GH789\"}\n"
+                + "{\"time\":" + T0 + ",\"event\":\"PARK\",\"plate\":\"GH789\"}\n"
+                + "{\"time\":" + T0 + ",\"event\":\"ENTRY\",\"plate\":\"GH789\"}\n"
+                + "{\"time\":\"yesterday\",\"event\":\"EXIT\",\"plate\":\"GH789\"}\n"
+                + "not json\n";
+
+        ReplayReport report = new GateEventReplayer(storage, new FareCalculatorService())
+                .replay(new StringReader(jsonl), GateEventReplayer.Format.JSONL);
+
+        assertEquals(4, report.getEvents());
+        assertEquals(1, report.getCount(GateResult.Status.ENTERED));
+        assertEquals(1, report.getCount(GateResult.Status.ALREADY_INSIDE));
+        assertEquals(1, report.getCount(GateResult.Status.LOT_FULL));
+        assertEquals(1, report.getCount(GateResult.Status.NOT_INSIDE));
+        assertEquals(4, report.getParseErrors());
+        assertEquals(4, report.getFailed());
+    }
+
+    @Test
+    void persistedReplayWritesTicketsAndTakenSpots() throws Exception {
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        List<ParkingSpot> free = new ArrayList<>();
+        for (ParkingSpot parkingSpot : parkingSpotDAO.getParkingSpots()) {
+            if (parkingSpot.isAvailable()) {
+                free.add(parkingSpot);
+            }
+        }
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            long in = T0 + i * HOUR;
+            csv.append(in).append(",ENTRY,AB").append(i % 3).append(",CAR\n");
+            csv.append(in + HOUR / 2 + 60_000).append(",EXIT,AB").append(i % 3).append('\n');
+        }
+        csv.append(T0 + 300 * HOUR).append(",ENTRY,ZZ999,CAR\n");
+
+        ReplayReport report;
+        try (TicketBatchWriter batchWriter = new TicketBatchWriter(dataBaseConfig, 50, 5)) {
+            report = new GateEventReplayer(new InMemoryStorage(free), new FareCalculatorService(),
+                    batchWriter, parkingSpotDAO, 64).replay(new StringReader(csv.toString()), GateEventReplayer.Format.CSV);
+        }
+
+        assertEquals(401, report.getEvents());
+        assertEquals(201, report.getPersisted());
+        assertEquals(0, report.getFailed());
+        assertEquals(200, count("select count(*) from ticket where OUT_TIME is not null and PRICE > 0"));
+        assertEquals(1, count("select count(*) from ticket where OUT_TIME is null and VEHICLE_REG_NUMBER = 'ZZ999' and PARKING_NUMBER = 1"));
+        assertEquals(1, count("select count(*) from parking where PARKING_NUMBER = 1 and AVAILABLE = false"));
+        // the spot already taken in the DB was left out of the replay
+        assertEquals(0, count("select count(*) from ticket where PARKING_NUMBER = 2"));
+    }
+
+    private static List<ParkingSpot> layout(int cars, int bikes) {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int i = 1; i <= cars + bikes; i++) {
+            parkingSpots.add(new ParkingSpot(i, i <= cars ? ParkingType.CAR : ParkingType.BIKE, true));
+        }
+        return parkingSpots;
+    }
+
+    private static int count(String query) throws Exception {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(query); ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
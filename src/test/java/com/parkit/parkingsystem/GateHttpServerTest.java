@@ -0,0 +1,230 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.DaoExecutors;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.memory.InMemoryStorage;
+import com.parkit.parkingsystem.http.GateHttpServer;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GateHttpServerTest {
+
+    private static final Logger logger = LogManager.getLogger("GateHttpServerTest");
+
+    private static final int CAR_SPOTS = 100;
+
+    private InMemoryStorage storage;
+    private ParkingService parkingService;
+    private GateHttpServer server;
+
+    @BeforeAll
+    static void enableNoDelay() {
+        GateHttpServer.enableNoDelay();
+    }
+
+    @BeforeEach
+    void setUp() {
+        List<ParkingSpot> layout = new ArrayList<>();
+        for (int i = 1; i <= CAR_SPOTS; i++) {
+            layout.add(new ParkingSpot(i, ParkingType.CAR, true));
+        }
+        layout.add(new ParkingSpot(CAR_SPOTS + 1, ParkingType.BIKE, true));
+        storage = new InMemoryStorage(layout);
+        parkingService = new ParkingService(storage.getParkingSpotRepository(), storage.getTicketRepository(),
+                Runnable::run, new FareCalculatorService());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void gateEndpointsAnswerWithJson() throws Exception {
+        server = start(storage.getParkingSpotRepository(), 16, 100);
+
+        Response entry = call("POST", "/entry", "{\"type\":\"bike\",\"plate\":\"AB123CD\"}");
+        assertEquals(201, entry.code);
+        assertTrue(entry.body.contains("\"status\":\"ENTERED\""), entry.body);
+        assertTrue(entry.body.contains("\"parkingNumber\":" + (CAR_SPOTS + 1)), entry.body);
+
+        assertEquals(409, call("POST", "/entry", "{\"type\":\"BIKE\",\"plate\":\"AB123CD\"}").code);
+        assertEquals(409, call("POST", "/entry", "{\"type\":\"BIKE\",\"plate\":\"EF456GH\"}").code);
+
+        Response occupancy = call("GET", "/occupancy", null);
+        assertEquals(200, occupancy.code);
+        assertTrue(occupancy.body.contains("\"BIKE\":{\"capacity\":1,\"available\":0,\"occupied\":1}"), occupancy.body);
+
+        Response ticket = call("GET", "/tickets/AB123CD", null);
+        assertEquals(200, ticket.code);
+        assertTrue(ticket.body.contains("\"inside\":true"), ticket.body);
+
+        Response exit = call("POST", "/exit", "{\"plate\":\"AB123CD\"}");
+        assertEquals(200, exit.code);
+        assertTrue(exit.body.contains("\"status\":\"EXITED\""), exit.body);
+        assertTrue(exit.body.contains("\"priceCents\":0"), exit.body);
+
+        assertEquals(404, call("POST", "/exit", "{\"plate\":\"AB123CD\"}").code);
+        assertEquals(404, call("GET", "/tickets/NOPE", null).code);
+    }
+
+    @Test
+    void badRequestsAreRejected() throws Exception {
+        server = start(storage.getParkingSpotRepository(), 16, 100);
+
+        assertEquals(400, call("POST", "/entry", "{\"type\":\"CAR\"").code);
+        assertEquals(400, call("POST", "/entry", "{\"type\":\"PLANE\",\"plate\":\"AB123CD\"}").code);
+        assertEquals(400, call("POST", "/exit", "{}").code);
+        assertEquals(405, call("GET", "/entry", null).code);
+        assertEquals(404, call("GET", "/nothing", null).code);
+    }
+
+    @Test
+    void requestsBeyondTheLimitAreTurnedAway() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ParkingSpotRepository slow = mock(ParkingSpotRepository.class);
+        when(slow.getCapacity(any(ParkingType.class))).thenAnswer(invocation -> {
+            blocked.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return 0;
+        });
+        server = start(slow, 1, 0);
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        try {
+            Future<Response> first = client.submit(() -> call("GET", "/occupancy", null));
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+            Response second = call("GET", "/occupancy", null);
+            assertEquals(503, second.code);
+            assertTrue(second.body.contains("BUSY"), second.body);
+
+            release.countDown();
+            assertEquals(200, first.get().code);
+            assertEquals(1, server.getRejectedCount());
+        } finally {
+            client.shutdownNow();
+        }
+    }
+
+    @Test
+    void loadTestReportsThroughputAndP99() throws Exception {
+        int clients = 8;
+        int visitsPerClient = 100;
+        server = start(storage.getParkingSpotRepository(), 64, 1000);
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                results.add(pool.submit(() -> {
+                    long[] latencies = new long[visitsPerClient * 2];
+                    for (int i = 0; i < visitsPerClient; i++) {
+                        String plate = "C" + client + "V" + i;
+                        long t0 = System.nanoTime();
+                        assertEquals(201, call("POST", "/entry", "{\"type\":\"CAR\",\"plate\":\"" + plate + "\"}").code);
+                        long t1 = System.nanoTime();
+                        assertEquals(200, call("POST", "/exit", "{\"plate\":\"" + plate + "\"}").code);
+                        latencies[2 * i] = t1 - t0;
+                        latencies[2 * i + 1] = System.nanoTime() - t1;
+                    }
+                    return latencies;
+                }));
+            }
+            long[] all = new long[clients * visitsPerClient * 2];
+            int n = 0;
+            for (Future<long[]> result : results) {
+                long[] latencies = result.get();
+                System.arraycopy(latencies, 0, all, n, latencies.length);
+                n += latencies.length;
+            }
+            long elapsed = System.nanoTime() - start;
+            Arrays.sort(all);
+            double requestsPerSecond = all.length * 1e9 / elapsed;
+            double p99Millis = all[(int) Math.ceil(all.length * 0.99) - 1] / 1e6;
+            logger.info(String.format("Gate API load test: %d requests from %d clients, %.0f requests/s, p50 %.2f ms, p99 %.2f ms",
+                    all.length, clients, requestsPerSecond, all[all.length / 2] / 1e6, p99Millis));
+
+            assertEquals(all.length, server.getRequestCount());
+            assertEquals(0, server.getRejectedCount());
+            assertTrue(requestsPerSecond > 0 && p99Millis > 0);
+            assertEquals(CAR_SPOTS, storage.getParkingSpotRepository().getAvailableCount(ParkingType.CAR));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private GateHttpServer start(ParkingSpotRepository parkingSpotRepository, int maxConcurrentRequests,
+                                 long acquireTimeoutMillis) throws IOException {
+        return new GateHttpServer(new InetSocketAddress("127.0.0.1", 0), 128, DaoExecutors.create(64, "http-test"),
+                maxConcurrentRequests, acquireTimeoutMillis, parkingService, parkingSpotRepository, storage.getTicketRepository());
+    }
+
+    private Response call(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int code = connection.getResponseCode();
+        InputStream in = code < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                byte[] buffer = new byte[512];
+                int read;
+                while ((read = stream.read(buffer)) > 0) {
+                    response.write(buffer, 0, read);
+                }
+            }
+        }
+        return new Response(code, new String(response.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static final class Response {
+        private final int code;
+        private final String body;
+
+        private Response(int code, String body) {
+            this.code = code;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ApplicationProperties;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.memory.InMemoryParkingSpotRepository;
+import com.parkit.parkingsystem.dao.memory.InMemoryStorage;
+import com.parkit.parkingsystem.dao.memory.InMemoryTicketRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ParkingSystem;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryStorageTest {
+
+    @Mock
+    private InputReaderUtil inputReaderUtil;
+
+    private InMemoryStorage storage;
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory = Files.createTempDirectory("parkit-snapshot");
+        storage = new InMemoryStorage(Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, true),
+                new ParkingSpot(2, ParkingType.CAR, true),
+                new ParkingSpot(3, ParkingType.BIKE, true)));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Files.walk(directory).sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+
+    @Test
+    void parkingServiceRunsWithoutADatabase() {
+        ParkingService parkingService = new ParkingService(inputReaderUtil,
+                storage.getParkingSpotRepository(), storage.getTicketRepository());
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+
+        parkingService.processIncomingVehicle();
+        Ticket open = storage.getTicketRepository().getTicket("ABCDEF");
+
+        assertNotNull(open);
+        assertEquals(1, open.getParkingSpot().getId());
+        assertEquals(2, storage.getParkingSpotRepository().getNextAvailableSlot(ParkingType.CAR));
+
+        parkingService.processExitingVehicle();
+
+        assertNull(storage.getTicketRepository().getTicket("ABCDEF"));
+        assertNotNull(storage.getTicketRepository().getTicketById("ABCDEF").getOutTime());
+        assertTrue(storage.getTicketRepository().isReccurent("ABCDEF"));
+        assertEquals(1, storage.getParkingSpotRepository().getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    void rolledBackUnitOfWorkLeavesNoTrace() {
+        InMemoryParkingSpotRepository spots = storage.getParkingSpotRepository();
+        InMemoryTicketRepository tickets = storage.getTicketRepository();
+
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.execute(() -> {
+            int parkingNumber = spots.claimNextAvailableSlot(ParkingType.CAR);
+            tickets.saveTicket(ticket("ABCDEF", parkingNumber));
+            throw new IllegalStateException("gate jammed");
+        }));
+
+        assertEquals(1, spots.getNextAvailableSlot(ParkingType.CAR));
+        assertFalse(tickets.isVehicleInside("ABCDEF"));
+        assertNull(tickets.getTicketById("ABCDEF"));
+    }
+
+    @Test
+    void snapshotRestoresTicketsAndDerivesAvailability() throws Exception {
+        Path snapshot = directory.resolve("lot.snapshot");
+        InMemoryTicketRepository tickets = storage.getTicketRepository();
+        Ticket closed = ticket("OLD 1", storage.getParkingSpotRepository().claimNextAvailableSlot(ParkingType.CAR));
+        tickets.saveTicket(closed);
+        closed.setOutTime(new Date());
+        closed.setPrice(1.5);
+        tickets.updateTicket(closed);
+        storage.getParkingSpotRepository().updateParking(new ParkingSpot(1, ParkingType.CAR, true));
+        tickets.saveTicket(ticket("INSIDE", storage.getParkingSpotRepository().claimNextAvailableSlot(ParkingType.CAR)));
+
+        storage.snapshot(snapshot);
+        InMemoryStorage restored = InMemoryStorage.restore(snapshot, Arrays.asList(new ParkingSpot(9, ParkingType.BIKE, true)));
+
+        assertTrue(restored.getTicketRepository().isReccurent("OLD 1"));
+        assertEquals(1.5, restored.getTicketRepository().getTicketById("OLD 1").getPrice());
+        assertTrue(restored.getTicketRepository().isVehicleInside("INSIDE"));
+        assertEquals(1, restored.getTicketRepository().getTicket("INSIDE").getParkingSpot().getId());
+        assertEquals(2, restored.getParkingSpotRepository().getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(1, restored.getParkingSpotRepository().getAvailabilityIndex().getAvailableCount(ParkingType.CAR));
+        Ticket next = ticket("NEW", 1);
+        restored.getTicketRepository().saveTicket(next);
+        assertEquals(3, next.getId());
+    }
+
+    @Test
+    void missingSnapshotStartsWithTheDefaultLayout() throws Exception {
+        InMemoryStorage restored = InMemoryStorage.restore(directory.resolve("none"),
+                Arrays.asList(new ParkingSpot(4, ParkingType.BIKE, true)));
+
+        assertEquals(4, restored.getParkingSpotRepository().getNextAvailableSlot(ParkingType.BIKE));
+        assertEquals(0, restored.getParkingSpotRepository().getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    void parkingSystemBuildsTheMemoryEngineFromProperties() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("storage.engine", ParkingSystem.ENGINE_MEMORY);
+        properties.setProperty("storage.memory.spots", "CAR:2,BIKE:1");
+
+        try (ParkingSystem parkingSystem = ParkingSystem.start(new ApplicationProperties(properties))) {
+            assertEquals(3, parkingSystem.getParkingSpotRepository().getNextAvailableSlot(ParkingType.BIKE));
+            assertEquals(1, parkingSystem.getParkingSpotRepository().claimNextAvailableSlot(ParkingType.CAR));
+            assertEquals(2, parkingSystem.getParkingSpotRepository().claimNextAvailableSlot(ParkingType.CAR));
+            assertEquals(0, parkingSystem.getParkingSpotRepository().claimNextAvailableSlot(ParkingType.CAR));
+        }
+    }
+
+    private static Ticket ticket(String vehicleRegNumber, int parkingNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+}
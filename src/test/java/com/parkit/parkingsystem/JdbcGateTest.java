@@ -0,0 +1,111 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateResult;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcGateTest {
+
+    private static final String[] DROP_SCHEMA = {"drop table if exists ticket_history",
+            "drop table if exists ticket", "drop table if exists parking", "drop table if exists schema_version"};
+
+    private static EmbeddedDataBaseConfig dataBaseConfig;
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+
+    @BeforeAll
+    static void setUpSchema() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseConfig();
+        dataBaseConfig.execute(DROP_SCHEMA);
+        new SchemaMigrator(dataBaseConfig).migrate();
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        dataBaseConfig.execute(DROP_SCHEMA);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataBaseConfig.execute("delete from ticket", "delete from ticket_history", "delete from parking",
+                "insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR'),(2,true,'CAR')");
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @Test
+    void vehiclesEnterAndExitThroughTheDaos() throws Exception {
+        enterAndExit();
+    }
+
+    @Test
+    void vehiclesEnterAndExitThroughTheIndexedDaos() throws Exception {
+        parkingSpotDAO.loadAvailabilityIndex();
+        ticketDAO.loadOpenTicketIndex();
+        ticketDAO.loadRecurringCustomers();
+        enterAndExit();
+    }
+
+    @Test
+    void aFailedSaveIsAnsweredNotSavedAndRolledBack() throws Exception {
+        ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO, Runnable::run, new FareCalculatorService());
+
+        // longer than the VEHICLE_REG_NUMBER column, so the insert fails after the spot was claimed
+        GateResult entry = parkingService.enter(ParkingType.CAR, "AB123CD4567");
+
+        assertEquals(GateResult.Status.NOT_SAVED, entry.getStatus());
+        assertEquals(0, count("select count(*) from ticket"));
+        assertEquals(2, count("select count(*) from parking where AVAILABLE = true"));
+        assertEquals(GateResult.Status.ENTERED, parkingService.enter(ParkingType.CAR, "AB123CD").getStatus());
+    }
+
+    private void enterAndExit() throws Exception {
+        ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO, Runnable::run, new FareCalculatorService());
+
+        GateResult entry = parkingService.enter(ParkingType.CAR, "AB123CD");
+        assertEquals(GateResult.Status.ENTERED, entry.getStatus());
+        assertEquals(1, entry.getParkingNumber());
+        assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'AB123CD' and OUT_TIME is null"));
+        assertEquals(1, count("select count(*) from parking where PARKING_NUMBER = 1 and AVAILABLE = false"));
+        assertEquals(GateResult.Status.ALREADY_INSIDE, parkingService.enter(ParkingType.CAR, "AB123CD").getStatus());
+
+        assertEquals(GateResult.Status.EXITED, parkingService.exit("AB123CD").getStatus());
+        assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'AB123CD' and OUT_TIME is not null"));
+        assertEquals(1, count("select count(*) from parking where PARKING_NUMBER = 1 and AVAILABLE = true"));
+        assertEquals(GateResult.Status.NOT_INSIDE, parkingService.exit("AB123CD").getStatus());
+
+        // second visit is recurring
+        assertTrue(parkingService.enter(ParkingType.CAR, "AB123CD").isRecurring());
+    }
+
+    private static int count(String query) throws Exception {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(query); ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
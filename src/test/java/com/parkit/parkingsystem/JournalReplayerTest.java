@@ -0,0 +1,225 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.journal.JournalEvent;
+import com.parkit.parkingsystem.dao.journal.JournalReplayer;
+import com.parkit.parkingsystem.dao.journal.JournaledParkingSpotRepository;
+import com.parkit.parkingsystem.dao.journal.JournaledTicketRepository;
+import com.parkit.parkingsystem.dao.journal.TicketJournal;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalReplayerTest {
+
+    private static final String[] DROP_SCHEMA = {"drop table if exists ticket_history",
+            "drop table if exists ticket", "drop table if exists parking", "drop table if exists schema_version"};
+
+    private static EmbeddedDataBaseConfig dataBaseConfig;
+
+    private Path directory;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseConfig();
+        dataBaseConfig.execute(DROP_SCHEMA);
+        new SchemaMigrator(dataBaseConfig).migrate();
+        dataBaseConfig.execute("insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR'),(2,true,'CAR'),(3,true,'BIKE')");
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        dataBaseConfig.execute(DROP_SCHEMA);
+    }
+
+    @BeforeEach
+    void clear() throws Exception {
+        dataBaseConfig.execute("delete from ticket", "delete from ticket_history", "update parking set AVAILABLE = true");
+        directory = Files.createTempDirectory("parkit-journal");
+    }
+
+    @AfterEach
+    void removeJournal() throws Exception {
+        Files.walk(directory).sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+
+    @Test
+    void entryAndExitReachTheDatabase() throws Exception {
+        try (TicketJournal journal = TicketJournal.open(directory, 64 * 1024, false)) {
+            Ticket ticket = ticket("AB123", 1);
+            journal.append(JournalEvent.entry(ticket));
+            journal.append(JournalEvent.entry(ticket("CD456", 2)));
+            ticket.setOutTime(new Date());
+            ticket.setPrice(3.0);
+            journal.append(JournalEvent.exit(ticket));
+
+            JournalReplayer replayer = new JournalReplayer(journal, dataBaseConfig, 2);
+            assertEquals(3, replayer.replay());
+
+            assertEquals(0, replayer.getPendingCount());
+            assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'AB123' and OUT_TIME is not null and PRICE = 3.0"));
+            assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'CD456' and OUT_TIME is null"));
+            assertEquals(1, count("select count(*) from parking where PARKING_NUMBER = 1 and AVAILABLE = true"));
+            assertEquals(1, count("select count(*) from parking where PARKING_NUMBER = 2 and AVAILABLE = false"));
+        }
+    }
+
+    @Test
+    void replayingAgainAfterACrashChangesNothing() throws Exception {
+        try (TicketJournal journal = TicketJournal.open(directory, 64 * 1024, false)) {
+            Ticket first = ticket("AB123", 1);
+            journal.append(JournalEvent.entry(first));
+            first.setOutTime(new Date());
+            first.setPrice(1.5);
+            journal.append(JournalEvent.exit(first));
+            // the next car takes the same spot
+            journal.append(JournalEvent.entry(ticket("CD456", 1)));
+            assertEquals(3, new JournalReplayer(journal, dataBaseConfig, 10).replay());
+
+            // a restarted process resumes after the checkpoint
+            assertEquals(0, new JournalReplayer(journal, dataBaseConfig, 10).replay());
+
+            // a crash before the checkpoint was written replays the batch again
+            Files.delete(directory.resolve("replayed.checkpoint"));
+            assertEquals(3, new JournalReplayer(journal, dataBaseConfig, 10).replay());
+
+            assertEquals(2, count("select count(*) from ticket"));
+            assertEquals(1, count("select count(*) from ticket where OUT_TIME is null and VEHICLE_REG_NUMBER = 'CD456'"));
+            assertEquals(1, count("select count(*) from parking where PARKING_NUMBER = 1 and AVAILABLE = false"));
+        }
+    }
+
+    @Test
+    void archivedTicketsAreNotEnteredAgain() throws Exception {
+        try (TicketJournal journal = TicketJournal.open(directory, 64 * 1024, false)) {
+            Ticket ticket = ticket("AB123", 1);
+            journal.append(JournalEvent.entry(ticket));
+            ticket.setOutTime(new Date());
+            ticket.setPrice(1.5);
+            journal.append(JournalEvent.exit(ticket));
+            assertEquals(2, new JournalReplayer(journal, dataBaseConfig, 10).replay());
+            dataBaseConfig.execute("insert into ticket_history select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket",
+                    "delete from ticket", "update parking set AVAILABLE = false where PARKING_NUMBER = 1");
+
+            Files.delete(directory.resolve("replayed.checkpoint"));
+            assertEquals(2, new JournalReplayer(journal, dataBaseConfig, 10).replay());
+
+            assertEquals(0, count("select count(*) from ticket"));
+            // the spot was taken by another car in the meantime and stays so
+            assertEquals(1, count("select count(*) from parking where PARKING_NUMBER = 1 and AVAILABLE = false"));
+        }
+    }
+
+    @Test
+    void anExitWithoutItsTicketStopsTheReplay() throws Exception {
+        try (TicketJournal journal = TicketJournal.open(directory, 64 * 1024, false)) {
+            Ticket ticket = ticket("AB123", 1);
+            ticket.setOutTime(new Date());
+            ticket.setPrice(1.5);
+            journal.append(JournalEvent.exit(ticket));
+            dataBaseConfig.execute("update parking set AVAILABLE = false where PARKING_NUMBER = 1");
+
+            JournalReplayer replayer = new JournalReplayer(journal, dataBaseConfig, 10);
+            assertEquals(0, replayer.replay());
+
+            assertEquals(1, replayer.getPendingCount());
+            assertEquals(1, count("select count(*) from parking where PARKING_NUMBER = 1 and AVAILABLE = false"));
+        }
+    }
+
+    @Test
+    void eventsWaitWhileTheDatabaseIsDown() throws Exception {
+        DataBaseConfig unreachable = new DataBaseConfig() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                throw new SQLException("Connection refused");
+            }
+        };
+        try (TicketJournal journal = TicketJournal.open(directory, 64 * 1024, false)) {
+            journal.append(JournalEvent.entry(ticket("AB123", 1)));
+
+            JournalReplayer down = new JournalReplayer(journal, unreachable, 10);
+            assertEquals(0, down.replay());
+            assertEquals(1, down.getPendingCount());
+            assertEquals(0, count("select count(*) from ticket"));
+
+            assertEquals(1, new JournalReplayer(journal, dataBaseConfig, 10).replay());
+            assertEquals(1, count("select count(*) from ticket"));
+        }
+    }
+
+    @Test
+    void gatesKeepWorkingThroughTheJournal() throws Exception {
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.loadAvailabilityIndex();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.loadOpenTicketIndex();
+        ticketDAO.loadRecurringCustomers();
+        try (TicketJournal journal = TicketJournal.open(directory, 64 * 1024, false)) {
+            JournaledParkingSpotRepository spots = new JournaledParkingSpotRepository(parkingSpotDAO);
+            JournaledTicketRepository tickets = new JournaledTicketRepository(ticketDAO, journal);
+
+            int parkingNumber = spots.claimNextAvailableSlot(ParkingType.CAR);
+            Ticket entered = ticket("AB123", parkingNumber);
+            entered.setInTime(new Date(System.currentTimeMillis() / 1000 * 1000 - 3_600_000 + 789));
+            assertTrue(tickets.saveTicket(entered));
+            assertEquals(0, entered.getInTimeMillis() % 1000);
+            assertTrue(tickets.isVehicleInside("AB123"));
+            assertEquals(0, count("select count(*) from ticket"));
+
+            Ticket open = tickets.getTicket("AB123");
+            open.setOutTime(new Date());
+            open.setPrice(1.5);
+            assertTrue(tickets.updateTicket(open));
+            assertFalse(tickets.isVehicleInside("AB123"));
+            assertTrue(tickets.isReccurent("AB123"));
+
+            assertEquals(2, new JournalReplayer(journal, dataBaseConfig, 10).replay());
+            assertEquals(1, count("select count(*) from ticket where OUT_TIME is not null"));
+            assertEquals(1, count("select count(*) from parking where PARKING_NUMBER = " + parkingNumber + " and AVAILABLE = true"));
+        }
+    }
+
+    private static int count(String query) throws Exception {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(query); ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private static Ticket ticket(String vehicleRegNumber, int parkingNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setInTime(new Date(System.currentTimeMillis() - 3_600_000));
+        return ticket;
+    }
+}
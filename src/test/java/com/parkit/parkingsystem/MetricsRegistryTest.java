@@ -0,0 +1,125 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.memory.InMemoryStorage;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.TimedParkingSpotRepository;
+import com.parkit.parkingsystem.metrics.TimedTicketRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    @Test
+    void percentilesAreWithinTheBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(5_000_500, histogram.getMeanNanos(), 0.001);
+        assertEquals(10_000_000, histogram.getMaxNanos());
+        assertEquals(5_000_000, histogram.getValueAtPercentile(50), 5_000_000 / 32.0);
+        assertEquals(9_900_000, histogram.getValueAtPercentile(99), 9_900_000 / 32.0);
+        assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+        assertEquals(0, new LatencyHistogram().getValueAtPercentile(99));
+        // small values are exact
+        LatencyHistogram small = new LatencyHistogram();
+        small.record(7);
+        assertEquals(7, small.getValueAtPercentile(50));
+    }
+
+    @Test
+    void concurrentUpdatesAreNotLost() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                runs.add(threads.submit(() -> {
+                    Counter counter = metrics.counter("calls");
+                    LatencyHistogram timer = metrics.timer("latency");
+                    for (int i = 0; i < 10_000; i++) {
+                        counter.increment();
+                        timer.record(i);
+                    }
+                }));
+            }
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+
+        assertEquals(40_000, metrics.counter("calls").getCount());
+        assertEquals(40_000, metrics.timer("latency").getCount());
+        assertEquals(9_999, metrics.timer("latency").getMaxNanos());
+    }
+
+    @Test
+    void metricsArePublishedOverJmxUntilClosed() throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName counterName = MetricsRegistry.objectName("Counter", "test.counter");
+        ObjectName timerName = MetricsRegistry.objectName("Timer", "test.timer");
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("test.counter").add(3);
+        metrics.startJmx();
+        try {
+            metrics.timer("test.timer").record(2_000_000);
+
+            assertEquals(3L, mBeanServer.getAttribute(counterName, "Count"));
+            assertEquals(1L, mBeanServer.getAttribute(timerName, "Count"));
+            assertEquals(2.0, (Double) mBeanServer.getAttribute(timerName, "MaxMillis"), 0.001);
+        } finally {
+            metrics.close();
+        }
+        assertFalse(mBeanServer.isRegistered(counterName));
+        assertFalse(mBeanServer.isRegistered(timerName));
+    }
+
+    @Test
+    void repositoryCallsAndGatesAreTimed() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        InMemoryStorage storage = new InMemoryStorage(Collections.singletonList(new ParkingSpot(1, ParkingType.CAR, true)));
+        ParkingService parkingService = new ParkingService(
+                new TimedParkingSpotRepository(storage.getParkingSpotRepository(), metrics),
+                new TimedTicketRepository(storage.getTicketRepository(), metrics),
+                Runnable::run, new FareCalculatorService());
+        parkingService.setMetrics(metrics);
+
+        parkingService.enter(ParkingType.CAR, "AB123CD");
+        parkingService.enter(ParkingType.CAR, "EF456");
+        parkingService.exit("AB123CD");
+
+        assertEquals(2, metrics.timer("gate.entry").getCount());
+        assertEquals(1, metrics.timer("gate.exit").getCount());
+        assertEquals(1, metrics.counter("gate.entry.ENTERED").getCount());
+        assertEquals(1, metrics.counter("gate.entry.LOT_FULL").getCount());
+        assertEquals(1, metrics.counter("gate.exit.EXITED").getCount());
+        assertEquals(2, metrics.timer("parkingSpot.claimNextAvailableSlot").getCount());
+        assertEquals(1, metrics.timer("ticket.saveTicket").getCount());
+        assertEquals(1, metrics.timer("ticket.updateTicket").getCount());
+        String dump = metrics.dump();
+        assertTrue(dump.contains("gate.exit count=1 "), dump);
+        assertTrue(dump.contains("gate.entry.LOT_FULL 1"), dump);
+        assertFalse(dump.contains("gate.exit.NOT_INSIDE"), dump);
+    }
+}
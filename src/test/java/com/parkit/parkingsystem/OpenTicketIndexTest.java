@@ -0,0 +1,88 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.OpenTicketIndex;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenTicketIndexTest {
+
+    private OpenTicketIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new OpenTicketIndex();
+    }
+
+    @Test
+    void nothingIsIndexedBeforeLoad() {
+        index.put(ticket(1, "AB123CD", new Date()));
+
+        assertFalse(index.isLoaded());
+        assertNull(index.get("AB123CD"));
+    }
+
+    @Test
+    void loadKeepsTheOldestOpenTicketPerPlate() {
+        index.load(Arrays.asList(
+                ticket(1, "AB123CD", new Date(1000)),
+                ticket(2, "ab-123-cd", new Date(2000)),
+                ticket(3, "XY987ZT", new Date(3000))));
+
+        assertEquals(2, index.size());
+        assertEquals(1, index.get("AB 123 CD").getId());
+        assertTrue(index.contains("xy987zt"));
+    }
+
+    @Test
+    void returnedTicketsAreCopies() {
+        index.load(Collections.singletonList(ticket(1, "AB123CD", new Date())));
+
+        Ticket ticket = index.get("AB123CD");
+        ticket.setOutTime(new Date());
+        ticket.getParkingSpot().setAvailable(true);
+
+        assertNull(index.get("AB123CD").getOutTime());
+        assertFalse(index.get("AB123CD").getParkingSpot().isAvailable());
+    }
+
+    @Test
+    void removeOnlyDropsTheMatchingTicket() {
+        index.load(Collections.singletonList(ticket(1, "AB123CD", new Date())));
+        index.put(ticket(2, "AB123CD", new Date()));
+
+        index.remove("AB123CD", 1);
+        assertTrue(index.contains("AB123CD"));
+
+        index.remove("ab123cd", 2);
+        assertFalse(index.contains("AB123CD"));
+    }
+
+    @Test
+    void closedTicketsAreNotIndexed() {
+        index.load(Collections.<Ticket>emptyList());
+        Ticket closed = ticket(1, "AB123CD", new Date());
+        closed.setOutTime(new Date());
+
+        index.put(closed);
+
+        assertFalse(index.contains("AB123CD"));
+    }
+
+    private static Ticket ticket(int id, String vehicleRegNumber, Date inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setParkingSpot(new ParkingSpot(id, ParkingType.CAR, false));
+        ticket.setInTime(inTime);
+        return ticket;
+    }
+}
@@ -5,6 +5,7 @@ import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateResult;
 import com.parkit.parkingsystem.service.ParkingService;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import nl.altindag.log.LogCaptor;
@@ -15,6 +16,9 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -53,34 +57,55 @@ import static org.mockito.Mockito.*;
     @Test
      void processIncomingVehicleTest()  {
         //GIVEN
-        when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(parkingSpotDAO.claimNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
         when(inputReaderUtil.readSelection()).thenReturn(1);
-        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
         //WHEN
         parkingService.processIncomingVehicle();
         //THEN
-        verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
+        verify(parkingSpotDAO, Mockito.times(1)).claimNextAvailableSlot(ParkingType.CAR);
+        verify(ticketDAO, Mockito.times(1)).saveTicket(any(Ticket.class));
+        verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+        assertTrue(logCaptor.getInfoLogs().contains("Please park your vehicle in spot number: 1"));
     }
     @Test
      void processIncomingVehicleReccurentTest() throws Exception {
         //GIVEN
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
-        when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
+        when(parkingSpotDAO.claimNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
         when(inputReaderUtil.readSelection()).thenReturn(1);
         when(ticketDAO.isReccurent("ABCDEF")).thenReturn(true);
-        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
 
         //WHEN
         parkingService.processIncomingVehicle();
         //THEN
-        verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
+        verify(ticketDAO, Mockito.times(1)).saveTicket(any(Ticket.class));
+        assertTrue(logCaptor.getInfoLogs().contains(
+                "Welcome back! As a recurring user of our parking lot, you'll benefit from a 5% discount."));
+    }
+
+    @Test
+    void processIncomingVehicleAlreadyInsideTest()  {
+        //GIVEN
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(ticketDAO.isVehicleInside("ABCDEF")).thenReturn(true);
+        //WHEN
+        parkingService.processIncomingVehicle();
+        //THEN
+        assertTrue(logCaptor.getErrorLogs().contains("Vehicle ABCDEF is already inside the parking lot"));
+        verify(parkingSpotDAO, never()).claimNextAvailableSlot(any(ParkingType.class));
+        verify(ticketDAO, never()).saveTicket(any(Ticket.class));
     }
 
     @Test
      void processIncomingVehicleExceptionSlotNullTest()  {
         //GIVEN
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
         when(inputReaderUtil.readSelection()).thenReturn(1);
-        when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(0);
+        when(parkingSpotDAO.claimNextAvailableSlot(any(ParkingType.class))).thenReturn(0);
         //WHEN
         parkingService.processIncomingVehicle();
         //THEN
@@ -91,13 +116,14 @@ import static org.mockito.Mockito.*;
     void processIncomingVehicleExceptionSlotExceptionTest()  {
         //GIVEN
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
-        when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
         when(inputReaderUtil.readSelection()).thenReturn(1);
         when(ticketDAO.isReccurent("ABCDEF")).thenThrow(IllegalArgumentException.class);
         //WHEN
         parkingService.processIncomingVehicle();
-        //THEN
+        //THEN the lookup fails before any spot is claimed
         assertTrue(logCaptor.getErrorLogs().contains(("Unable to process incoming vehicle")));
+        verify(parkingSpotDAO, never()).claimNextAvailableSlot(any(ParkingType.class));
+        verify(ticketDAO, never()).saveTicket(any(Ticket.class));
     }
 
     @Test
@@ -218,4 +244,28 @@ import static org.mockito.Mockito.*;
 
     }
 
-}
\ No newline at end of file
+    @Test
+     void recurringLookupEndsBeforeTheSpotIsClaimed() throws Exception {
+        //GIVEN a slow lookup on another thread, which must not overlap the entry transaction
+        AtomicBoolean lookedUp = new AtomicBoolean();
+        when(ticketDAO.isReccurent("ABCDEF")).thenAnswer(invocation -> {
+            Thread.sleep(100);
+            lookedUp.set(true);
+            return true;
+        });
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)).thenAnswer(invocation -> lookedUp.get() ? 1 : 0);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+        ExecutorService daoExecutor = Executors.newSingleThreadExecutor();
+        try {
+            //WHEN
+            GateResult result = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO, daoExecutor)
+                    .enter(ParkingType.CAR, "ABCDEF");
+            //THEN
+            assertEquals(GateResult.Status.ENTERED, result.getStatus());
+            assertTrue(result.isRecurring());
+        } finally {
+            daoExecutor.shutdownNow();
+        }
+    }
+
+}
@@ -17,6 +17,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.sql.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -143,5 +146,81 @@ class ParkingSpotDaoTest {
         assertEquals(false, updated);
 
     }
+    @Test
+     void getNextAvailableSlotUsesLoadedIndex() throws SQLException {
+
+        // Given
+        when(con.prepareStatement(DBConstants.GET_PARKING_SPOTS)).thenReturn(ps);
+        doReturn(ps).when(con).prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
+        when(ps.executeQuery()).thenReturn(rs);
+        when(ps.executeUpdate()).thenReturn(1);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getInt(1)).thenReturn(1, 2);
+        when(rs.getString(3)).thenReturn("CAR", "CAR");
+        when(rs.getBoolean(2)).thenReturn(true, true);
+        parkingSpotDAO.loadAvailabilityIndex();
+
+        // When
+        parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, false));
+        int res = parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+
+        // Then
+        assertEquals(2, res);
+        verify(con, never()).prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
+
+    }
+    @Test
+     void claimNextAvailableSlotReturnsClaimedNumber() throws SQLException {
+
+        // Given
+        when(con.prepareStatement(DBConstants.CLAIM_NEXT_PARKING_SPOT, Statement.RETURN_GENERATED_KEYS)).thenReturn(ps);
+        when(ps.executeUpdate()).thenReturn(1);
+        when(ps.getGeneratedKeys()).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getInt(1)).thenReturn(3);
+
+        // When
+        int res = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+
+        // Then
+        assertEquals(3, res);
+
+    }
+    @Test
+     void claimNextAvailableSlotWhenFullReturnsZero() throws SQLException {
+
+        // Given
+        when(con.prepareStatement(DBConstants.CLAIM_NEXT_PARKING_SPOT, Statement.RETURN_GENERATED_KEYS)).thenReturn(ps);
+        when(ps.executeUpdate()).thenReturn(0);
+
+        // When
+        int res = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+
+        // Then
+        assertEquals(0, res);
+
+    }
+    @Test
+     void claimNextAvailableSlotSkipsSpotTakenByAnotherWriter() throws SQLException {
+
+        // Given
+        when(con.prepareStatement(DBConstants.GET_PARKING_SPOTS)).thenReturn(ps);
+        doReturn(ps).when(con).prepareStatement(DBConstants.CLAIM_PARKING_SPOT);
+        when(ps.executeQuery()).thenReturn(rs);
+        when(ps.executeUpdate()).thenReturn(0, 1);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getInt(1)).thenReturn(1, 2);
+        when(rs.getString(3)).thenReturn("CAR", "CAR");
+        when(rs.getBoolean(2)).thenReturn(true, true);
+        parkingSpotDAO.loadAvailabilityIndex();
+
+        // When
+        int res = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+
+        // Then
+        assertEquals(2, res);
+        assertEquals(0, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+
+    }
 
-}
\ No newline at end of file
+}
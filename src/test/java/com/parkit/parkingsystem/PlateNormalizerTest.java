@@ -0,0 +1,49 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.memory.InMemoryStorage;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateResult;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.PlateNormalizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlateNormalizerTest {
+
+    @Test
+    void platesAreNormalized() {
+        assertEquals("AB123CD", PlateNormalizer.normalize(" ab-123 cd "));
+        assertEquals("AB123CD", PlateNormalizer.normalize("AB123CD\t"));
+        assertEquals("AB123CD", PlateNormalizer.normalize("AB\r\n123\u000BCD\f"));
+        assertEquals("AB\u3000123", PlateNormalizer.normalize("ab\u3000123"));
+        assertEquals("", PlateNormalizer.normalize(" - "));
+        assertNull(PlateNormalizer.normalize(null));
+        String canonical = "AB123CD";
+        assertSame(canonical, PlateNormalizer.normalize(canonical));
+    }
+
+    @Test
+    void gatesStoreAndFindPlatesUnderOneSpelling() {
+        List<ParkingSpot> layout = new ArrayList<>();
+        layout.add(new ParkingSpot(1, ParkingType.CAR, true));
+        layout.add(new ParkingSpot(2, ParkingType.CAR, true));
+        InMemoryStorage storage = new InMemoryStorage(layout);
+        ParkingService parkingService = new ParkingService(storage.getParkingSpotRepository(),
+                storage.getTicketRepository(), Runnable::run, new FareCalculatorService());
+
+        assertEquals(GateResult.Status.ENTERED, parkingService.enter(ParkingType.CAR, "ab-123-cd").getStatus());
+        assertEquals(GateResult.Status.ALREADY_INSIDE, parkingService.enter(ParkingType.CAR, "AB123CD ").getStatus());
+        assertEquals(GateResult.Status.INVALID_INPUT, parkingService.enter(ParkingType.CAR, "--").getStatus());
+        GateResult exit = parkingService.exit("Ab 123 Cd");
+
+        assertEquals(GateResult.Status.EXITED, exit.getStatus());
+        assertEquals("AB123CD", exit.getVehicleRegNumber());
+        assertEquals("AB123CD", storage.getTicketRepository().getTickets().get(0).getVehicleRegNumber());
+    }
+}
@@ -0,0 +1,164 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.RebillingJob;
+import com.parkit.parkingsystem.service.RebillingReport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RebillingJobTest {
+
+    private static final String[] DROP_SCHEMA = {"drop table if exists ticket_history",
+            "drop table if exists ticket", "drop table if exists parking", "drop table if exists schema_version"};
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2024, 3, 4, 0, 0);
+
+    private static EmbeddedDataBaseConfig dataBaseConfig;
+
+    private ForkJoinPool pool;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseConfig();
+        dataBaseConfig.execute(DROP_SCHEMA);
+        new SchemaMigrator(dataBaseConfig).migrate();
+        dataBaseConfig.execute("insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR'),(2,true,'CAR'),(3,true,'BIKE')");
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        dataBaseConfig.execute(DROP_SCHEMA);
+    }
+
+    @BeforeEach
+    void clear() throws Exception {
+        dataBaseConfig.execute("delete from ticket", "delete from ticket_history");
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void changedPricesAreWrittenBackWithTheRecurringDiscount() throws Exception {
+        // 2 hours of car at 1.5, stored at the old 2.0 an hour
+        insert("ticket", 1, 1, "AB123", 4.0, MONDAY.plusHours(8), MONDAY.plusHours(10));
+        // the same plate again, now a recurring customer: 5% off 3.00
+        insert("ticket", 2, 2, "AB123", 4.0, MONDAY.plusHours(12), MONDAY.plusHours(14));
+        // already right
+        insert("ticket", 3, 3, "CD456", 2.0, MONDAY.plusHours(8), MONDAY.plusHours(10));
+        // closed outside the range
+        insert("ticket", 4, 1, "EF789", 4.0, MONDAY.plusDays(2), MONDAY.plusDays(2).plusHours(2));
+
+        RebillingReport report = job(100).run(date(MONDAY), date(MONDAY.plusDays(1)), false, false, progress -> { });
+
+        assertEquals(3, report.getScanned());
+        assertEquals(2, report.getChanged());
+        assertEquals(0, report.getFailed());
+        assertEquals(-100 - 115, report.getDeltaCents());
+        assertEquals(3.0, price("ticket", 1));
+        assertEquals(2.85, price("ticket", 2));
+        assertEquals(2.0, price("ticket", 3));
+        assertEquals(4.0, price("ticket", 4));
+    }
+
+    @Test
+    void dryRunReportsTheDeltaWithoutWriting() throws Exception {
+        insert("ticket", 1, 1, "AB123", 4.0, MONDAY.plusHours(8), MONDAY.plusHours(10));
+
+        RebillingReport report = job(100).run(date(MONDAY), date(MONDAY.plusDays(1)), false, true, progress -> { });
+
+        assertTrue(report.isDryRun());
+        assertEquals(1, report.getChanged());
+        assertEquals(-100, report.getDeltaCents());
+        assertEquals(4.0, price("ticket", 1));
+        assertTrue(report.toString().startsWith("[dry run] 1 tickets"));
+    }
+
+    @Test
+    void manyChunksArePricedInParallelAndReported() throws Exception {
+        StringBuilder values = new StringBuilder();
+        for (int id = 1; id <= 500; id++) {
+            LocalDateTime in = MONDAY.plusMinutes(id);
+            values.append(id == 1 ? "" : ",").append("(").append(id).append(",1,'P").append(id).append("',0,'")
+                    .append(Timestamp.valueOf(in)).append("','").append(Timestamp.valueOf(in.plusHours(1))).append("')");
+        }
+        dataBaseConfig.execute("insert into ticket(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values" + values);
+        List<RebillingReport> progress = new ArrayList<>();
+
+        RebillingReport report = job(64).run(date(MONDAY), date(MONDAY.plusDays(1)), false, false, progress::add);
+
+        assertEquals(500, report.getScanned());
+        assertEquals(500, report.getChanged());
+        assertEquals(500 * 150, report.getDeltaCents());
+        assertEquals(8, progress.size());
+        assertEquals(64, progress.get(0).getScanned());
+        assertEquals(500, count("select count(*) from ticket where PRICE = 1.5"));
+        assertTrue(report.getTicketsPerSecond() > 0);
+    }
+
+    @Test
+    void archivedTicketsAreRebilledOnRequest() throws Exception {
+        insert("ticket_history", 1, 1, "AB123", 4.0, MONDAY.plusHours(8), MONDAY.plusHours(10));
+
+        assertEquals(0, job(10).run(date(MONDAY), date(MONDAY.plusDays(1)), false, false, progress -> { }).getScanned());
+        RebillingReport report = job(10).run(date(MONDAY), date(MONDAY.plusDays(1)), true, false, progress -> { });
+
+        assertEquals(1, report.getChanged());
+        assertEquals(3.0, price("ticket_history", 1));
+    }
+
+    private RebillingJob job(int batchSize) {
+        return new RebillingJob(dataBaseConfig, new FareCalculatorService(), pool, 50, batchSize);
+    }
+
+    private static void insert(String table, int id, int parkingNumber, String plate, double price,
+                               LocalDateTime in, LocalDateTime out) throws Exception {
+        dataBaseConfig.execute("insert into " + table + "(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values("
+                + id + "," + parkingNumber + ",'" + plate + "'," + price + ",'" + Timestamp.valueOf(in) + "','" + Timestamp.valueOf(out) + "')");
+    }
+
+    private static Date date(LocalDateTime dateTime) {
+        return Timestamp.valueOf(dateTime);
+    }
+
+    private static double price(String table, int id) throws Exception {
+        return queryNumber("select PRICE from " + table + " where ID = " + id).doubleValue();
+    }
+
+    private static int count(String query) throws Exception {
+        return queryNumber(query).intValue();
+    }
+
+    private static Number queryNumber(String query) throws Exception {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(query); ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return (Number) rs.getObject(1);
+            }
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
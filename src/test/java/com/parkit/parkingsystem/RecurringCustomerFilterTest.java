@@ -0,0 +1,88 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.RecurringCustomerFilter;
+import com.parkit.parkingsystem.cache.RecurringCustomerStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecurringCustomerFilterTest {
+
+    private RecurringCustomerFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new RecurringCustomerFilter();
+    }
+
+    @Test
+    void loadedPlatesAreRecurring() {
+        filter.load(Arrays.asList("AB123CD", "xy-987-zt"));
+
+        assertTrue(filter.isLoaded());
+        assertTrue(filter.contains("ab123cd"));
+        assertTrue(filter.contains("XY987ZT"));
+        assertFalse(filter.contains("ZZ000ZZ"));
+        assertFalse(filter.contains(null));
+    }
+
+    @Test
+    void addIsIgnoredBeforeLoad() {
+        filter.add("AB123CD");
+
+        assertFalse(filter.isLoaded());
+        assertEquals(0, filter.size());
+    }
+
+    @Test
+    void filterKeepsNoFalseNegativesWhileGrowing() {
+        filter.load(Collections.<String>emptyList());
+        List<String> plates = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            plates.add("CAR" + i);
+            filter.add("CAR" + i);
+        }
+
+        for (String plate : plates) {
+            assertTrue(filter.contains(plate), plate);
+        }
+        assertEquals(5000, filter.size());
+    }
+
+    @Test
+    void mostNegativesAreAnsweredByTheBloomFilter() {
+        List<String> plates = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            plates.add("CAR" + i);
+        }
+        filter.load(plates);
+
+        for (int i = 0; i < 10000; i++) {
+            assertFalse(filter.contains("BIKE" + i));
+        }
+
+        RecurringCustomerStats stats = filter.getStats();
+        assertEquals(10000, stats.getBloomRejections() + stats.getFalsePositives());
+        assertTrue(stats.getFalsePositives() < 300, "false positives: " + stats.getFalsePositives());
+    }
+
+    @Test
+    void statsReportMemoryUsage() {
+        filter.load(Arrays.asList("AB123CD", "XY987ZT"));
+        filter.contains("AB123CD");
+
+        RecurringCustomerStats stats = filter.getStats();
+
+        assertEquals(2, stats.getPlates());
+        assertEquals(1, stats.getExactHits());
+        assertTrue(stats.getBloomFilterBytes() > 0);
+        assertTrue(stats.getExactSetBytes() > 0);
+        assertEquals(stats.getBloomFilterBytes() + stats.getExactSetBytes(), stats.getTotalBytes());
+    }
+}
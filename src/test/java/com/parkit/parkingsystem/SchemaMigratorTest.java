@@ -0,0 +1,132 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.util.PlateNormalizer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigratorTest {
+
+    private static final String[] DROP_SCHEMA = {
+            "drop table if exists ticket_history", "drop table if exists ticket", "drop table if exists parking", "drop table if exists schema_version"};
+
+    private static EmbeddedDataBaseConfig dataBaseConfig;
+    private static SchemaMigrator schemaMigrator;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseConfig();
+        dataBaseConfig.execute(DROP_SCHEMA);
+        schemaMigrator = new SchemaMigrator(dataBaseConfig);
+        assertEquals(4, schemaMigrator.migrate());
+        StringBuilder insert = new StringBuilder("insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values");
+        for (int i = 1; i <= 200; i++) {
+            insert.append(i > 1 ? "," : "").append('(').append(i).append(",true,'").append(i % 2 == 0 ? "CAR" : "BIKE").append("')");
+        }
+        dataBaseConfig.execute(insert.toString(), "analyze");
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        dataBaseConfig.execute(DROP_SCHEMA);
+    }
+
+    @Test
+    void secondRunAppliesNothing() throws Exception {
+        assertEquals(0, schemaMigrator.migrate());
+    }
+
+    @Test
+    void modifiedMigrationIsRejected() throws Exception {
+        dataBaseConfig.execute("update schema_version set CHECKSUM = CHECKSUM + 1 where VERSION = 1");
+        try {
+            SQLException e = assertThrows(SQLException.class, () -> schemaMigrator.migrate());
+            assertTrue(e.getMessage().contains("V1__baseline_schema.sql"));
+        } finally {
+            dataBaseConfig.execute("update schema_version set CHECKSUM = CHECKSUM - 1 where VERSION = 1");
+        }
+    }
+
+    @Test
+    void platesSavedBeforeNormalizationAreNormalized() throws Exception {
+        dataBaseConfig.execute("delete from schema_version where VERSION = 4",
+                "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(2, 'ab-123 cd', 0, now(), null)",
+                "insert into ticket_history(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(1000, 4, "
+                        + "concat('ef', char(9), '45', char(13), char(10), '6'), 1.5, now(), now())",
+                "insert into ticket_history(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(1001, 6, 'gh789', 1.5, now(), now())");
+        try {
+            assertEquals(1, schemaMigrator.migrate());
+            assertEquals("AB123CD", plate("select VEHICLE_REG_NUMBER from ticket where PARKING_NUMBER = 2"));
+            assertEquals("EF456", plate("select VEHICLE_REG_NUMBER from ticket_history where ID = 1000"));
+            assertEquals("GH789", plate("select VEHICLE_REG_NUMBER from ticket_history where ID = 1001"));
+            assertEquals("EF456", PlateNormalizer.normalize("ef\t45\r\n6"));
+        } finally {
+            dataBaseConfig.execute("delete from ticket", "delete from ticket_history");
+        }
+    }
+
+    @Test
+    void ticketLookupsByPlateUseTheCoveringIndex() throws Exception {
+        assertPlanUses(DBConstants.GET_TICKET, "IDX_TICKET_PLATE_OUT_TIME");
+        assertPlanUses(DBConstants.GET_UPDATED_TICKET, "IDX_TICKET_PLATE_OUT_TIME");
+        assertPlanUses(DBConstants.GET_RECURRENT, "IDX_TICKET_PLATE_OUT_TIME");
+    }
+
+    @Test
+    void openTicketsUseTheOutTimeIndex() throws Exception {
+        assertPlanUses(DBConstants.GET_OPEN_TICKETS, "IDX_TICKET_OUT_TIME_IN_TIME");
+    }
+
+    @Test
+    void nextParkingSpotUsesTheTypeIndex() throws Exception {
+        assertPlanUses(DBConstants.GET_NEXT_PARKING_SPOT, "IDX_PARKING_TYPE_AVAILABLE");
+    }
+
+    private static String plate(String query) throws Exception {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(query);
+            rs = ps.executeQuery();
+            assertTrue(rs.next());
+            return rs.getString(1);
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private static void assertPlanUses(String query, String index) throws Exception {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement("explain " + query);
+            for (int i = 1; i <= ps.getParameterMetaData().getParameterCount(); i++) {
+                ps.setString(i, "CAR");
+            }
+            rs = ps.executeQuery();
+            assertTrue(rs.next());
+            String plan = rs.getString(1);
+            assertTrue(plan.contains(index), plan);
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
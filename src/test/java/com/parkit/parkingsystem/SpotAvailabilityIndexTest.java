@@ -0,0 +1,74 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.SpotAvailabilityIndex;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpotAvailabilityIndexTest {
+
+    private SpotAvailabilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SpotAvailabilityIndex();
+    }
+
+    @Test
+    void lowestAvailableIsPerType() {
+        index.load(Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, false),
+                new ParkingSpot(2, ParkingType.CAR, true),
+                new ParkingSpot(3, ParkingType.CAR, true),
+                new ParkingSpot(4, ParkingType.BIKE, true),
+                new ParkingSpot(5, ParkingType.BIKE, true)));
+
+        assertEquals(2, index.getLowestAvailable(ParkingType.CAR));
+        assertEquals(4, index.getLowestAvailable(ParkingType.BIKE));
+        assertEquals(2, index.getAvailableCount(ParkingType.CAR));
+        assertEquals(3, index.getCapacity(ParkingType.CAR));
+    }
+
+    @Test
+    void fullTypeReturnsZero() {
+        index.load(Arrays.asList(new ParkingSpot(1, ParkingType.CAR, true)));
+
+        index.setAvailable(new ParkingSpot(1, ParkingType.CAR, false));
+
+        assertEquals(0, index.getLowestAvailable(ParkingType.CAR));
+        assertEquals(0, index.getLowestAvailable(ParkingType.BIKE));
+    }
+
+    @Test
+    void lowestAvailableAcrossManyWords() {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int i = 1; i <= 10000; i++) {
+            parkingSpots.add(new ParkingSpot(i, ParkingType.CAR, i == 9000));
+        }
+        index.load(parkingSpots);
+        assertEquals(9000, index.getLowestAvailable(ParkingType.CAR));
+
+        index.setAvailable(new ParkingSpot(4097, ParkingType.CAR, true));
+        assertEquals(4097, index.getLowestAvailable(ParkingType.CAR));
+
+        index.setAvailable(new ParkingSpot(4097, ParkingType.CAR, false));
+        index.setAvailable(new ParkingSpot(9000, ParkingType.CAR, false));
+        assertEquals(0, index.getLowestAvailable(ParkingType.CAR));
+        assertEquals(0, index.getAvailableCount(ParkingType.CAR));
+    }
+
+    @Test
+    void updatesBeforeLoadAreIgnored() {
+        index.setAvailable(new ParkingSpot(1, ParkingType.CAR, true));
+
+        assertFalse(index.isLoaded());
+        assertFalse(index.isAvailable(1, ParkingType.CAR));
+    }
+}
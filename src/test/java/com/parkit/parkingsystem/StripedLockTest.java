@@ -0,0 +1,64 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.util.StripedLock;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedLockTest {
+
+    @Test
+    void stripesAreRoundedUpToAPowerOfTwo() {
+        assertEquals(1, new StripedLock(1).getStripes());
+        assertEquals(64, new StripedLock(64).getStripes());
+        assertEquals(128, new StripedLock(65).getStripes());
+        assertThrows(IllegalArgumentException.class, () -> new StripedLock(0));
+    }
+
+    @Test
+    void sameKeyWaitsAndIsCounted() throws Exception {
+        StripedLock locks = new StripedLock(256);
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            Lock held = locks.acquire("AB123CD");
+            CountDownLatch started = new CountDownLatch(1);
+            Future<?> waiter = other.submit(() -> {
+                started.countDown();
+                locks.acquire("AB123CD").unlock();
+            });
+            started.await();
+            Thread.sleep(50);
+            assertFalse(waiter.isDone());
+            held.unlock();
+            waiter.get(5, TimeUnit.SECONDS);
+
+            assertEquals(2, locks.getAcquiredCount());
+            assertEquals(1, locks.getContendedCount());
+            assertTrue(locks.getWaitNanos() > 0);
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    void otherStripesDoNotWait() throws Exception {
+        StripedLock locks = new StripedLock(2);
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            // "a" and "b" hash to consecutive values, so to different stripes
+            Lock held = locks.acquire("a");
+            other.submit(() -> locks.acquire("b").unlock()).get(5, TimeUnit.SECONDS);
+            held.unlock();
+            assertEquals(0, locks.getContendedCount());
+        } finally {
+            other.shutdownNow();
+        }
+    }
+}
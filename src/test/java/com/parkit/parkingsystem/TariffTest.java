@@ -0,0 +1,186 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.tariff.Tariff;
+import com.parkit.parkingsystem.tariff.TariffReloader;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TariffTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    // Monday 2024-03-04 and Saturday 2024-03-09, in UTC
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2024, 3, 4, 0, 0);
+    private static final LocalDateTime SATURDAY = LocalDateTime.of(2024, 3, 9, 0, 0);
+
+    @Test
+    void defaultTariffMatchesTheHistoricalFares() {
+        Tariff tariff = Tariff.defaultTariff();
+        long in = millis(MONDAY.plusHours(23));
+
+        assertEquals(150, tariff.priceCents(ParkingType.CAR, in, in + HOUR));
+        assertEquals(75, tariff.priceCents(ParkingType.BIKE, in, in + 45 * 60_000));
+        assertEquals(3600, tariff.priceCents(ParkingType.CAR, in, in + 24 * HOUR));
+        assertEquals(0, tariff.priceCents(ParkingType.CAR, in, in + 30 * 60_000));
+        assertEquals(95, tariff.getRecurringPercent());
+        assertThrows(IllegalArgumentException.class, () -> tariff.priceCents(ParkingType.NONE, in, in + HOUR));
+    }
+
+    @Test
+    void bandsAndWeekendRatesFollowTheClock() {
+        Properties properties = utc();
+        properties.setProperty("CAR.ratePerHour", "1");
+        properties.setProperty("CAR.bands", "07:00-10:00@3, 08:00-09:00@5");
+        properties.setProperty("CAR.weekendRatePerHour", "0.5");
+        Tariff tariff = Tariff.compile(properties);
+
+        // 06:00-11:00 on Monday: 1h at 1, 1h at 3, 1h at 5, 1h at 3, 1h at 1
+        assertEquals(1300, tariff.priceCents(ParkingType.CAR, millis(MONDAY.plusHours(6)), millis(MONDAY.plusHours(11))));
+        // no bands on the weekend
+        assertEquals(250, tariff.priceCents(ParkingType.CAR, millis(SATURDAY.plusHours(6)), millis(SATURDAY.plusHours(11))));
+        // Friday 23:00 to Saturday 01:00 changes rate at midnight
+        assertEquals(150, tariff.priceCents(ParkingType.CAR, millis(SATURDAY.minusHours(1)), millis(SATURDAY.plusHours(1))));
+    }
+
+    @Test
+    void dailyCapAppliesPerCalendarDay() {
+        Properties properties = utc();
+        properties.setProperty("CAR.ratePerHour", "2");
+        properties.setProperty("CAR.dailyCap", "10");
+        Tariff tariff = Tariff.compile(properties);
+
+        // Monday 20:00 to Wednesday 02:00: 4h (8), a full day (capped at 10), 2h (4)
+        assertEquals(2200, tariff.priceCents(ParkingType.CAR, millis(MONDAY.plusHours(20)), millis(MONDAY.plusHours(50))));
+    }
+
+    @Test
+    void graceAndDiscountComeFromTheTariff() {
+        Properties properties = utc();
+        properties.setProperty("CAR.ratePerHour", "2");
+        properties.setProperty("graceMinutes", "60");
+        properties.setProperty("recurringDiscountPercent", "50");
+        FareCalculatorService fareCalculatorService = new FareCalculatorService(Tariff.compile(properties));
+        Ticket ticket = ticket(millis(MONDAY.plusHours(10)), 60);
+
+        fareCalculatorService.calculateFare(ticket, true);
+        assertEquals(0.0, ticket.getPrice());
+
+        ticket = ticket(millis(MONDAY.plusHours(10)), 120);
+        fareCalculatorService.calculateFare(ticket, true);
+        assertEquals(2.0, ticket.getPrice());
+    }
+
+    @Test
+    void pricesAreRoundedOnceHalfUpToTheCent() {
+        Properties properties = utc();
+        properties.setProperty("CAR.ratePerHour", "1.5");
+        properties.setProperty("BIKE.ratePerHour", "0.01");
+        properties.setProperty("graceMinutes", "0");
+        properties.setProperty("recurringDiscountPercent", "5");
+        Tariff tariff = Tariff.compile(properties);
+        long in = millis(MONDAY.plusHours(10));
+
+        // 45 minutes: 1.125 rounds up, and 5% off the exact 1.125 is 1.06875
+        assertEquals(113, tariff.priceCents(ParkingType.CAR, in, in + 45 * 60_000));
+        assertEquals(107, tariff.priceCents(ParkingType.CAR, in, in + 45 * 60_000, true));
+        assertEquals(107, tariff.priceCents(ParkingType.CAR, in, in + 45 * 60_000, 0.95));
+        // half a cent rounds up, just under half a cent rounds down
+        assertEquals(1, tariff.priceCents(ParkingType.BIKE, in, in + HOUR / 2));
+        assertEquals(0, tariff.priceCents(ParkingType.BIKE, in, in + HOUR / 2 - 1));
+
+        // a thousand short stays add up to exactly a thousand times the price
+        long total = 0;
+        for (int i = 0; i < 1000; i++) {
+            total += tariff.priceCents(ParkingType.CAR, in, in + 20 * 60_000);
+        }
+        assertEquals(50_000, total);
+    }
+
+    @Test
+    void invalidTariffsAreRejected() {
+        Properties properties = utc();
+        assertThrows(IllegalArgumentException.class, () -> Tariff.compile(properties));
+        properties.setProperty("CAR.ratePerHour", "1");
+        properties.setProperty("CAR.bands", "10:00-07:00@2");
+        assertThrows(IllegalArgumentException.class, () -> Tariff.compile(properties));
+        properties.setProperty("CAR.bands", "07:00-25:00@2");
+        assertThrows(IllegalArgumentException.class, () -> Tariff.compile(properties));
+        properties.setProperty("CAR.bands", "");
+        properties.setProperty("timeZone", "Nowhere/Atlantis");
+        assertThrows(IllegalArgumentException.class, () -> Tariff.compile(properties));
+    }
+
+    @Test
+    void reloaderSwapsTheTariffOnlyWhenTheFileCompiles() throws Exception {
+        Path file = Files.createTempFile("tariff", ".properties");
+        try {
+            FareCalculatorService fareCalculatorService = new FareCalculatorService();
+            TariffReloader reloader = new TariffReloader(file, fareCalculatorService::setTariff);
+            write(file, "CAR.ratePerHour=4\ntimeZone=UTC\n", 1_000);
+
+            assertTrue(reloader.reloadIfChanged());
+            assertFalse(reloader.reloadIfChanged());
+            Ticket ticket = ticket(millis(MONDAY.plusHours(10)), 60);
+            fareCalculatorService.calculateFare(ticket);
+            assertEquals(4.0, ticket.getPrice());
+
+            write(file, "CAR.ratePerHour=not a number\n", 2_000);
+            assertFalse(reloader.reloadIfChanged());
+            fareCalculatorService.calculateFare(ticket);
+            assertEquals(4.0, ticket.getPrice());
+
+            write(file, "CAR.ratePerHour=6\ntimeZone=UTC\n", 3_000);
+            assertTrue(reloader.reloadIfChanged());
+            fareCalculatorService.calculateFare(ticket);
+            assertEquals(6.0, ticket.getPrice());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void packagedTariffMatchesTheDefault() throws Exception {
+        Tariff packaged = TariffReloader.loadResource("tariff.properties");
+        long in = millis(MONDAY.plusHours(9));
+
+        assertEquals(Tariff.defaultTariff().priceCents(ParkingType.CAR, in, in + 5 * HOUR), packaged.priceCents(ParkingType.CAR, in, in + 5 * HOUR));
+        assertEquals(Tariff.defaultTariff().getRecurringPercent(), packaged.getRecurringPercent());
+    }
+
+    private static void write(Path file, String content, long modified) throws Exception {
+        Files.write(file, content.getBytes(StandardCharsets.ISO_8859_1));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+    }
+
+    private static Properties utc() {
+        Properties properties = new Properties();
+        properties.setProperty("timeZone", "UTC");
+        return properties;
+    }
+
+    private static long millis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static Ticket ticket(long inMillis, int minutes) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setInTime(new Date(inMillis));
+        ticket.setOutTime(new Date(inMillis + minutes * 60_000L));
+        return ticket;
+    }
+}
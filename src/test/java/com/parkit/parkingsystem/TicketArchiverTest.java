@@ -0,0 +1,134 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.dao.TicketArchiver;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TicketArchiverTest {
+
+    private static final String[] DROP_SCHEMA = {"drop table if exists ticket_history",
+            "drop table if exists ticket", "drop table if exists parking", "drop table if exists schema_version"};
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static EmbeddedDataBaseConfig dataBaseConfig;
+
+    private TicketDAO ticketDAO;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseConfig();
+        dataBaseConfig.execute(DROP_SCHEMA);
+        new SchemaMigrator(dataBaseConfig).migrate();
+        dataBaseConfig.execute("insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,false,'CAR'),(2,true,'BIKE')");
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        dataBaseConfig.execute(DROP_SCHEMA);
+    }
+
+    @BeforeEach
+    void clear() throws Exception {
+        dataBaseConfig.execute("delete from ticket_history", "delete from ticket");
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @Test
+    void oldClosedTicketsMoveToHistoryInBatches() throws Exception {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            insertTicket("OLD" + i, now - 200 * DAY, now - 199 * DAY);
+        }
+        insertTicket("RECENT", now - 2 * DAY, now - DAY);
+        insertTicket("INSIDE", now - 300 * DAY, null);
+
+        int moved = new TicketArchiver(dataBaseConfig, 90 * DAY, 2).archiveOldTickets();
+
+        assertEquals(5, moved);
+        assertEquals(2, count("select count(*) from ticket"));
+        assertEquals(5, count("select count(*) from ticket_history"));
+        assertEquals(0, count("select count(*) from ticket t join ticket_history h on h.ID = t.ID"));
+    }
+
+    @Test
+    void lookupsFallBackToHistory() throws Exception {
+        long now = System.currentTimeMillis();
+        insertTicket("ARCHIVED", now - 200 * DAY, now - 199 * DAY);
+        new TicketArchiver(dataBaseConfig, 90 * DAY, 10).archiveOldTickets();
+
+        Ticket latest = ticketDAO.getTicketById("ARCHIVED");
+
+        assertNotNull(latest);
+        assertNotNull(latest.getOutTime());
+        assertTrue(ticketDAO.isReccurent("ARCHIVED"));
+        assertFalse(ticketDAO.isReccurent("NEVERSEEN"));
+        assertTrue(ticketDAO.loadRecurringCustomers());
+        assertTrue(ticketDAO.getRecurringCustomerFilter().contains("ARCHIVED"));
+    }
+
+    @Test
+    void hotTableWinsOverHistory() throws Exception {
+        long now = System.currentTimeMillis();
+        insertTicket("AB123CD", now - 200 * DAY, now - 199 * DAY);
+        new TicketArchiver(dataBaseConfig, 90 * DAY, 10).archiveOldTickets();
+        insertTicket("AB123CD", now - DAY, now - DAY / 2);
+
+        Ticket latest = ticketDAO.getTicketById("AB123CD");
+
+        assertTrue(latest.getOutTime().getTime() > now - 2 * DAY);
+    }
+
+    @Test
+    void nothingToArchive() {
+        assertEquals(0, new TicketArchiver(dataBaseConfig, 90 * DAY, 10).archiveOldTickets());
+    }
+
+    private static void insertTicket(String vehicleRegNumber, long inTime, Long outTime) throws Exception {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(1,?,1.5,?,?)");
+            ps.setString(1, vehicleRegNumber);
+            ps.setTimestamp(2, new Timestamp(inTime));
+            ps.setTimestamp(3, outTime == null ? null : new Timestamp(outTime));
+            ps.execute();
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private static int count(String sql) throws Exception {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(sql);
+            rs = ps.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
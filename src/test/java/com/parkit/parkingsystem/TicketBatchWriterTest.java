@@ -0,0 +1,165 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketBatchWriter;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TicketBatchWriterTest {
+
+    private static EmbeddedDataBaseConfig dataBaseConfig;
+
+    private TicketBatchWriter writer;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseConfig();
+        dataBaseConfig.execute("create table if not exists ticket (ID int primary key auto_increment,"
+                + " PARKING_NUMBER int not null, VEHICLE_REG_NUMBER varchar(10) not null,"
+                + " PRICE double, IN_TIME timestamp not null, OUT_TIME timestamp)");
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        dataBaseConfig.execute("drop table ticket");
+    }
+
+    @BeforeEach
+    void clear() throws Exception {
+        dataBaseConfig.execute("delete from ticket");
+        writer = new TicketBatchWriter(dataBaseConfig, 20, 50);
+    }
+
+    @AfterEach
+    void closeWriter() {
+        writer.close();
+    }
+
+    @Test
+    void concurrentSavesAreCommittedInFewBatches() throws Exception {
+        ExecutorService gates = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Ticket ticket = ticket("CAR" + i);
+            tickets.add(ticket);
+            futures.add(CompletableFuture.supplyAsync(() -> writer.submitSave(ticket), gates)
+                    .thenCompose(future -> future));
+        }
+
+        for (CompletableFuture<Boolean> future : futures) {
+            assertTrue(future.get(5, TimeUnit.SECONDS));
+        }
+        gates.shutdown();
+
+        assertEquals(40, count());
+        assertEquals(40, writer.getWriteCount());
+        assertTrue(writer.getBatchCount() < 40, "batches: " + writer.getBatchCount());
+        Set<Integer> ids = new HashSet<>();
+        for (Ticket ticket : tickets) {
+            assertTrue(ticket.getId() > 0);
+            ids.add(ticket.getId());
+        }
+        assertEquals(40, ids.size());
+    }
+
+    @Test
+    void updateCompletesOnceTheOutTimeIsDurable() throws Exception {
+        Ticket ticket = ticket("AB123CD");
+        assertTrue(writer.submitSave(ticket).get(5, TimeUnit.SECONDS));
+
+        ticket.setOutTime(new Date());
+        ticket.setPrice(1.5);
+        assertTrue(writer.submitUpdate(ticket).get(5, TimeUnit.SECONDS));
+
+        assertEquals(1, count("select count(*) from ticket where OUT_TIME is not null and PRICE = 1.5"));
+    }
+
+    @Test
+    void incompleteTicketOnlyFailsItsOwnCaller() throws Exception {
+        Ticket broken = ticket("BROKEN");
+        broken.setParkingSpot(null);
+
+        CompletableFuture<Boolean> failed = writer.submitSave(broken);
+        CompletableFuture<Boolean> saved = writer.submitSave(ticket("AB123CD"));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof NullPointerException);
+        assertTrue(saved.get(5, TimeUnit.SECONDS));
+        assertEquals(1, count());
+    }
+
+    @Test
+    void ticketDaoWaitsForTheGroupCommitInWriteBehindMode() throws Exception {
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.setBatchWriter(writer);
+
+        assertTrue(ticketDAO.isWriteBehind());
+        assertTrue(ticketDAO.saveTicket(ticket("AB123CD")));
+        assertEquals(1, count());
+        assertEquals(1, writer.getWriteCount());
+    }
+
+    @Test
+    void writesAfterCloseAreRejected() {
+        writer.close();
+
+        CompletableFuture<Boolean> future = writer.submitSave(ticket("AB123CD"));
+
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    private static Ticket ticket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(0);
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+
+    private static int count() throws Exception {
+        return count("select count(*) from ticket");
+    }
+
+    private static int count(String sql) throws Exception {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(sql);
+            rs = ps.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
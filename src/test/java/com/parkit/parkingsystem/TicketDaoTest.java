@@ -18,6 +18,10 @@ import java.sql.*;
 import java.util.Date;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -81,7 +85,7 @@ class TicketDaoTest {
 
         // Given
         when(con.prepareStatement(DBConstants.SAVE_TICKET)).thenReturn(ps);
-        when(ps.execute()).thenReturn(Boolean.TRUE);
+        when(ps.executeUpdate()).thenReturn(1);
 
         // When
         boolean saved = ticketDAO.saveTicket(ticket);
@@ -141,6 +145,7 @@ class TicketDaoTest {
 
         // Given
         when(con.prepareStatement(DBConstants.GET_UPDATED_TICKET)).thenReturn(ps);
+        doReturn(ps).when(con).prepareStatement(DBConstants.GET_UPDATED_TICKET_HISTORY);
         when(ps.executeQuery()).thenReturn(rs);
         when(rs.next()).thenReturn(Boolean.FALSE);
 
@@ -200,4 +205,62 @@ class TicketDaoTest {
 
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void openTicketIndexServesExitLookupsAfterSaveAndUpdate() throws SQLException {
+
+        // Given
+        ResultSet keys = mock(ResultSet.class);
+        when(con.prepareStatement(DBConstants.GET_OPEN_TICKETS)).thenReturn(ps);
+        when(ps.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(Boolean.FALSE);
+        doReturn(ps).when(con).prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
+        when(ps.getGeneratedKeys()).thenReturn(keys);
+        when(keys.next()).thenReturn(Boolean.TRUE);
+        when(keys.getInt(1)).thenReturn(42);
+        doReturn(ps).when(con).prepareStatement(DBConstants.UPDATE_TICKET);
+        assertTrue(ticketDAO.loadOpenTicketIndex());
+
+        // When
+        ticketDAO.saveTicket(ticket);
+        Ticket open = ticketDAO.getTicket("abc-def");
+
+        // Then
+        assertEquals(42, open.getId());
+        assertEquals(1, open.getParkingSpot().getId());
+        assertTrue(ticketDAO.isVehicleInside("ABCDEF"));
+        verify(con, never()).prepareStatement(DBConstants.GET_TICKET);
+
+        // When
+        open.setOutTime(new Date());
+        assertTrue(ticketDAO.updateTicket(open));
+
+        // Then
+        assertNull(ticketDAO.getTicket("ABCDEF"));
+        assertFalse(ticketDAO.isVehicleInside("ABCDEF"));
+    }
+
+    @Test
+    void isReccurentIsAnsweredFromMemoryOnceLoaded() throws SQLException {
+
+        // Given
+        when(con.prepareStatement(DBConstants.GET_RECURRENT_PLATES)).thenReturn(ps);
+        when(ps.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(Boolean.TRUE, Boolean.FALSE);
+        when(rs.getString(1)).thenReturn("ABCDEF");
+        doReturn(ps).when(con).prepareStatement(DBConstants.UPDATE_TICKET);
+        assertTrue(ticketDAO.loadRecurringCustomers());
+
+        // When
+        ticket.setVehicleRegNumber("GHIJKL");
+        ticket.setOutTime(new Date());
+        boolean before = ticketDAO.isReccurent("GHIJKL");
+        ticketDAO.updateTicket(ticket);
+
+        // Then
+        assertTrue(ticketDAO.isReccurent("abcdef"));
+        assertFalse(before);
+        assertTrue(ticketDAO.isReccurent("GHIJKL"));
+        verify(con, never()).prepareStatement(DBConstants.GET_RECURRENT);
+    }
+}
@@ -0,0 +1,175 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.journal.JournalEvent;
+import com.parkit.parkingsystem.dao.journal.TicketJournal;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.RandomAccessFile;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TicketJournalTest {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory = Files.createTempDirectory("parkit-journal");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Files.walk(directory).sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+
+    @Test
+    void eventsSurviveReopening() throws Exception {
+        Ticket ticket = ticket("AB-123", 2);
+        try (TicketJournal journal = TicketJournal.open(directory, SEGMENT_SIZE, false)) {
+            assertEquals(1, journal.append(JournalEvent.entry(ticket)));
+            ticket.setOutTime(new Date(ticket.getInTime().getTime() + 3_600_000));
+            ticket.setPrice(1.5);
+            assertEquals(2, journal.append(JournalEvent.exit(ticket)));
+        }
+
+        try (TicketJournal journal = TicketJournal.open(directory, SEGMENT_SIZE, false)) {
+            List<JournalEvent> events = journal.read(0, 10);
+
+            assertEquals(2, events.size());
+            assertEquals(JournalEvent.Type.ENTRY, events.get(0).getType());
+            assertEquals("AB-123", events.get(0).getVehicleRegNumber());
+            assertEquals(2, events.get(0).getParkingNumber());
+            assertEquals(ParkingType.CAR, events.get(0).getParkingType());
+            assertNull(events.get(0).getOutTime());
+            assertEquals(JournalEvent.Type.EXIT, events.get(1).getType());
+            assertEquals(1.5, events.get(1).getPrice());
+            assertEquals(0, events.get(1).getInTime().getTime() % 1000);
+            assertEquals(3, journal.append(JournalEvent.entry(ticket("CD-456", 3))));
+        }
+    }
+
+    @Test
+    void appendsAreVisibleAfterACrashWithoutClose() throws Exception {
+        TicketJournal crashed = TicketJournal.open(directory, SEGMENT_SIZE, false);
+        crashed.append(JournalEvent.entry(ticket("AB-123", 1)));
+        crashed.append(JournalEvent.entry(ticket("CD-456", 2)));
+
+        // a new process maps the same files and must see what the old one wrote
+        TicketJournal recovered = TicketJournal.open(directory, SEGMENT_SIZE, false);
+
+        assertEquals(2, recovered.getLastSequence());
+        assertEquals("CD-456", recovered.read(1, 10).get(0).getVehicleRegNumber());
+    }
+
+    @Test
+    void tornRecordIsDiscardedAndOverwritten() throws Exception {
+        try (TicketJournal journal = TicketJournal.open(directory, SEGMENT_SIZE, false)) {
+            journal.append(JournalEvent.entry(ticket("AB-123", 1)));
+            journal.append(JournalEvent.entry(ticket("CD-456", 2)));
+            journal.append(JournalEvent.entry(ticket("EF-789", 3)));
+        }
+        Path segment = segments().get(0);
+        // flip the last byte of the third record, as if the crash hit in the middle of it
+        int recordLength;
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            recordLength = file.readInt() + 8;
+            long lastByte = 3L * recordLength - 1;
+            file.seek(lastByte);
+            int value = file.read();
+            file.seek(lastByte);
+            file.write(value ^ 0xFF);
+        }
+
+        try (TicketJournal journal = TicketJournal.open(directory, SEGMENT_SIZE, false)) {
+            assertEquals(2, journal.getLastSequence());
+            assertEquals(3, journal.append(JournalEvent.entry(ticket("GH-1", 4))));
+        }
+        try (TicketJournal journal = TicketJournal.open(directory, SEGMENT_SIZE, false)) {
+            List<JournalEvent> events = journal.read(0, 10);
+            assertEquals(3, events.size());
+            assertEquals("GH-1", events.get(2).getVehicleRegNumber());
+        }
+    }
+
+    @Test
+    void garbageLengthAfterTheLastRecordIsIgnored() throws Exception {
+        int end;
+        try (TicketJournal journal = TicketJournal.open(directory, SEGMENT_SIZE, false)) {
+            journal.append(JournalEvent.entry(ticket("AB-123", 1)));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            end = file.readInt() + 8;
+            file.seek(end);
+            file.writeInt(Integer.MAX_VALUE);
+        }
+
+        try (TicketJournal journal = TicketJournal.open(directory, SEGMENT_SIZE, false)) {
+            assertEquals(1, journal.getLastSequence());
+            journal.append(JournalEvent.entry(ticket("CD-456", 2)));
+            assertEquals(2, journal.read(0, 10).size());
+        }
+    }
+
+    @Test
+    void segmentsRollOverAndAreDeletedOnceApplied() throws Exception {
+        try (TicketJournal journal = TicketJournal.open(directory, 2048, false)) {
+            for (int i = 0; i < 100; i++) {
+                journal.append(JournalEvent.entry(ticket("CAR" + i, i + 1)));
+            }
+            int segmentCount = journal.getSegmentCount();
+            assertTrue(segmentCount > 2);
+            assertEquals(segmentCount, segments().size());
+
+            List<JournalEvent> all = new ArrayList<>();
+            List<JournalEvent> batch;
+            while (!(batch = journal.read(all.size(), 7)).isEmpty()) {
+                all.addAll(batch);
+            }
+            assertEquals(100, all.size());
+            for (int i = 0; i < all.size(); i++) {
+                assertEquals(i + 1, all.get(i).getSequence());
+            }
+
+            assertEquals(segmentCount - 1, journal.deleteUpTo(100));
+            assertEquals(1, segments().size());
+            assertEquals(100, journal.getLastSequence());
+        }
+        try (TicketJournal journal = TicketJournal.open(directory, 2048, false)) {
+            assertEquals(101, journal.append(JournalEvent.entry(ticket("NEXT", 1))));
+        }
+    }
+
+    private List<Path> segments() throws Exception {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "journal-*.seg")) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static Ticket ticket(String vehicleRegNumber, int parkingNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setInTime(new Date(System.currentTimeMillis() - 7_200_000));
+        return ticket;
+    }
+}
@@ -0,0 +1,177 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnitOfWorkTest {
+
+    private static EmbeddedDataBaseConfig dataBaseConfig;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseConfig();
+        dataBaseConfig.execute("create table if not exists uow_event (ID int primary key)");
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        dataBaseConfig.execute("drop table uow_event");
+    }
+
+    @BeforeEach
+    void clear() throws Exception {
+        dataBaseConfig.execute("delete from uow_event");
+    }
+
+    @Test
+    void allDaoCallsShareOneConnectionAndCommitTogether() throws Exception {
+        List<Connection> used = new ArrayList<>();
+        List<String> events = new ArrayList<>();
+
+        UnitOfWork.execute(() -> {
+            used.add(insert(1));
+            used.add(insert(2));
+            UnitOfWork.afterCommit(() -> events.add("committed"));
+            assertEquals(0, countFromAnotherThread());
+            return null;
+        });
+
+        assertSame(used.get(0), used.get(1));
+        assertEquals(2, countFromAnotherThread());
+        assertEquals(1, events.size());
+        assertEquals(0, dataBaseConfig.getPoolStats().getActive());
+    }
+
+    @Test
+    void exceptionRollsBackEveryWrite() throws Exception {
+        List<String> events = new ArrayList<>();
+
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.execute(() -> {
+            insert(1);
+            UnitOfWork.afterCommit(() -> events.add("committed"));
+            UnitOfWork.afterRollback(() -> events.add("rolled back"));
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals(0, countFromAnotherThread());
+        assertEquals(1, events.size());
+        assertEquals("rolled back", events.get(0));
+        assertEquals(0, dataBaseConfig.getPoolStats().getActive());
+    }
+
+    @Test
+    void markRollbackOnlyRollsBackWithoutAnException() throws Exception {
+        SQLException e = assertThrows(SQLException.class, () -> UnitOfWork.execute(() -> {
+            insert(1);
+            UnitOfWork.markRollbackOnly();
+            insert(2);
+            return null;
+        }));
+
+        assertTrue(e.getMessage().contains("rollback-only"));
+        assertEquals(0, countFromAnotherThread());
+        assertFalse(UnitOfWork.isActive());
+    }
+
+    @Test
+    void executeOrRollbackReturnsTheResultOfARolledBackBlock() throws Exception {
+        String result = UnitOfWork.executeOrRollback(() -> {
+            insert(1);
+            UnitOfWork.markRollbackOnly();
+            return "not saved";
+        });
+
+        assertEquals("not saved", result);
+        assertEquals(0, countFromAnotherThread());
+        assertFalse(UnitOfWork.isActive());
+    }
+
+    @Test
+    void nestedUnitOfWorkJoinsTheOuterOne() throws Exception {
+        assertThrows(SQLException.class, () -> UnitOfWork.execute(() -> {
+            insert(1);
+            try {
+                UnitOfWork.execute(() -> {
+                    insert(2);
+                    throw new IllegalStateException("inner");
+                });
+            } catch (IllegalStateException ignored) {
+                // the outer block carries on but can no longer commit
+            }
+            return null;
+        }));
+        assertEquals(0, countFromAnotherThread());
+
+        UnitOfWork.execute(() -> UnitOfWork.execute(() -> insert(3)));
+        assertEquals(1, countFromAnotherThread());
+    }
+
+    @Test
+    void connectionsOutsideAUnitOfWorkAutoCommit() throws Exception {
+        List<String> events = new ArrayList<>();
+        insert(1);
+        UnitOfWork.afterCommit(() -> events.add("committed"));
+
+        assertEquals(1, countFromAnotherThread());
+        assertEquals(1, events.size());
+        assertEquals(0, dataBaseConfig.getPoolStats().getActive());
+    }
+
+    private static Connection insert(int id) throws Exception {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement("insert into uow_event(ID) values(?)");
+            ps.setInt(1, id);
+            ps.execute();
+            return con;
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    // runs on its own thread so it never joins the unit of work under test
+    private static int countFromAnotherThread() throws Exception {
+        int[] count = new int[1];
+        Exception[] failure = new Exception[1];
+        Thread reader = new Thread(() -> {
+            Connection con = null;
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement("select count(*) from uow_event");
+                rs = ps.executeQuery();
+                rs.next();
+                count[0] = rs.getInt(1);
+            } catch (Exception e) {
+                failure[0] = e;
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+        });
+        reader.start();
+        reader.join();
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return count[0];
+    }
+}
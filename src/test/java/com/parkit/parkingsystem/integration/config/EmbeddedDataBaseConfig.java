@@ -0,0 +1,27 @@
+package com.parkit.parkingsystem.integration.config;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+public class EmbeddedDataBaseConfig extends DataBaseConfig {
+
+    public EmbeddedDataBaseConfig() {
+        super("application-embedded.properties");
+    }
+
+    public void execute(String... statements) throws Exception {
+        Connection connection = null;
+        try {
+            connection = getConnection();
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : statements) {
+                    statement.execute(sql);
+                }
+            }
+        } finally {
+            closeConnection(connection);
+        }
+    }
+}